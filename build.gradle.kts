@@ -23,6 +23,9 @@ dependencies {
     implementation("com.fasterxml.jackson.core:jackson-core:2.16.1")
     implementation("com.fasterxml.jackson.core:jackson-annotations:2.16.1")
     implementation("com.fasterxml.jackson.module:jackson-module-afterburner:2.16.1")
+    // Optional: only needed for generated policy code; without it policies stay interpreted
+    compileOnly("org.ow2.asm:asm:9.8")
+    testImplementation("org.ow2.asm:asm:9.8")
 
     testCompileOnly("org.projectlombok:lombok:1.18.34")
     testAnnotationProcessor("org.projectlombok:lombok:1.18.34")
@@ -45,6 +48,54 @@ tasks.test {
     useJUnitPlatform()
 }
 
+// Benchmarks live in their own source set so they are neither published nor run with the tests
+sourceSets {
+    create("benchmark") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
+configurations["benchmarkImplementation"].extendsFrom(configurations.implementation.get())
+configurations["benchmarkRuntimeOnly"].extendsFrom(configurations.runtimeOnly.get())
+
+dependencies {
+    // Benchmarks measure generated code too
+    "benchmarkImplementation"("org.ow2.asm:asm:9.8")
+}
+
+tasks.register<JavaExec>("benchmark") {
+    description = "Runs the evaluation benchmarks."
+    group = "verification"
+    classpath = sourceSets["benchmark"].runtimeClasspath
+    mainClass.set("org.binaryhive.policyengine.benchmark.ContextAllocationBenchmark")
+    systemProperty("log4j2.configurationFile", "log4j2-benchmark.xml")
+}
+
+tasks.register<JavaExec>("loadTest") {
+    description = "Runs a multi-threaded load test against a generated policy corpus."
+    group = "verification"
+    classpath = sourceSets["benchmark"].runtimeClasspath
+    mainClass.set("org.binaryhive.policyengine.benchmark.LoadHarness")
+    systemProperty("log4j2.configurationFile", "log4j2-benchmark.xml")
+    // For example -PloadTest.args="policies=20000 threads=8 seconds=30"
+    args = (project.findProperty("loadTest.args") as String?)?.split(" ") ?: emptyList()
+}
+
+// Compares a fixed workload against the committed baseline; update it with -PlatencyGate.update=true
+tasks.register<JavaExec>("latencyGate") {
+    description = "Fails when evaluation latency or allocation regresses against the baseline."
+    group = "verification"
+    classpath = sourceSets["benchmark"].runtimeClasspath
+    mainClass.set("org.binaryhive.policyengine.benchmark.LatencyGate")
+    systemProperty("log4j2.configurationFile", "log4j2-benchmark.xml")
+    jvmArgs("-Xms512m", "-Xmx512m")
+    args(
+        "baseline=${file("src/benchmark/latency-baseline.properties")}",
+        "tolerance=${project.findProperty("latencyGate.tolerance") ?: "0.25"}",
+        "update=${project.findProperty("latencyGate.update") ?: "false"}")
+}
+
 // Generate sources JAR
 java {
     withSourcesJar()
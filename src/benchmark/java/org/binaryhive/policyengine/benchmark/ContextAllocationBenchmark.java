@@ -0,0 +1,119 @@
+package org.binaryhive.policyengine.benchmark;
+
+import java.util.*;
+import org.binaryhive.policyengine.condition.Condition;
+import org.binaryhive.policyengine.condition.ListCondition;
+import org.binaryhive.policyengine.condition.ValueCondition;
+import org.binaryhive.policyengine.evaluation.*;
+import org.binaryhive.policyengine.model.Attribute;
+import org.binaryhive.policyengine.model.Effect;
+import org.binaryhive.policyengine.model.Operator;
+import org.binaryhive.policyengine.model.Policy;
+
+/**
+ * Compares building and evaluating a map-based {@link EvaluationContext} with a reused {@link
+ * ArrayEvaluationContext.Builder}, reporting time and allocated bytes per decision.
+ */
+public class ContextAllocationBenchmark {
+
+  private static final int ITERATIONS = 200_000;
+  private static final String[] ROLES = {"admin", "editor", "viewer", "guest"};
+
+  public static void main(String[] args) {
+    PolicySet policySet = PolicySet.of(policies(200));
+    ContextEvaluator evaluator = new ContextEvaluator(new PolicyEvaluator());
+    ArrayEvaluationContext.Builder builder = ArrayEvaluationContext.builder(policySet);
+    int tenantSlot = policySet.attributes().slot("tenant");
+    int roleSlot = policySet.attributes().slot("role");
+    int levelSlot = policySet.attributes().slot("level");
+    int[] counter = new int[1];
+
+    List<Measurement> results = new ArrayList<>();
+    results.add(
+        Measurement.measure(
+            "map context: build",
+            ITERATIONS,
+            () -> mapContext(policySet, counter[0]++)));
+    results.add(
+        Measurement.measure(
+            "array context: build",
+            ITERATIONS,
+            () -> arrayContext(builder, counter[0]++)));
+    results.add(
+        Measurement.measure(
+            "map context: build + evaluate",
+            ITERATIONS,
+            () -> evaluator.evaluate(mapContext(policySet, counter[0]++))));
+    results.add(
+        Measurement.measure(
+            "array context: build + evaluate",
+            ITERATIONS,
+            () -> evaluator.evaluate(arrayContext(builder, counter[0]++))));
+    results.add(
+        Measurement.measure(
+            "array context (slots): build + evaluate",
+            ITERATIONS,
+            () -> {
+              int i = counter[0]++;
+              return evaluator.evaluate(
+                  builder
+                      .reset()
+                      .action("read")
+                      .attribute(tenantSlot, "tenant-" + (i & 7))
+                      .attribute(roleSlot, ROLES[i & 3])
+                      .attribute(levelSlot, i & 15)
+                      .build());
+            }));
+
+    results.forEach(System.out::println);
+  }
+
+  private static EvaluationContext mapContext(PolicySet policySet, int i) {
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put("tenant", "tenant-" + (i & 7));
+    attributes.put("role", ROLES[i & 3]);
+    attributes.put("level", i & 15);
+    return new MapContext(List.of("read"), attributes, policySet);
+  }
+
+  private static EvaluationContext arrayContext(ArrayEvaluationContext.Builder builder, int i) {
+    return builder
+        .reset()
+        .action("read")
+        .attribute("tenant", "tenant-" + (i & 7))
+        .attribute("role", ROLES[i & 3])
+        .attribute("level", i & 15)
+        .build();
+  }
+
+  static List<Policy> policies(int count) {
+    Attribute<String> tenant = Attribute.string("tenant");
+    Attribute<String> role = Attribute.string("role");
+    Attribute<Integer> level = Attribute.integer("level");
+    List<Policy> policies = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      List<Condition<?>> conditions =
+          List.of(
+              new ValueCondition<>(tenant, Operator.EQUALS, "tenant-" + (i & 7)),
+              new ListCondition<>(role, Operator.IN, List.of(ROLES[i & 3], ROLES[(i + 1) & 3])),
+              new ValueCondition<>(level, Operator.LESS_THAN, i & 15));
+      policies.add(
+          new Policy("policy-" + i, null, conditions, i % 10 == 0 ? Effect.DENY : Effect.ALLOW));
+    }
+    return policies;
+  }
+
+  private static class MapContext extends EvaluationContext {
+    private final List<Policy> policies;
+
+    MapContext(Collection<String> actions, Map<String, Object> context, List<Policy> policies) {
+      super(actions, context);
+      this.policies = policies;
+    }
+
+    @Override
+    public List<Policy> policies() {
+      return policies;
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package org.binaryhive.policyengine.benchmark;
+
+import java.util.*;
+
+/**
+ * Shape of a generated {@link PolicyCorpus}. The same spec and seed always produce the same
+ * policies and request stream.
+ *
+ * @param seed               Seed for policies and requests
+ * @param policies           Number of policies over all actions
+ * @param actions            Number of actions; each policy belongs to one
+ * @param stringAttributes   Number of string attributes
+ * @param integerAttributes  Number of integer attributes
+ * @param cardinality        Number of distinct values per attribute
+ * @param minConditions      Minimum conditions per policy
+ * @param maxConditions      Maximum conditions per policy
+ * @param listRatio          Share of conditions that are {@code IN} lists
+ * @param rangeRatio         Share of conditions that are {@code GREATER_THAN}/{@code LESS_THAN}
+ * @param denyRatio          Share of policies with effect DENY
+ * @param listSize           Number of values in an {@code IN} list
+ * @param skew               Zipf exponent of attribute values; 0 is uniform
+ */
+public record CorpusSpec(
+    long seed,
+    int policies,
+    int actions,
+    int stringAttributes,
+    int integerAttributes,
+    int cardinality,
+    int minConditions,
+    int maxConditions,
+    double listRatio,
+    double rangeRatio,
+    double denyRatio,
+    int listSize,
+    double skew) {
+
+  public CorpusSpec {
+    if (policies < 1 || actions < 1 || cardinality < 1 || listSize < 1) {
+      throw new IllegalArgumentException("Counts must be positive");
+    }
+    if (stringAttributes < 1 || integerAttributes < 0) {
+      throw new IllegalArgumentException("At least one string attribute is required");
+    }
+    if (minConditions < 1 || maxConditions < minConditions) {
+      throw new IllegalArgumentException(
+          "Invalid condition range: " + minConditions + ".." + maxConditions);
+    }
+    if (listRatio < 0 || rangeRatio < 0 || listRatio + rangeRatio > 1) {
+      throw new IllegalArgumentException("Condition ratios must add up to at most 1");
+    }
+  }
+
+  /**
+   * Parses {@code key=value} arguments, such as {@code policies=5000 skew=1.2}, over the
+   * defaults. Keys are the component names; arguments with other keys are ignored.
+   *
+   * @param args The command line arguments
+   * @return The spec
+   */
+  public static CorpusSpec parse(String... args) {
+    Map<String, String> options = options(args);
+    return new CorpusSpec(
+        Long.parseLong(options.getOrDefault("seed", "42")),
+        Integer.parseInt(options.getOrDefault("policies", "2000")),
+        Integer.parseInt(options.getOrDefault("actions", "8")),
+        Integer.parseInt(options.getOrDefault("stringAttributes", "12")),
+        Integer.parseInt(options.getOrDefault("integerAttributes", "4")),
+        Integer.parseInt(options.getOrDefault("cardinality", "50")),
+        Integer.parseInt(options.getOrDefault("minConditions", "3")),
+        Integer.parseInt(options.getOrDefault("maxConditions", "6")),
+        Double.parseDouble(options.getOrDefault("listRatio", "0.3")),
+        Double.parseDouble(options.getOrDefault("rangeRatio", "0.2")),
+        Double.parseDouble(options.getOrDefault("denyRatio", "0.05")),
+        Integer.parseInt(options.getOrDefault("listSize", "8")),
+        Double.parseDouble(options.getOrDefault("skew", "1.0")));
+  }
+
+  /** Splits {@code key=value} arguments into a map. */
+  static Map<String, String> options(String... args) {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (separator > 0) {
+        options.put(arg.substring(0, separator), arg.substring(separator + 1));
+      }
+    }
+    return options;
+  }
+}
@@ -0,0 +1,208 @@
+package org.binaryhive.policyengine.benchmark;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import org.binaryhive.policyengine.evaluation.CombiningAlgorithm;
+import org.binaryhive.policyengine.evaluation.ContextEvaluator;
+import org.binaryhive.policyengine.evaluation.EvaluationContext;
+import org.binaryhive.policyengine.evaluation.PolicyEvaluator;
+
+/**
+ * Latency regression gate. Runs fixed, seeded workloads through {@link ContextEvaluator} on one
+ * thread, records latency percentiles and allocated bytes per decision, and compares them with a
+ * committed baseline file. Exits with status 1 when any tracked metric exceeds its baseline by more
+ * than the tolerance.
+ *
+ * <p>The same requests are measured as three workloads, each with its own metrics prefixed by its
+ * name: {@code set} evaluates compiled {@code PolicySet}s with deny-overrides, {@code list} the
+ * same policies as plain lists, and {@code firstApplicable} the compiled sets with an algorithm
+ * that stops at the first applicable policy.
+ *
+ * <p>Each workload is measured in several runs and the median of each metric over the runs is
+ * compared, which keeps a single disturbed run from failing the gate.
+ *
+ * <p>Arguments are {@code key=value} pairs: {@code baseline} (the properties file), {@code
+ * tolerance} (allowed relative increase, such as 0.25), {@code runs}, and {@code update=true} to
+ * write the measured metrics as the new baseline instead of comparing.
+ */
+public class LatencyGate {
+
+  /** Metrics measured for each workload. */
+  private static final List<String> WORKLOAD_METRICS =
+      List.of("p50", "p90", "p99", "p99.9", "bytesPerDecision");
+
+  /** Measured workloads, in report order. */
+  private static final List<Workload> WORKLOADS =
+      List.of(
+          new Workload("set", CombiningAlgorithm.DENY_OVERRIDES, false),
+          new Workload("list", CombiningAlgorithm.DENY_OVERRIDES, true),
+          new Workload("firstApplicable", CombiningAlgorithm.FIRST_APPLICABLE, false));
+
+  /** Tracked metrics, in report order. */
+  static final List<String> METRICS =
+      WORKLOADS.stream()
+          .flatMap(workload -> WORKLOAD_METRICS.stream().map(workload::metric))
+          .toList();
+
+  private static final CorpusSpec WORKLOAD = CorpusSpec.parse("seed=7", "policies=2000");
+  private static final int BATCH = 10_000;
+  private static final int WARMUP_BATCHES = 30;
+  private static final int MEASURED_BATCHES = 20;
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  /** Receives decisions so the JIT cannot eliminate the measured work. */
+  private static volatile Object sink;
+
+  public static void main(String[] args) throws IOException {
+    Map<String, String> options = CorpusSpec.options(args);
+    Path baselineFile = Path.of(options.getOrDefault("baseline", "latency-baseline.properties"));
+    double tolerance = Double.parseDouble(options.getOrDefault("tolerance", "0.25"));
+    int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+
+    Map<String, Double> measured = measure(runs);
+    if (Boolean.parseBoolean(options.getOrDefault("update", "false"))) {
+      writeBaseline(baselineFile, measured);
+      System.out.println("Wrote baseline " + baselineFile);
+      measured.forEach((metric, value) -> System.out.printf("%-34s %12.1f%n", metric, value));
+      return;
+    }
+
+    Properties baseline = readBaseline(baselineFile);
+    List<String> regressions = new ArrayList<>();
+    System.out.printf("%-34s %12s %12s %8s%n", "metric", "baseline", "measured", "change");
+    for (String metric : METRICS) {
+      String expected = baseline.getProperty(metric);
+      double value = measured.get(metric);
+      if (expected == null) {
+        System.out.printf("%-34s %12s %12.1f%n", metric, "-", value);
+        continue;
+      }
+      double limit = Double.parseDouble(expected);
+      double change = limit > 0 ? value / limit - 1 : 0;
+      System.out.printf("%-34s %12.1f %12.1f %+7.1f%%%n", metric, limit, value, change * 100);
+      if (value > limit * (1 + tolerance)) {
+        regressions.add(metric);
+      }
+    }
+
+    if (!regressions.isEmpty()) {
+      System.out.printf(
+          "Regression beyond %.0f%% tolerance: %s%n",
+          tolerance * 100,
+          String.join(", ", regressions));
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Measures every workload.
+   *
+   * @param runs Number of measured runs per workload
+   * @return The median of each metric over the runs; latencies in nanoseconds
+   */
+  static Map<String, Double> measure(int runs) {
+    PolicyCorpus corpus = PolicyCorpus.generate(WORKLOAD);
+    Map<String, Double> medians = new LinkedHashMap<>();
+    for (Workload workload : WORKLOADS) {
+      PolicyCorpus.RequestStream requests =
+          workload.plainLists()
+              ? corpus.plainRequests(WORKLOAD.seed())
+              : corpus.requests(WORKLOAD.seed());
+      measure(workload.algorithm(), requests, runs)
+          .forEach((metric, value) -> medians.put(workload.metric(metric), value));
+    }
+    return medians;
+  }
+
+  private static Map<String, Double> measure(
+      CombiningAlgorithm algorithm, PolicyCorpus.RequestStream requests, int runs) {
+    EvaluationContext[] batch = new EvaluationContext[BATCH];
+    for (int i = 0; i < BATCH; i++) {
+      batch[i] = requests.next();
+    }
+    ContextEvaluator evaluator = new ContextEvaluator(new PolicyEvaluator(), algorithm);
+
+    for (int i = 0; i < WARMUP_BATCHES; i++) {
+      run(evaluator, batch, new LatencyHistogram());
+    }
+
+    Map<String, double[]> samples = new LinkedHashMap<>();
+    for (String metric : WORKLOAD_METRICS) {
+      samples.put(metric, new double[runs]);
+    }
+    for (int r = 0; r < runs; r++) {
+      LatencyHistogram latencies = new LatencyHistogram();
+      long threadId = Thread.currentThread().getId();
+      long bytesBefore = THREADS.getThreadAllocatedBytes(threadId);
+      for (int i = 0; i < MEASURED_BATCHES; i++) {
+        run(evaluator, batch, latencies);
+      }
+      long bytes = THREADS.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+      samples.get("p50")[r] = latencies.percentile(50);
+      samples.get("p90")[r] = latencies.percentile(90);
+      samples.get("p99")[r] = latencies.percentile(99);
+      samples.get("p99.9")[r] = latencies.percentile(99.9);
+      samples.get("bytesPerDecision")[r] = (double) bytes / latencies.count();
+    }
+
+    Map<String, Double> medians = new LinkedHashMap<>();
+    samples.forEach(
+        (metric, values) -> {
+          Arrays.sort(values);
+          medians.put(metric, values[values.length / 2]);
+        });
+    return medians;
+  }
+
+  private static void run(
+      ContextEvaluator evaluator, EvaluationContext[] batch, LatencyHistogram latencies) {
+    for (EvaluationContext context : batch) {
+      long start = System.nanoTime();
+      sink = evaluator.evaluate(context);
+      latencies.record(System.nanoTime() - start);
+    }
+  }
+
+  private static Properties readBaseline(Path file) throws IOException {
+    Properties baseline = new Properties();
+    try (Reader reader = Files.newBufferedReader(file)) {
+      baseline.load(reader);
+    }
+    return baseline;
+  }
+
+  private static void writeBaseline(Path file, Map<String, Double> measured) throws IOException {
+    StringBuilder content = new StringBuilder();
+    content.append("# Latency gate baseline; regenerate with ./gradlew latencyGate");
+    content.append(" -PlatencyGate.update=true\n");
+    content.append("# Latencies in nanoseconds per decision, allocation in bytes per decision\n");
+    for (String metric : METRICS) {
+      content.append(metric).append('=');
+      content.append(String.format(Locale.ROOT, "%.1f", measured.get(metric))).append('\n');
+    }
+    try (Writer writer = Files.newBufferedWriter(file)) {
+      writer.write(content.toString());
+    }
+  }
+
+  /**
+   * A measured workload.
+   *
+   * @param name       Prefix of its metrics
+   * @param algorithm  The combining algorithm
+   * @param plainLists Whether contexts return plain lists instead of compiled sets
+   */
+  private record Workload(String name, CombiningAlgorithm algorithm, boolean plainLists) {
+    String metric(String metric) {
+      return name + "." + metric;
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package org.binaryhive.policyengine.benchmark;
+
+/**
+ * Log-linear latency histogram in the style of HdrHistogram: every power of two is split into 128
+ * linear buckets, so recorded values and reported percentiles are within 1% of the true value,
+ * from nanoseconds to hours, in fixed memory. Not thread-safe; use one per thread and {@link
+ * #add(LatencyHistogram) add} them up.
+ */
+public final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 7;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+  private long count;
+  private long max;
+
+  /**
+   * Records one latency.
+   *
+   * @param nanos The latency in nanoseconds; negative values are recorded as 0
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    counts[index(value)]++;
+    count++;
+    max = Math.max(max, value);
+  }
+
+  /**
+   * Adds the recordings of another histogram to this one.
+   *
+   * @param other The histogram to add
+   */
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] += other.counts[i];
+    }
+    count += other.count;
+    max = Math.max(max, other.max);
+  }
+
+  public long count() {
+    return count;
+  }
+
+  public long max() {
+    return max;
+  }
+
+  /**
+   * Gets the latency at or below which the given share of recordings fall.
+   *
+   * @param percentile The percentile, such as 99.9
+   * @return The highest value of the bucket that holds the percentile, or 0 if nothing was recorded
+   */
+  public long percentile(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(highestValue(i), max);
+      }
+    }
+    return max;
+  }
+
+  /** Values below 2 * SUB_BUCKETS map to themselves; above, 128 buckets per power of two. */
+  private static int index(long value) {
+    int highestBit = 63 - Long.numberOfLeadingZeros(value);
+    if (highestBit < SUB_BUCKET_BITS) {
+      return (int) value;
+    }
+    int shift = highestBit - SUB_BUCKET_BITS;
+    return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) - SUB_BUCKETS);
+  }
+
+  private static long highestValue(int index) {
+    if (index < 2 * SUB_BUCKETS) {
+      return index;
+    }
+    int shift = (index >> SUB_BUCKET_BITS) - 1;
+    long lowest = (long) ((index & (SUB_BUCKETS - 1)) + SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,178 @@
+package org.binaryhive.policyengine.benchmark;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import org.binaryhive.policyengine.evaluation.*;
+
+/**
+ * Multi-threaded load test against a generated {@link PolicyCorpus}. Each thread evaluates requests
+ * from its own seeded stream for a warm-up period and then for the measured period, recording the
+ * latency of every decision. The report shows throughput, latency percentiles and the mix of
+ * decisions.
+ *
+ * <p>Arguments are {@code key=value} pairs: the {@link CorpusSpec} components, plus {@code
+ * threads}, {@code warmupSeconds}, {@code seconds}, {@code algorithm} (a {@link
+ * CombiningAlgorithm}) and {@code compile} ({@code none}, {@code diagram}, {@code adaptive},
+ * {@code offheap}, {@code generated} or {@code tiered}):
+ *
+ * <pre>
+ * ./gradlew loadTest -PloadTest.args="policies=20000 threads=8 seconds=30"
+ * </pre>
+ */
+public class LoadHarness {
+
+  public static void main(String[] args) throws InterruptedException {
+    Map<String, String> options = CorpusSpec.options(args);
+    int threads =
+        Integer.parseInt(
+            options.getOrDefault(
+                "threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+    long warmupMillis = millis(options.getOrDefault("warmupSeconds", "5"));
+    long millis = millis(options.getOrDefault("seconds", "10"));
+    CombiningAlgorithm algorithm =
+        CombiningAlgorithm.valueOf(options.getOrDefault("algorithm", "DENY_OVERRIDES"));
+
+    CorpusSpec spec = CorpusSpec.parse(args);
+    PolicyCorpus corpus = PolicyCorpus.generate(spec);
+    switch (options.getOrDefault("compile", "none")) {
+      case "none" -> {}
+      case "diagram" -> corpus.compile(PolicySet::withDecisionDiagram);
+      case "adaptive" ->
+          corpus.compile(set -> set.withAdaptiveConditionOrder().withAdaptivePolicyOrder());
+      case "offheap" -> corpus.compile(PolicySet::withOffHeapStorage);
+      case "generated" -> corpus.compile(PolicySet::withGeneratedCode);
+      case "tiered" -> corpus.compile(PolicySet::withTieredCode);
+      default ->
+          throw new IllegalArgumentException("Unknown compile mode: " + options.get("compile"));
+    }
+    System.out.println(spec);
+
+    ContextEvaluator evaluator = new ContextEvaluator(new PolicyEvaluator(), algorithm);
+    System.out.println(run(corpus, evaluator, threads, warmupMillis, millis));
+  }
+
+  private static long millis(String seconds) {
+    return (long) (Double.parseDouble(seconds) * 1000);
+  }
+
+  /**
+   * Runs the load test.
+   *
+   * @param corpus       The policies and requests
+   * @param evaluator    The evaluator under test
+   * @param threads      Number of evaluating threads
+   * @param warmupMillis Duration of the unmeasured warm-up
+   * @param millis       Duration of the measured period
+   * @return The combined result of all threads
+   */
+  public static Result run(
+      PolicyCorpus corpus, ContextEvaluator evaluator, int threads, long warmupMillis, long millis)
+      throws InterruptedException {
+    Worker[] workers = new Worker[threads];
+    Thread[] running = new Thread[threads];
+    CountDownLatch started = new CountDownLatch(threads);
+    for (int t = 0; t < threads; t++) {
+      workers[t] = new Worker(corpus.requests(corpus.spec().seed() + t + 1), evaluator, started);
+      running[t] = new Thread(workers[t], "load-" + t);
+      running[t].start();
+    }
+    started.await();
+
+    Thread.sleep(warmupMillis);
+    for (Worker worker : workers) {
+      worker.measuring = true;
+    }
+    long start = System.nanoTime();
+    Thread.sleep(millis);
+    for (Worker worker : workers) {
+      worker.stopped = true;
+    }
+    long elapsed = System.nanoTime() - start;
+    for (Thread thread : running) {
+      thread.join();
+    }
+
+    LatencyHistogram latencies = new LatencyHistogram();
+    long[] decisions = new long[PolicyEvaluationResult.values().length];
+    for (Worker worker : workers) {
+      latencies.add(worker.latencies);
+      for (int i = 0; i < decisions.length; i++) {
+        decisions[i] += worker.decisions[i];
+      }
+    }
+    return new Result(threads, elapsed, latencies, decisions);
+  }
+
+  /**
+   * Outcome of a load test.
+   *
+   * @param threads      Number of evaluating threads
+   * @param elapsedNanos Duration of the measured period
+   * @param latencies    Latency of every measured decision
+   * @param decisions    Number of decisions per {@link PolicyEvaluationResult} ordinal
+   */
+  public record Result(
+      int threads, long elapsedNanos, LatencyHistogram latencies, long[] decisions) {
+
+    public double throughput() {
+      return latencies.count() / (elapsedNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder report = new StringBuilder();
+      report.append(
+          String.format(
+              "%d threads: %,d decisions in %.1f s, %,.0f decisions/s%n",
+              threads, latencies.count(), elapsedNanos / 1e9, throughput()));
+      report.append(
+          String.format(
+              "latency ns: p50 %,d  p99 %,d  p99.9 %,d  max %,d%n",
+              latencies.percentile(50),
+              latencies.percentile(99),
+              latencies.percentile(99.9),
+              latencies.max()));
+      for (PolicyEvaluationResult decision : PolicyEvaluationResult.values()) {
+        report.append(
+            String.format(
+                "%-15s %6.2f%%%n",
+                decision,
+                100.0 * decisions[decision.ordinal()] / Math.max(1, latencies.count())));
+      }
+      return report.toString();
+    }
+  }
+
+  /** Evaluates requests until stopped; records only while measuring. */
+  private static final class Worker implements Runnable {
+    private final PolicyCorpus.RequestStream requests;
+    private final ContextEvaluator evaluator;
+    private final CountDownLatch started;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final long[] decisions = new long[PolicyEvaluationResult.values().length];
+    private volatile boolean measuring;
+    private volatile boolean stopped;
+
+    Worker(
+        PolicyCorpus.RequestStream requests, ContextEvaluator evaluator, CountDownLatch started) {
+      this.requests = requests;
+      this.evaluator = evaluator;
+      this.started = started;
+    }
+
+    @Override
+    public void run() {
+      started.countDown();
+      while (!stopped) {
+        EvaluationContext context = requests.next();
+        long start = System.nanoTime();
+        PolicyEvaluationResult result = evaluator.evaluate(context);
+        long elapsed = System.nanoTime() - start;
+        if (measuring) {
+          latencies.record(elapsed);
+          decisions[result.ordinal()]++;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package org.binaryhive.policyengine.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+/**
+ * Single-threaded timing and allocation measurement for a benchmark operation. Allocation is read
+ * from the HotSpot per-thread allocation counter, so it counts every byte the operation allocated.
+ */
+public record Measurement(String name, double nanosPerOp, double bytesPerOp) {
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  /** Receives operation results so the JIT cannot eliminate the measured work. */
+  private static volatile Object sink;
+
+  /**
+   * Runs the operation for a warm-up phase and then measures the given number of iterations.
+   *
+   * @param name       Name shown in the report
+   * @param iterations Number of measured iterations
+   * @param operation  The operation to measure
+   * @return The measurement
+   */
+  public static Measurement measure(String name, int iterations, Supplier<?> operation) {
+    for (int i = 0; i < iterations; i++) {
+      sink = operation.get();
+    }
+
+    long threadId = Thread.currentThread().getId();
+    long bytesBefore = THREADS.getThreadAllocatedBytes(threadId);
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      sink = operation.get();
+    }
+    long elapsed = System.nanoTime() - start;
+    long bytes = THREADS.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+    return new Measurement(name, (double) elapsed / iterations, (double) bytes / iterations);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%-40s %12.1f ns/op %12.1f B/op", name, nanosPerOp, bytesPerOp);
+  }
+}
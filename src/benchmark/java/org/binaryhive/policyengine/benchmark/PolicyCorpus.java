@@ -0,0 +1,224 @@
+package org.binaryhive.policyengine.benchmark;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+import org.binaryhive.policyengine.condition.Condition;
+import org.binaryhive.policyengine.condition.ListCondition;
+import org.binaryhive.policyengine.condition.ValueCondition;
+import org.binaryhive.policyengine.evaluation.EvaluationContext;
+import org.binaryhive.policyengine.evaluation.PolicySet;
+import org.binaryhive.policyengine.model.Attribute;
+import org.binaryhive.policyengine.model.Effect;
+import org.binaryhive.policyengine.model.Operator;
+import org.binaryhive.policyengine.model.Policy;
+
+/**
+ * Seeded synthetic policies and matching requests, shaped by a {@link CorpusSpec}.
+ *
+ * <p>Policies test a random subset of the attributes with {@code EQUALS}, {@code NOT_EQUALS},
+ * {@code IN} and range conditions. Policy values and request values are drawn from the same
+ * Zipf distribution, so popular values are referenced by many policies and appear in many
+ * requests, and a realistic share of requests is decided by more than one policy.
+ */
+public final class PolicyCorpus {
+  private final CorpusSpec spec;
+  private final List<Attribute<String>> stringAttributes = new ArrayList<>();
+  private final List<Attribute<Integer>> integerAttributes = new ArrayList<>();
+  private final List<String> actions = new ArrayList<>();
+  private final Map<String, PolicySet> policiesByAction = new LinkedHashMap<>();
+  private final Zipf values;
+
+  private PolicyCorpus(CorpusSpec spec) {
+    this.spec = spec;
+    this.values = new Zipf(spec.cardinality(), spec.skew());
+    for (int i = 0; i < spec.stringAttributes(); i++) {
+      stringAttributes.add(Attribute.string("s" + i));
+    }
+    for (int i = 0; i < spec.integerAttributes(); i++) {
+      integerAttributes.add(Attribute.integer("n" + i));
+    }
+    for (int i = 0; i < spec.actions(); i++) {
+      actions.add("action-" + i);
+    }
+  }
+
+  /**
+   * Generates the policies of a spec.
+   *
+   * @param spec The corpus shape
+   * @return The corpus
+   */
+  public static PolicyCorpus generate(CorpusSpec spec) {
+    PolicyCorpus corpus = new PolicyCorpus(spec);
+    Random random = new Random(spec.seed());
+    Map<String, List<Policy>> policies = new LinkedHashMap<>();
+    for (String action : corpus.actions) {
+      policies.put(action, new ArrayList<>());
+    }
+    for (int i = 0; i < spec.policies(); i++) {
+      String action = corpus.actions.get(i % spec.actions());
+      policies.get(action).add(corpus.policy(i, random));
+    }
+    policies.forEach((action, list) -> corpus.policiesByAction.put(action, PolicySet.of(list)));
+    return corpus;
+  }
+
+  public CorpusSpec spec() {
+    return spec;
+  }
+
+  public List<String> actions() {
+    return Collections.unmodifiableList(actions);
+  }
+
+  /**
+   * Gets the compiled policies of an action.
+   *
+   * @param action The action
+   * @return The policies of the action
+   */
+  public PolicySet policies(String action) {
+    return policiesByAction.get(action);
+  }
+
+  /**
+   * Replaces the policy set of every action, for example with a compiled variant.
+   *
+   * @param compiler Maps the generated set to the set to evaluate
+   */
+  public void compile(UnaryOperator<PolicySet> compiler) {
+    policiesByAction.replaceAll((action, policySet) -> compiler.apply(policySet));
+  }
+
+  /**
+   * Creates a request stream. Streams with the same seed produce the same requests; a stream is not
+   * thread-safe, so each thread uses its own.
+   *
+   * @param seed Seed of the stream
+   * @return An endless request stream
+   */
+  public RequestStream requests(long seed) {
+    return new RequestStream(new Random(seed), policiesByAction);
+  }
+
+  /**
+   * Creates a request stream whose contexts return the policies as plain lists rather than as
+   * {@link PolicySet}s, so they are evaluated policy by policy. Streams with the same seed produce
+   * the same requests as {@link #requests(long)}.
+   *
+   * @param seed Seed of the stream
+   * @return An endless request stream
+   */
+  public RequestStream plainRequests(long seed) {
+    Map<String, List<Policy>> plain = new LinkedHashMap<>();
+    policiesByAction.forEach((action, policySet) -> plain.put(action, List.copyOf(policySet)));
+    return new RequestStream(new Random(seed), plain);
+  }
+
+  private Policy policy(int index, Random random) {
+    int count =
+        spec.minConditions() + random.nextInt(spec.maxConditions() - spec.minConditions() + 1);
+    Set<String> used = new HashSet<>();
+    List<Condition<?>> conditions = new ArrayList<>();
+    for (int attempt = 0; conditions.size() < count && attempt < count * 4; attempt++) {
+      double kind = random.nextDouble();
+      if (kind < spec.rangeRatio() && !integerAttributes.isEmpty()) {
+        Attribute<Integer> attribute = pick(integerAttributes, random);
+        if (used.add(attribute.getName())) {
+          Operator operator = random.nextBoolean() ? Operator.GREATER_THAN : Operator.LESS_THAN;
+          conditions.add(new ValueCondition<>(attribute, operator, values.sample(random)));
+        }
+      } else if (kind < spec.rangeRatio() + spec.listRatio()) {
+        Attribute<String> attribute = pick(stringAttributes, random);
+        if (used.add(attribute.getName())) {
+          Set<String> list = new LinkedHashSet<>();
+          while (list.size() < Math.min(spec.listSize(), spec.cardinality())) {
+            list.add(value(values.sample(random)));
+          }
+          conditions.add(new ListCondition<>(attribute, Operator.IN, List.copyOf(list)));
+        }
+      } else {
+        Attribute<String> attribute = pick(stringAttributes, random);
+        if (used.add(attribute.getName())) {
+          Operator operator = random.nextInt(10) == 0 ? Operator.NOT_EQUALS : Operator.EQUALS;
+          conditions.add(new ValueCondition<>(attribute, operator, value(values.sample(random))));
+        }
+      }
+    }
+    Effect effect = random.nextDouble() < spec.denyRatio() ? Effect.DENY : Effect.ALLOW;
+    return new Policy("policy-" + index, null, conditions, effect);
+  }
+
+  private static <T> T pick(List<T> list, Random random) {
+    return list.get(random.nextInt(list.size()));
+  }
+
+  private static String value(int rank) {
+    return "v" + rank;
+  }
+
+  /** An endless, seeded stream of requests against the corpus. */
+  public final class RequestStream {
+    private final Random random;
+    private final Map<String, ? extends List<Policy>> policies;
+
+    private RequestStream(Random random, Map<String, ? extends List<Policy>> policies) {
+      this.random = random;
+      this.policies = policies;
+    }
+
+    /**
+     * Generates the next request: a uniformly chosen action and a value for every attribute.
+     *
+     * @return The request context
+     */
+    public EvaluationContext next() {
+      String action = actions.get(random.nextInt(actions.size()));
+      Map<String, Object> attributes =
+          new HashMap<>((stringAttributes.size() + integerAttributes.size()) * 2);
+      for (Attribute<String> attribute : stringAttributes) {
+        attributes.put(attribute.getName(), value(values.sample(random)));
+      }
+      for (Attribute<Integer> attribute : integerAttributes) {
+        attributes.put(attribute.getName(), values.sample(random));
+      }
+      return new CorpusContext(action, attributes, policies.get(action));
+    }
+  }
+
+  /** Zipf distribution over the ranks {@code 0..n-1}, sampled by binary search of the CDF. */
+  private static final class Zipf {
+    private final double[] cumulative;
+
+    Zipf(int n, double exponent) {
+      cumulative = new double[n];
+      double sum = 0;
+      for (int rank = 0; rank < n; rank++) {
+        sum += 1 / Math.pow(rank + 1, exponent);
+        cumulative[rank] = sum;
+      }
+      for (int rank = 0; rank < n; rank++) {
+        cumulative[rank] /= sum;
+      }
+    }
+
+    int sample(Random random) {
+      int index = Arrays.binarySearch(cumulative, random.nextDouble());
+      return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+  }
+
+  private static final class CorpusContext extends EvaluationContext {
+    private final List<Policy> policies;
+
+    CorpusContext(String action, Map<String, Object> attributes, List<Policy> policies) {
+      super(action, attributes);
+      this.policies = policies;
+    }
+
+    @Override
+    public List<Policy> policies() {
+      return policies;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package org.binaryhive.policyengine.condition;
+
+/**
+ * Bloom filter over strings. It never reports a false negative, and with {@value #BITS_PER_ENTRY}
+ * bits per entry and {@value #HASHES} hash functions about one lookup in a hundred of an absent
+ * string is a false positive.
+ */
+final class BloomFilter {
+  static final int BITS_PER_ENTRY = 10;
+  static final int HASHES = 7;
+
+  private final long[] bits;
+  private final long bitCount;
+
+  BloomFilter(int expectedEntries) {
+    long size = Math.max(64, (long) expectedEntries * BITS_PER_ENTRY);
+    this.bits = new long[(int) ((size + 63) >>> 6)];
+    this.bitCount = (long) bits.length << 6;
+  }
+
+  void add(CharSequence s) {
+    long h1 = hash(s);
+    long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+    for (int i = 0; i < HASHES; i++) {
+      long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+      bits[(int) (bit >>> 6)] |= 1L << bit;
+    }
+  }
+
+  boolean mightContain(CharSequence s) {
+    long h1 = hash(s);
+    long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+    for (int i = 0; i < HASHES; i++) {
+      long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+      if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  long sizeInBytes() {
+    return (long) bits.length * Long.BYTES;
+  }
+
+  /** 64-bit FNV-1a over the characters, finished with a mixing step for better bit spread. */
+  private static long hash(CharSequence s) {
+    long h = 0xCBF29CE484222325L;
+    for (int i = 0; i < s.length(); i++) {
+      h = (h ^ s.charAt(i)) * 0x100000001B3L;
+    }
+    return mix(h);
+  }
+
+  private static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
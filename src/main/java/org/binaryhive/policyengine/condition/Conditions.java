@@ -3,6 +3,7 @@ package org.binaryhive.policyengine.condition;
 import org.binaryhive.policyengine.model.Attribute;
 import org.binaryhive.policyengine.model.Operator;
 
+import java.util.Collection;
 import java.util.List;
 
 public class Conditions {
@@ -22,4 +23,21 @@ public class Conditions {
         return new ListCondition<>(attribute, Operator.NOT_IN, values);
     }
 
+    public static Condition<String> denyList(
+            Attribute<String> attribute, Collection<String> blocked) {
+        return DenyListCondition.of(attribute, blocked);
+    }
+
+    public static Condition<String> startsWith(Attribute<String> attribute, String prefix) {
+        return new ValueCondition<>(attribute, Operator.STARTS_WITH, prefix);
+    }
+
+    public static Condition<String> endsWith(Attribute<String> attribute, String suffix) {
+        return new ValueCondition<>(attribute, Operator.ENDS_WITH, suffix);
+    }
+
+    public static Condition<String> matches(Attribute<String> attribute, String regex) {
+        return new ValueCondition<>(attribute, Operator.MATCHES, regex);
+    }
+
 }
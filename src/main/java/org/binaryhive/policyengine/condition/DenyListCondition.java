@@ -0,0 +1,150 @@
+package org.binaryhive.policyengine.condition;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import org.binaryhive.policyengine.model.Attribute;
+import org.binaryhive.policyengine.model.Operator;
+
+/**
+ * {@link Operator#NOT_IN} condition for very large deny-lists of strings, such as blocked ids.
+ *
+ * <p>Entries are kept as sorted UTF-8 bytes in one array, which takes the encoded length of an
+ * entry plus four bytes for its offset, instead of a {@code String} object per entry. A {@link
+ * BloomFilter} in front of it answers most lookups of values that are not blocked without touching
+ * the entries; only filter hits run the binary search, so the result is always exact.
+ */
+public class DenyListCondition implements Condition<String> {
+  private final Attribute<String> attribute;
+  private final BloomFilter filter;
+  private final byte[] entries;
+  /** Start of each entry in {@link #entries}, plus the end of the last one. */
+  private final int[] offsets;
+
+  private DenyListCondition(
+      Attribute<String> attribute, BloomFilter filter, byte[] entries, int[] offsets) {
+    this.attribute = attribute;
+    this.filter = filter;
+    this.entries = entries;
+    this.offsets = offsets;
+  }
+
+  /**
+   * Creates a condition that is met when the context value is not one of the blocked values.
+   *
+   * @param attribute The attribute to test
+   * @param blocked   The blocked values; duplicates are ignored
+   * @return The condition
+   */
+  public static DenyListCondition of(Attribute<String> attribute, Collection<String> blocked) {
+    List<byte[]> encoded = new ArrayList<>(blocked.size());
+    for (String value : blocked) {
+      if (!isWellFormed(Objects.requireNonNull(value, "blocked value"))) {
+        throw new IllegalArgumentException("Blocked value has an unpaired surrogate: " + value);
+      }
+      encoded.add(value.getBytes(StandardCharsets.UTF_8));
+    }
+    encoded.sort(Arrays::compareUnsigned);
+
+    List<byte[]> distinct = new ArrayList<>(encoded.size());
+    for (byte[] value : encoded) {
+      if (distinct.isEmpty() || !Arrays.equals(value, distinct.get(distinct.size() - 1))) {
+        distinct.add(value);
+      }
+    }
+
+    int[] offsets = new int[distinct.size() + 1];
+    for (int i = 0; i < distinct.size(); i++) {
+      offsets[i + 1] = offsets[i] + distinct.get(i).length;
+    }
+    byte[] entries = new byte[offsets[distinct.size()]];
+    BloomFilter filter = new BloomFilter(distinct.size());
+    for (int i = 0; i < distinct.size(); i++) {
+      System.arraycopy(distinct.get(i), 0, entries, offsets[i], distinct.get(i).length);
+    }
+    for (String value : blocked) {
+      filter.add(value);
+    }
+    return new DenyListCondition(attribute, filter, entries, offsets);
+  }
+
+  @Override
+  public boolean evaluate(String contextValue) {
+    if (contextValue == null) {
+      return true;
+    }
+    return !isBlocked(contextValue);
+  }
+
+  /**
+   * Checks whether a value is on the deny-list.
+   *
+   * @param value The value to look up
+   * @return true if the value is blocked
+   */
+  public boolean isBlocked(String value) {
+    return filter.mightContain(value)
+        && isWellFormed(value)
+        && contains(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Gets the number of distinct blocked values.
+   *
+   * @return The number of entries
+   */
+  public int size() {
+    return offsets.length - 1;
+  }
+
+  /**
+   * Gets the approximate heap used by the filter and the entries, for capacity planning.
+   *
+   * @return The size in bytes
+   */
+  public long sizeInBytes() {
+    return filter.sizeInBytes() + entries.length + (long) offsets.length * Integer.BYTES;
+  }
+
+  /** Unpaired surrogates do not survive UTF-8 encoding, so they would break exact comparison. */
+  private static boolean isWellFormed(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (Character.isHighSurrogate(c)
+          && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean contains(byte[] value) {
+    int low = 0;
+    int high = size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp =
+          Arrays.compareUnsigned(entries, offsets[mid], offsets[mid + 1], value, 0, value.length);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public Attribute<String> getAttribute() {
+    return attribute;
+  }
+
+  @Override
+  public Operator getOperator() {
+    return Operator.NOT_IN;
+  }
+}
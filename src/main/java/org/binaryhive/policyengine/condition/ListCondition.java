@@ -1,14 +1,18 @@
 package org.binaryhive.policyengine.condition;
 
 import java.util.List;
+import java.util.Objects;
 import lombok.Getter;
 import org.binaryhive.policyengine.model.Attribute;
+import org.binaryhive.policyengine.model.DelimitedValues;
 import org.binaryhive.policyengine.model.Operator;
 
 public class ListCondition<T> implements Condition<T> {
   private final Attribute<T> attribute;
   private final Operator operator;
   @Getter private final List<T> values;
+  private int hash;
+  private DelimitedValues.ValueLookup lookup;
 
   public ListCondition(Attribute<T> attribute, Operator operator, List<T> values) {
     // Validate operator type
@@ -40,6 +44,28 @@ public class ListCondition<T> implements Condition<T> {
     return operator == Operator.IN ? contains : !contains;
   }
 
+  /**
+   * Evaluates this condition for a list attribute whose context value is a comma-separated string,
+   * testing membership over the characters without converting the string into a list first.
+   *
+   * @param delimited The comma-separated context value
+   * @return The same result as evaluating the converted list
+   * @throws IllegalStateException if the attribute is not a list attribute
+   */
+  public boolean evaluateDelimited(CharSequence delimited) {
+    if (attribute.getElementType() == null) {
+      throw new IllegalStateException("Attribute " + attribute.getName() + " is not a list");
+    }
+    DelimitedValues.ValueLookup valueLookup = lookup;
+    if (valueLookup == null) {
+      valueLookup = DelimitedValues.ValueLookup.of(values);
+      lookup = valueLookup;
+    }
+    boolean contains =
+        DelimitedValues.containsAny(delimited, attribute.getElementType(), valueLookup);
+    return operator == Operator.IN ? contains : !contains;
+  }
+
   @Override
   public Attribute<T> getAttribute() {
     return attribute;
@@ -49,4 +75,34 @@ public class ListCondition<T> implements Condition<T> {
   public Operator getOperator() {
     return operator;
   }
+
+  /**
+   * Two list conditions are equal when they test attributes that convert alike, as decided by
+   * {@link Attribute#convertsLike}, with the same operator against equal value lists, so identical
+   * conditions from different policies can be shared.
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ListCondition<?> other)) {
+      return false;
+    }
+    return operator == other.operator
+        && hashCode() == other.hashCode()
+        && attribute.convertsLike(other.attribute)
+        && Objects.equals(values, other.values);
+  }
+
+  @Override
+  public int hashCode() {
+    // Value lists can be large, so the hash is computed once and cached
+    int h = hash;
+    if (h == 0) {
+      h = Objects.hash(attribute.getName(), operator, values);
+      hash = h;
+    }
+    return h;
+  }
 }
@@ -1,6 +1,7 @@
 package org.binaryhive.policyengine.condition;
 
 import java.util.Objects;
+import java.util.regex.Pattern;
 import lombok.Getter;
 import org.binaryhive.policyengine.model.Attribute;
 import org.binaryhive.policyengine.model.Operator;
@@ -11,13 +12,24 @@ public class ValueCondition<T> implements Condition<T> {
   private final Operator operator;
   private final T value;
 
+  /** The compiled expression of a {@link Operator#MATCHES} condition, otherwise null. */
+  private final Pattern pattern;
+
   public ValueCondition(Attribute<T> attribute, Operator operator, T value) {
     if (operator == Operator.IN || operator == Operator.NOT_IN) {
       throw new IllegalArgumentException("Use ListCondition for IN/NOT_IN operators");
     }
+    if ((operator == Operator.STARTS_WITH
+            || operator == Operator.ENDS_WITH
+            || operator == Operator.MATCHES)
+        && !(value instanceof String)) {
+      throw new IllegalArgumentException(operator + " requires a String value");
+    }
     this.attribute = attribute;
     this.operator = operator;
     this.value = value;
+    // Compiled once here; an invalid expression fails when the condition is built
+    this.pattern = operator == Operator.MATCHES ? Pattern.compile((String) value) : null;
   }
 
   public boolean evaluate(T contextValue) {
@@ -40,7 +52,49 @@ public class ValueCondition<T> implements Condition<T> {
         }
         throw new IllegalArgumentException("Cannot compare with LESS_THAN");
       }
+      case STARTS_WITH -> {
+        if (contextValue instanceof String string) {
+          yield string.startsWith((String) value);
+        }
+        throw new IllegalArgumentException("Cannot compare with STARTS_WITH");
+      }
+      case ENDS_WITH -> {
+        if (contextValue instanceof String string) {
+          yield string.endsWith((String) value);
+        }
+        throw new IllegalArgumentException("Cannot compare with ENDS_WITH");
+      }
+      case MATCHES -> {
+        if (contextValue instanceof String string) {
+          yield pattern.matcher(string).matches();
+        }
+        throw new IllegalArgumentException("Cannot compare with MATCHES");
+      }
       default -> throw new IllegalArgumentException("Use ListCondition for IN/NOT_IN operators");
     };
   }
+
+  /**
+   * Two value conditions are equal when they test attributes that convert alike, as decided by
+   * {@link Attribute#convertsLike}, with the same operator and value, so identical conditions from
+   * different policies can be shared. Attributes of the same name with different converters or
+   * validators can decide the same value differently, so their conditions are kept apart.
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ValueCondition<?> other)) {
+      return false;
+    }
+    return operator == other.operator
+        && attribute.convertsLike(other.attribute)
+        && Objects.equals(value, other.value);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(attribute.getName(), operator, value);
+  }
 }
@@ -0,0 +1,126 @@
+package org.binaryhive.policyengine.evaluation;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLongArray;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Condition order of a {@link PolicySet} that adapts to the observed selectivity and cost of each
+ * condition.
+ *
+ * <p>One request in every {@code sampleInterval} is sampled on average: each condition it evaluates
+ * is timed and its result counted. After every {@code reorderInterval} sampled requests, the
+ * {@link AdaptiveSampler} sorts the conditions of each policy on the executor, by expected cost
+ * per failure, so cheap conditions that usually fail are tested first. Indexed conditions stay at
+ * the front, as one index lookup decides all of them. Conditions that were never observed keep
+ * their relative order behind the observed ones. Counts are halved after each reordering, so the
+ * order follows changes in traffic.
+ *
+ * <p>The order of all policies is replaced as one immutable snapshot, so concurrent requests see
+ * either the old or the new order of a policy, never a partial one. Since a policy applies only if
+ * all its conditions hold, any order gives the same results.
+ */
+@Log4j2
+final class AdaptiveConditionOrder {
+  private final int[][] initialOrder;
+  private final int[] indexedCount;
+  private final AdaptiveSampler sampler;
+  private final AtomicLongArray evaluations;
+  private final AtomicLongArray failures;
+  private final AtomicLongArray nanos;
+
+  private volatile int[][] order;
+
+  /**
+   * @param initialOrder    The condition ids of each policy, indexed conditions first
+   * @param indexes         The condition indexes of the set
+   * @param conditionCount  The number of distinct conditions
+   * @param sampleInterval  Sample one request in this many on average
+   * @param reorderInterval Reorder after this many sampled requests
+   * @param executor        Runs the reordering
+   */
+  AdaptiveConditionOrder(
+      int[][] initialOrder,
+      ConditionIndexes indexes,
+      int conditionCount,
+      int sampleInterval,
+      int reorderInterval,
+      Executor executor) {
+    this.sampler = new AdaptiveSampler(sampleInterval, reorderInterval, executor, this::reorder);
+    this.initialOrder = initialOrder;
+    this.indexedCount = new int[initialOrder.length];
+    for (int i = 0; i < initialOrder.length; i++) {
+      while (indexedCount[i] < initialOrder[i].length
+          && indexes.indexOf(initialOrder[i][indexedCount[i]]) >= 0) {
+        indexedCount[i]++;
+      }
+    }
+    this.evaluations = new AtomicLongArray(conditionCount);
+    this.failures = new AtomicLongArray(conditionCount);
+    this.nanos = new AtomicLongArray(conditionCount);
+    this.order = initialOrder;
+  }
+
+  int sampleInterval() {
+    return sampler.sampleInterval();
+  }
+
+  int reorderInterval() {
+    return sampler.reorderInterval();
+  }
+
+  Executor executor() {
+    return sampler.executor();
+  }
+
+  int[] conditionIds(int policyIndex) {
+    return order[policyIndex];
+  }
+
+  /**
+   * Called once per request; decides whether its conditions are sampled.
+   *
+   * @return true if the request should record its condition evaluations
+   */
+  boolean sampleRequest() {
+    return sampler.sampleRequest();
+  }
+
+  void record(int conditionId, boolean met, long elapsedNanos) {
+    evaluations.incrementAndGet(conditionId);
+    if (!met) {
+      failures.incrementAndGet(conditionId);
+    }
+    nanos.addAndGet(conditionId, elapsedNanos);
+  }
+
+  /** Sorts the conditions of each policy by rank and publishes the new order. */
+  void reorder() {
+    double[] ranks = new double[evaluations.length()];
+    for (int id = 0; id < ranks.length; id++) {
+      // Expected cost per failure
+      ranks[id] = AdaptiveSampler.rank(evaluations.get(id), nanos.get(id), failures.get(id));
+    }
+    AdaptiveSampler.halve(evaluations, failures, nanos);
+
+    int[][] reordered = new int[initialOrder.length][];
+    for (int i = 0; i < initialOrder.length; i++) {
+      int[] conditionIds = initialOrder[i];
+      int indexed = indexedCount[i];
+      Integer[] rest = new Integer[conditionIds.length - indexed];
+      for (int j = 0; j < rest.length; j++) {
+        rest[j] = conditionIds[indexed + j];
+      }
+      // Stable, so unobserved conditions keep their declaration order
+      Arrays.sort(rest, Comparator.comparingDouble(id -> ranks[id]));
+      int[] policyOrder = Arrays.copyOf(conditionIds, conditionIds.length);
+      for (int j = 0; j < rest.length; j++) {
+        policyOrder[indexed + j] = rest[j];
+      }
+      reordered[i] = policyOrder;
+    }
+    order = reordered;
+    log.debug("Reordered conditions of {} policies", reordered.length);
+  }
+}
@@ -0,0 +1,135 @@
+package org.binaryhive.policyengine.evaluation;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLongArray;
+import lombok.extern.log4j.Log4j2;
+import org.binaryhive.policyengine.model.Effect;
+
+/**
+ * Policy evaluation order of a {@link PolicySet} that adapts to how often each policy decides a
+ * request and what it costs.
+ *
+ * <p>Requests are sampled and reordering is scheduled by an {@link AdaptiveSampler}, as for {@link
+ * AdaptiveConditionOrder}: each policy a sampled request evaluates is timed and its result counted.
+ * Each reordering publishes two orders: one for algorithms that stop at a DENY and one for
+ * algorithms that stop at an ALLOW. Each sorts policies by expected cost per decisive result, so
+ * cheap policies that usually decide run first.
+ *
+ * <p>Policies are only reordered among policies of the same priority, and policies that were never
+ * observed keep their relative order behind the observed ones. For an algorithm whose decisive
+ * result does not depend on which policy produced it, any order within a priority gives the same
+ * decision. Orders are published as immutable snapshots through a volatile field, and counts are
+ * halved after each reordering so the order follows changes in traffic.
+ */
+@Log4j2
+final class AdaptivePolicyOrder {
+  private final int[] baseOrder;
+  private final int[] priorities;
+  private final AdaptiveSampler sampler;
+  private final AtomicLongArray evaluations;
+  private final AtomicLongArray allows;
+  private final AtomicLongArray denies;
+  private final AtomicLongArray nanos;
+
+  private volatile int[] denyFirst;
+  private volatile int[] allowFirst;
+
+  /**
+   * @param baseOrder       Policy indexes by descending priority
+   * @param priorities      The priority of each policy
+   * @param sampleInterval  Sample one request in this many on average
+   * @param reorderInterval Reorder after this many sampled requests
+   * @param executor        Runs the reordering
+   */
+  AdaptivePolicyOrder(
+      int[] baseOrder,
+      int[] priorities,
+      int sampleInterval,
+      int reorderInterval,
+      Executor executor) {
+    this.sampler = new AdaptiveSampler(sampleInterval, reorderInterval, executor, this::reorder);
+    this.baseOrder = baseOrder;
+    this.priorities = priorities;
+    this.evaluations = new AtomicLongArray(baseOrder.length);
+    this.allows = new AtomicLongArray(baseOrder.length);
+    this.denies = new AtomicLongArray(baseOrder.length);
+    this.nanos = new AtomicLongArray(baseOrder.length);
+    this.denyFirst = baseOrder;
+    this.allowFirst = baseOrder;
+  }
+
+  int sampleInterval() {
+    return sampler.sampleInterval();
+  }
+
+  int reorderInterval() {
+    return sampler.reorderInterval();
+  }
+
+  Executor executor() {
+    return sampler.executor();
+  }
+
+  /**
+   * Gets the current order for an algorithm that stops at the given effect.
+   *
+   * @param decisive The effect that ends evaluation
+   * @return Policy indexes in evaluation order; must not be modified
+   */
+  int[] evaluationOrder(Effect decisive) {
+    return decisive == Effect.DENY ? denyFirst : allowFirst;
+  }
+
+  /**
+   * Called once per request; decides whether its policy evaluations are sampled.
+   *
+   * @return true if the request should record its policy evaluations
+   */
+  boolean sampleRequest() {
+    return sampler.sampleRequest();
+  }
+
+  void record(int policyIndex, PolicyEvaluationResult result, long elapsedNanos) {
+    evaluations.incrementAndGet(policyIndex);
+    if (result == PolicyEvaluationResult.ALLOW) {
+      allows.incrementAndGet(policyIndex);
+    } else if (result == PolicyEvaluationResult.DENY) {
+      denies.incrementAndGet(policyIndex);
+    }
+    nanos.addAndGet(policyIndex, elapsedNanos);
+  }
+
+  /** Sorts the policies of each priority by rank and publishes the new orders. */
+  void reorder() {
+    double[] denyRanks = new double[baseOrder.length];
+    double[] allowRanks = new double[baseOrder.length];
+    for (int i = 0; i < baseOrder.length; i++) {
+      // Expected cost per decisive result
+      denyRanks[i] = AdaptiveSampler.rank(evaluations.get(i), nanos.get(i), denies.get(i));
+      allowRanks[i] = AdaptiveSampler.rank(evaluations.get(i), nanos.get(i), allows.get(i));
+    }
+    AdaptiveSampler.halve(evaluations, allows, denies, nanos);
+    denyFirst = sortWithinPriorities(denyRanks);
+    allowFirst = sortWithinPriorities(allowRanks);
+    log.debug("Reordered {} policies", baseOrder.length);
+  }
+
+  private int[] sortWithinPriorities(double[] ranks) {
+    Integer[] order = new Integer[baseOrder.length];
+    for (int k = 0; k < order.length; k++) {
+      order[k] = baseOrder[k];
+    }
+    int start = 0;
+    while (start < order.length) {
+      int end = start + 1;
+      while (end < order.length && priorities[order[end]] == priorities[order[start]]) {
+        end++;
+      }
+      // Stable, so unobserved policies keep their list order
+      Arrays.sort(order, start, end, Comparator.comparingDouble(i -> ranks[i]));
+      start = end;
+    }
+    return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+  }
+}
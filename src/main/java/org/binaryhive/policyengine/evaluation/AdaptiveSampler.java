@@ -0,0 +1,117 @@
+package org.binaryhive.policyengine.evaluation;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Picks the sampled requests of an adaptive order and schedules its reordering.
+ *
+ * <p>Each request is sampled with probability {@code 1 / sampleInterval}, drawn from the calling
+ * thread's {@link ThreadLocalRandom}, so unsampled requests touch no shared state. Only sampled
+ * requests increment the shared sample counter, and every {@code reorderInterval}-th of them
+ * submits a reordering to the executor. At most one reordering is queued or running at a time;
+ * requests never wait for one, and keep the current order until the new one is published.
+ *
+ * <p>The statistics themselves are kept by the adaptive order. {@link #rank} and {@link #halve}
+ * are shared by the orders, so they weigh observations the same way.
+ */
+@Log4j2
+final class AdaptiveSampler {
+  private final int sampleInterval;
+  private final int reorderInterval;
+  private final Executor executor;
+  private final Runnable reorder;
+
+  private final AtomicLong samples = new AtomicLong();
+  private final AtomicBoolean reordering = new AtomicBoolean();
+
+  /**
+   * @param sampleInterval  Sample one request in this many on average
+   * @param reorderInterval Reorder after this many sampled requests
+   * @param executor        Runs the reordering
+   * @param reorder         Sorts by the statistics and publishes the new order
+   */
+  AdaptiveSampler(int sampleInterval, int reorderInterval, Executor executor, Runnable reorder) {
+    if (sampleInterval < 1 || reorderInterval < 1) {
+      throw new IllegalArgumentException(
+          "Intervals must be positive: " + sampleInterval + ", " + reorderInterval);
+    }
+    this.sampleInterval = sampleInterval;
+    this.reorderInterval = reorderInterval;
+    this.executor = executor;
+    this.reorder = reorder;
+  }
+
+  int sampleInterval() {
+    return sampleInterval;
+  }
+
+  int reorderInterval() {
+    return reorderInterval;
+  }
+
+  Executor executor() {
+    return executor;
+  }
+
+  /**
+   * Called once per request; decides whether it is sampled. Every {@code reorderInterval}-th
+   * sampled request schedules a reordering.
+   *
+   * @return true if the request should record its evaluations
+   */
+  boolean sampleRequest() {
+    if (sampleInterval > 1 && ThreadLocalRandom.current().nextInt(sampleInterval) != 0) {
+      return false;
+    }
+    if (samples.incrementAndGet() % reorderInterval == 0 && reordering.compareAndSet(false, true)) {
+      try {
+        executor.execute(this::reorder);
+      } catch (RejectedExecutionException e) {
+        log.debug("Reordering rejected: {}", e.getMessage());
+        reordering.set(false);
+      }
+    }
+    return true;
+  }
+
+  private void reorder() {
+    try {
+      reorder.run();
+    } finally {
+      reordering.set(false);
+    }
+  }
+
+  /**
+   * Expected cost per hit, the mean cost divided by the hit rate; lower ranks go first.
+   *
+   * @param evaluations The number of sampled evaluations
+   * @param nanos       Their total time
+   * @param hits        The number of evaluations with the wanted outcome
+   * @return The rank, or infinity if nothing was observed
+   */
+  static double rank(long evaluations, long nanos, long hits) {
+    if (evaluations == 0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double meanNanos = Math.max(1, nanos) / (double) evaluations;
+    // Smoothed, so an entry without hits in the sample still ranks finitely
+    double hitRate = (hits + 1) / (double) (evaluations + 2);
+    return meanNanos / hitRate;
+  }
+
+  /** Halves every count, so older observations weigh less with each reordering. */
+  static void halve(AtomicLongArray... counts) {
+    for (AtomicLongArray array : counts) {
+      for (int i = 0; i < array.length(); i++) {
+        array.getAndUpdate(i, count -> count / 2);
+      }
+    }
+  }
+}
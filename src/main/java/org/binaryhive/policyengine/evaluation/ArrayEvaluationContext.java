@@ -0,0 +1,252 @@
+package org.binaryhive.policyengine.evaluation;
+
+import java.util.*;
+import org.binaryhive.policyengine.model.Policy;
+
+/**
+ * A compact evaluation context that stores attributes in the slots of a {@link PolicySet}'s
+ * {@link AttributeRegistry} and actions in a small array.
+ *
+ * <p>Instances are created and refilled through a {@link Builder}, which is meant to be kept per
+ * thread and reset for every request, so building a context does not allocate any hash structures.
+ * {@link ContextEvaluator} reads the slots directly without going through the attribute map.
+ *
+ * <pre>{@code
+ * ThreadLocal<ArrayEvaluationContext.Builder> builders =
+ *     ThreadLocal.withInitial(() -> ArrayEvaluationContext.builder(policySet));
+ *
+ * EvaluationContext context =
+ *     builders.get().reset().action("read").attribute("role", user.getRole()).build();
+ * }</pre>
+ */
+public final class ArrayEvaluationContext extends EvaluationContext {
+
+  private final PolicySet policySet;
+  private final Object[] values;
+  private final ActionSet actionSet;
+  private final SlotMap slotMap;
+
+  private ArrayEvaluationContext(PolicySet policySet, ActionSet actionSet, SlotMap slotMap) {
+    super(actionSet, slotMap, Storage.SHARED);
+    this.policySet = policySet;
+    this.values = slotMap.values;
+    this.actionSet = actionSet;
+    this.slotMap = slotMap;
+  }
+
+  /**
+   * Creates a reusable builder for contexts evaluated against the given policy set.
+   *
+   * @param policySet The policies the contexts are evaluated against
+   * @return A new builder
+   */
+  public static Builder builder(PolicySet policySet) {
+    return new Builder(policySet);
+  }
+
+  @Override
+  public List<Policy> policies() {
+    return policySet;
+  }
+
+  Object[] values() {
+    return values;
+  }
+
+  /**
+   * Builds {@link ArrayEvaluationContext} instances. A builder owns a single context instance:
+   * {@link #build()} returns it and {@link #reset()} clears it for the next request, so a context
+   * must not be used after its builder was reset. Builders are not thread-safe.
+   */
+  public static final class Builder {
+    private final AttributeRegistry attributes;
+    private final ArrayEvaluationContext context;
+
+    private Builder(PolicySet policySet) {
+      this.attributes = policySet.attributes();
+      this.context =
+          new ArrayEvaluationContext(
+              policySet, new ActionSet(), new SlotMap(attributes, new Object[attributes.size()]));
+    }
+
+    /**
+     * Clears all actions and attributes so the builder can be reused.
+     *
+     * @return This builder
+     */
+    public Builder reset() {
+      context.actionSet.clear();
+      context.slotMap.clear();
+      return this;
+    }
+
+    /**
+     * Adds an action to evaluate.
+     *
+     * @param action The action
+     * @return This builder
+     */
+    public Builder action(String action) {
+      context.actionSet.add(action);
+      return this;
+    }
+
+    /**
+     * Sets an attribute by name. Attributes not referenced by any policy are kept aside so they
+     * remain visible through {@link EvaluationContext#getAttribute(String)}.
+     *
+     * @param name  The attribute name
+     * @param value The attribute value
+     * @return This builder
+     */
+    public Builder attribute(String name, Object value) {
+      int slot = attributes.slot(name);
+      if (slot >= 0) {
+        context.values[slot] = value;
+      } else {
+        context.slotMap.putExtra(name, value);
+      }
+      return this;
+    }
+
+    /**
+     * Sets an attribute by its slot in the policy set's {@link AttributeRegistry}. Callers can
+     * resolve slots once and skip the name lookup on every request.
+     *
+     * @param slot  The attribute slot
+     * @param value The attribute value
+     * @return This builder
+     */
+    public Builder attribute(int slot, Object value) {
+      context.values[slot] = value;
+      return this;
+    }
+
+    /**
+     * Returns the context filled by this builder.
+     *
+     * @return The evaluation context
+     */
+    public ArrayEvaluationContext build() {
+      return context;
+    }
+  }
+
+  /** Small set of actions backed by an array; contexts rarely carry more than a few actions. */
+  private static final class ActionSet extends AbstractSet<String> {
+    private String[] actions = new String[4];
+    private int count;
+
+    @Override
+    public boolean add(String action) {
+      if (contains(action)) {
+        return false;
+      }
+      if (count == actions.length) {
+        actions = Arrays.copyOf(actions, count * 2);
+      }
+      actions[count++] = action;
+      return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      for (int i = 0; i < count; i++) {
+        if (actions[i].equals(o)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void clear() {
+      Arrays.fill(actions, 0, count, null);
+      count = 0;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      return new Iterator<>() {
+        private int next;
+
+        @Override
+        public boolean hasNext() {
+          return next < count;
+        }
+
+        @Override
+        public String next() {
+          if (next >= count) {
+            throw new NoSuchElementException();
+          }
+          return actions[next++];
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return count;
+    }
+  }
+
+  /** Read-only map view over the attribute slots, plus any attributes outside the registry. */
+  private static final class SlotMap extends AbstractMap<String, Object> {
+    private final AttributeRegistry attributes;
+    private final Object[] values;
+    private Map<String, Object> extra;
+
+    SlotMap(AttributeRegistry attributes, Object[] values) {
+      this.attributes = attributes;
+      this.values = values;
+    }
+
+    void putExtra(String name, Object value) {
+      if (extra == null) {
+        extra = new HashMap<>();
+      }
+      extra.put(name, value);
+    }
+
+    @Override
+    public Object get(Object key) {
+      int slot = key instanceof String name ? attributes.slot(name) : -1;
+      if (slot >= 0) {
+        return values[slot];
+      }
+      return extra != null ? extra.get(key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return get(key) != null;
+    }
+
+    @Override
+    public void clear() {
+      Arrays.fill(values, null);
+      if (extra != null) {
+        extra.clear();
+      }
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      Map<String, Object> entries = new LinkedHashMap<>();
+      for (int slot = 0; slot < values.length; slot++) {
+        if (values[slot] != null) {
+          entries.put(attributes.name(slot), values[slot]);
+        }
+      }
+      if (extra != null) {
+        extra.forEach((name, value) -> {
+          if (value != null) {
+            entries.put(name, value);
+          }
+        });
+      }
+      return Collections.unmodifiableSet(entries.entrySet());
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package org.binaryhive.policyengine.evaluation;
+
+import java.util.*;
+
+/**
+ * Symbol table that assigns every attribute name referenced by a {@link PolicySet} a dense integer
+ * slot. Compiled conditions read their context value by slot index instead of looking the name up
+ * in a map for every condition.
+ */
+public final class AttributeRegistry {
+
+  private final Map<String, Integer> slots;
+  private final String[] names;
+
+  private AttributeRegistry(Map<String, Integer> slots, String[] names) {
+    this.slots = slots;
+    this.names = names;
+  }
+
+  /**
+   * Creates a registry with one slot per distinct name, numbered in iteration order.
+   *
+   * @param names The attribute names to register
+   * @return The attribute registry
+   */
+  public static AttributeRegistry of(Collection<String> names) {
+    Map<String, Integer> slots = new LinkedHashMap<>();
+    for (String name : names) {
+      slots.putIfAbsent(name, slots.size());
+    }
+    return new AttributeRegistry(slots, slots.keySet().toArray(new String[0]));
+  }
+
+  /**
+   * Gets the slot assigned to an attribute name.
+   *
+   * @param name The attribute name
+   * @return The slot, or -1 if no policy in the set references the attribute
+   */
+  public int slot(String name) {
+    Integer slot = slots.get(name);
+    return slot != null ? slot : -1;
+  }
+
+  /**
+   * Gets the attribute name assigned to a slot.
+   *
+   * @param slot The slot
+   * @return The attribute name
+   */
+  public String name(int slot) {
+    return names[slot];
+  }
+
+  /**
+   * Gets the number of registered attributes.
+   *
+   * @return The slot count
+   */
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * Projects a map-based context onto slots. Attributes that are not registered are ignored.
+   *
+   * @param context The context attributes map
+   * @return An array holding the value of each registered attribute at its slot
+   */
+  public Object[] project(Map<String, Object> context) {
+    Object[] values = new Object[names.length];
+    for (int slot = 0; slot < names.length; slot++) {
+      values[slot] = context.get(names[slot]);
+    }
+    return values;
+  }
+}
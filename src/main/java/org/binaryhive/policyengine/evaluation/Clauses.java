@@ -0,0 +1,170 @@
+package org.binaryhive.policyengine.evaluation;
+
+import java.util.*;
+import org.binaryhive.policyengine.condition.Condition;
+import org.binaryhive.policyengine.condition.ListCondition;
+import org.binaryhive.policyengine.condition.ValueCondition;
+import org.binaryhive.policyengine.model.Attribute;
+import org.binaryhive.policyengine.model.Operator;
+
+/**
+ * Normalizes the conjunction of conditions of one policy into a clause for a {@link
+ * ConstraintExpression}.
+ *
+ * <p>Per attribute, {@code EQUALS} and {@code IN} conditions are intersected into one set of
+ * allowed values, and {@code GREATER_THAN} and {@code LESS_THAN} conditions are narrowed to the
+ * tightest bounds. Allowed values outside the bounds are removed, after which the bounds are
+ * implied and dropped. Any other condition is kept unchanged. Clauses stay equivalent to the
+ * original conditions for every context value.
+ */
+final class Clauses {
+  private Clauses() {}
+
+  /**
+   * Normalizes a conjunction of conditions.
+   *
+   * @param conditions The conditions that must all hold
+   * @return The normalized clause, or null if the conditions can never hold together
+   */
+  static List<Condition<?>> normalize(List<Condition<?>> conditions) {
+    Map<Attribute<?>, AttributeTerms> terms = new LinkedHashMap<>();
+    List<Condition<?>> others = new ArrayList<>();
+    for (Condition<?> condition : conditions) {
+      if (!isNormalizable(condition)) {
+        others.add(condition);
+        continue;
+      }
+      AttributeTerms attributeTerms = null;
+      for (Map.Entry<Attribute<?>, AttributeTerms> entry : terms.entrySet()) {
+        if (entry.getKey().convertsLike(condition.getAttribute())) {
+          attributeTerms = entry.getValue();
+          break;
+        }
+      }
+      if (attributeTerms == null) {
+        attributeTerms = new AttributeTerms();
+        terms.put(condition.getAttribute(), attributeTerms);
+      }
+      if (!attributeTerms.add(condition)) {
+        return null;
+      }
+    }
+
+    List<Condition<?>> clause = new ArrayList<>();
+    for (AttributeTerms attributeTerms : terms.values()) {
+      if (!attributeTerms.appendTo(clause)) {
+        return null;
+      }
+    }
+    for (Condition<?> condition : others) {
+      if (!clause.contains(condition)) {
+        clause.add(condition);
+      }
+    }
+    return List.copyOf(clause);
+  }
+
+  /**
+   * Equality, membership and range tests on scalar attributes. List attributes are excluded, as
+   * their IN means "any element in common", and null values, which IN and EQUALS treat differently.
+   */
+  private static boolean isNormalizable(Condition<?> condition) {
+    if (condition.getAttribute().getElementType() != null) {
+      return false;
+    }
+    if (condition.getClass() == ValueCondition.class) {
+      Object value = ((ValueCondition<?>) condition).getValue();
+      return switch (condition.getOperator()) {
+        case EQUALS -> value != null;
+        case GREATER_THAN, LESS_THAN ->
+            value instanceof Comparable && value.getClass() == condition.getAttribute().getType();
+        default -> false;
+      };
+    }
+    return condition.getClass() == ListCondition.class
+        && condition.getOperator() == Operator.IN
+        && ((ListCondition<?>) condition).getValues().stream().noneMatch(Objects::isNull);
+  }
+
+  /** The normalizable terms of one attribute within a clause. */
+  private static final class AttributeTerms {
+    private Condition<?> first;
+    private Set<Object> values;
+    private ValueCondition<?> lower;
+    private ValueCondition<?> upper;
+
+    /** Adds a term; returns false if the terms became contradictory. */
+    boolean add(Condition<?> condition) {
+      if (first == null) {
+        first = condition;
+      }
+      switch (condition.getOperator()) {
+        case EQUALS -> intersect(List.of(((ValueCondition<?>) condition).getValue()));
+        case IN -> intersect(((ListCondition<?>) condition).getValues());
+        case GREATER_THAN -> {
+          ValueCondition<?> bound = (ValueCondition<?>) condition;
+          if (lower == null || compare(bound.getValue(), lower.getValue()) > 0) {
+            lower = bound;
+          }
+        }
+        case LESS_THAN -> {
+          ValueCondition<?> bound = (ValueCondition<?>) condition;
+          if (upper == null || compare(bound.getValue(), upper.getValue()) < 0) {
+            upper = bound;
+          }
+        }
+        default -> throw new IllegalStateException("Not normalizable: " + condition.getOperator());
+      }
+      return values == null || !values.isEmpty();
+    }
+
+    private void intersect(Collection<?> allowed) {
+      if (values == null) {
+        values = new LinkedHashSet<>(allowed);
+      } else {
+        values.retainAll(new HashSet<>(allowed));
+      }
+    }
+
+    /** Appends the normalized terms; returns false if no value can satisfy them. */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    boolean appendTo(List<Condition<?>> clause) {
+      if (values != null) {
+        Attribute attribute = first.getAttribute();
+        // Bounds can only be checked against values of the attribute's type
+        boolean boundsImplied = values.stream().allMatch(attribute.getType()::isInstance);
+        values.removeIf(
+            value ->
+                attribute.getType().isInstance(value)
+                    && ((lower != null && !((ValueCondition) lower).evaluate(value))
+                        || (upper != null && !((ValueCondition) upper).evaluate(value))));
+        if (values.isEmpty()) {
+          return false;
+        }
+        clause.add(
+            values.size() == 1
+                ? new ValueCondition<>(attribute, Operator.EQUALS, values.iterator().next())
+                : new ListCondition<>(attribute, Operator.IN, List.copyOf(values)));
+        if (boundsImplied) {
+          return true;
+        }
+      }
+      if (lower != null && upper != null && compare(lower.getValue(), upper.getValue()) >= 0) {
+        // x > a and x < b cannot both hold when a >= b
+        return false;
+      }
+      if (lower != null) {
+        clause.add(lower);
+      }
+      if (upper != null) {
+        clause.add(upper);
+      }
+      return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object a, Object b) {
+      return ((Comparable<Object>) a).compareTo(b);
+    }
+  }
+}
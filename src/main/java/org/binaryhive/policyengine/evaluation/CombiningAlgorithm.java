@@ -0,0 +1,98 @@
+package org.binaryhive.policyengine.evaluation;
+
+import org.binaryhive.policyengine.model.Effect;
+
+/**
+ * The built-in {@link CombiningStrategy} implementations.
+ *
+ * <p>Policies are evaluated in the {@link PolicySet}'s evaluation order, highest priority first,
+ * and evaluation stops at the first result that decides the outcome of the algorithm. Policies
+ * after it are not evaluated, so their conditions are never tested. Sets with an adaptive policy
+ * order move the policies that usually decide first, within their priority.
+ */
+public enum CombiningAlgorithm implements CombiningStrategy {
+  /** Any DENY wins; otherwise ALLOW if a policy allowed. Stops at the first DENY. */
+  DENY_OVERRIDES(Effect.DENY) {
+    @Override
+    public boolean isDecisive(PolicyEvaluationResult result) {
+      return result == PolicyEvaluationResult.DENY;
+    }
+
+    @Override
+    public PolicyEvaluationResult otherwise(boolean anyAllow, boolean anyDeny) {
+      return anyAllow ? PolicyEvaluationResult.ALLOW : PolicyEvaluationResult.NOT_APPLICABLE;
+    }
+  },
+
+  /** Any ALLOW wins; otherwise DENY if a policy denied. Stops at the first ALLOW. */
+  PERMIT_OVERRIDES(Effect.ALLOW) {
+    @Override
+    public boolean isDecisive(PolicyEvaluationResult result) {
+      return result == PolicyEvaluationResult.ALLOW;
+    }
+
+    @Override
+    public PolicyEvaluationResult otherwise(boolean anyAllow, boolean anyDeny) {
+      return anyDeny ? PolicyEvaluationResult.DENY : PolicyEvaluationResult.NOT_APPLICABLE;
+    }
+  },
+
+  /** The result of the first policy that applies. Stops at the first ALLOW or DENY. */
+  FIRST_APPLICABLE(null) {
+    @Override
+    public boolean isDecisive(PolicyEvaluationResult result) {
+      return result != PolicyEvaluationResult.NOT_APPLICABLE;
+    }
+
+    @Override
+    public PolicyEvaluationResult otherwise(boolean anyAllow, boolean anyDeny) {
+      return PolicyEvaluationResult.NOT_APPLICABLE;
+    }
+  },
+
+  /** ALLOW if any policy allows, DENY in every other case. Stops at the first ALLOW. */
+  DENY_UNLESS_PERMIT(Effect.ALLOW) {
+    @Override
+    public boolean isDecisive(PolicyEvaluationResult result) {
+      return result == PolicyEvaluationResult.ALLOW;
+    }
+
+    @Override
+    public PolicyEvaluationResult otherwise(boolean anyAllow, boolean anyDeny) {
+      return PolicyEvaluationResult.DENY;
+    }
+  },
+
+  /**
+   * Only the highest priority with an applicable policy decides, with deny-overrides among the
+   * policies of that priority. Stops at the first DENY, or after the priority of the first ALLOW;
+   * lower priorities are not evaluated.
+   */
+  HIGHEST_PRIORITY(Effect.DENY) {
+    @Override
+    public boolean isDecisive(PolicyEvaluationResult result) {
+      return result == PolicyEvaluationResult.DENY;
+    }
+
+    @Override
+    public boolean isDecidedBefore(boolean anyAllow, boolean anyDeny) {
+      return anyAllow;
+    }
+
+    @Override
+    public PolicyEvaluationResult otherwise(boolean anyAllow, boolean anyDeny) {
+      return anyAllow ? PolicyEvaluationResult.ALLOW : PolicyEvaluationResult.NOT_APPLICABLE;
+    }
+  };
+
+  private final Effect decisiveEffect;
+
+  CombiningAlgorithm(Effect decisiveEffect) {
+    this.decisiveEffect = decisiveEffect;
+  }
+
+  @Override
+  public Effect decisiveEffect() {
+    return decisiveEffect;
+  }
+}
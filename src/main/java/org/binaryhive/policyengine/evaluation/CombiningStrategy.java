@@ -0,0 +1,69 @@
+package org.binaryhive.policyengine.evaluation;
+
+import org.binaryhive.policyengine.model.Effect;
+
+/**
+ * Combines the results of the policies of a request into one decision.
+ *
+ * <p>A {@link ContextEvaluator} evaluates the policies one at a time, highest priority first, and
+ * asks the strategy after each result whether the outcome is decided. Policies after a decisive
+ * result are not evaluated, so their conditions are never tested. The built-in strategies are the
+ * constants of {@link CombiningAlgorithm}; other ones can be passed to the evaluator the same way:
+ *
+ * <pre>{@code
+ * CombiningStrategy denyUnlessPermitOrAllowIfAllDeny = new CombiningStrategy() {
+ *   public boolean isDecisive(PolicyEvaluationResult result) {
+ *     return result == PolicyEvaluationResult.ALLOW;
+ *   }
+ *
+ *   public PolicyEvaluationResult otherwise(boolean anyAllow, boolean anyDeny) {
+ *     return PolicyEvaluationResult.DENY;
+ *   }
+ * };
+ * }</pre>
+ *
+ * <p>Implementations must be stateless, as one instance serves concurrent requests.
+ */
+public interface CombiningStrategy {
+
+  /**
+   * Checks whether a policy result fixes the combined result, so no further policy is evaluated.
+   *
+   * @param result The result of the policy just evaluated
+   * @return true if the combined result is this result
+   */
+  boolean isDecisive(PolicyEvaluationResult result);
+
+  /**
+   * Checks whether the results of the higher priorities already decide the combined result, so no
+   * policy of the next, lower priority is evaluated. By default every priority is evaluated.
+   *
+   * @param anyAllow Whether a policy evaluated so far allowed
+   * @param anyDeny  Whether a policy evaluated so far denied
+   * @return true to stop before the next priority and return {@link #otherwise}
+   */
+  default boolean isDecidedBefore(boolean anyAllow, boolean anyDeny) {
+    return false;
+  }
+
+  /**
+   * Gets the combined result when evaluation ended without a decisive result, including when
+   * there are no policies at all.
+   *
+   * @param anyAllow Whether a policy allowed
+   * @param anyDeny  Whether a policy denied
+   * @return The combined result
+   */
+  PolicyEvaluationResult otherwise(boolean anyAllow, boolean anyDeny);
+
+  /**
+   * Gets the effect that ends evaluation no matter which policy produced it. Policies of equal
+   * priority are only reordered, with {@link PolicySet#withAdaptivePolicyOrder()}, for strategies
+   * with such an effect. By default there is none and policies keep their order.
+   *
+   * @return The decisive effect, or null if the result depends on which policy applies first
+   */
+  default Effect decisiveEffect() {
+    return null;
+  }
+}
@@ -0,0 +1,155 @@
+package org.binaryhive.policyengine.evaluation;
+
+import java.util.*;
+import org.binaryhive.policyengine.condition.Condition;
+import org.binaryhive.policyengine.condition.ValueCondition;
+import org.binaryhive.policyengine.index.AffixIndex;
+import org.binaryhive.policyengine.index.ConditionIndex;
+import org.binaryhive.policyengine.index.PatternIndex;
+import org.binaryhive.policyengine.index.RangeIndex;
+import org.binaryhive.policyengine.model.Attribute;
+import org.binaryhive.policyengine.model.Operator;
+
+/**
+ * The condition indexes of a {@link PolicySet}. Conditions on the same attribute slot that can be
+ * decided together are grouped into one {@link ConditionIndex}; each condition belongs to at most
+ * one index.
+ */
+final class ConditionIndexes {
+  /** Groups smaller than this are cheaper to evaluate condition by condition. */
+  private static final int MIN_INDEX_SIZE = 2;
+
+  private final ConditionIndex[] indexes;
+  private final Attribute<?>[] attributes;
+  private final int[] slots;
+  private final int[] conditionIndex;
+
+  private ConditionIndexes(
+      ConditionIndex[] indexes, Attribute<?>[] attributes, int[] slots, int[] conditionIndex) {
+    this.indexes = indexes;
+    this.attributes = attributes;
+    this.slots = slots;
+    this.conditionIndex = conditionIndex;
+  }
+
+  static ConditionIndexes build(Condition<?>[] conditions, int[] conditionSlots) {
+    List<Group> groups = new ArrayList<>();
+    for (int id = 0; id < conditions.length; id++) {
+      Operator operator = indexedOperator(conditions[id]);
+      if (operator != null) {
+        group(groups, conditions[id].getAttribute(), conditionSlots[id], operator).ids.add(id);
+      }
+    }
+
+    List<ConditionIndex> indexes = new ArrayList<>();
+    List<Attribute<?>> attributes = new ArrayList<>();
+    List<Integer> slots = new ArrayList<>();
+    int[] conditionIndex = new int[conditions.length];
+    Arrays.fill(conditionIndex, -1);
+
+    for (Group group : groups) {
+      if (group.ids.size() < MIN_INDEX_SIZE) {
+        continue;
+      }
+      for (int id : group.ids) {
+        conditionIndex[id] = indexes.size();
+      }
+      indexes.add(index(group, conditions));
+      attributes.add(group.attribute);
+      slots.add(group.slot);
+    }
+
+    return new ConditionIndexes(
+        indexes.toArray(new ConditionIndex[0]),
+        attributes.toArray(new Attribute<?>[0]),
+        slots.stream().mapToInt(Integer::intValue).toArray(),
+        conditionIndex);
+  }
+
+  /** Returns the operator of a condition an index can decide, otherwise null. */
+  private static Operator indexedOperator(Condition<?> condition) {
+    if (condition.getClass() != ValueCondition.class) {
+      return null;
+    }
+    Operator operator = condition.getOperator();
+    Object value = ((ValueCondition<?>) condition).getValue();
+    if (value == null || value.getClass() != condition.getAttribute().getType()) {
+      return null;
+    }
+    return switch (operator) {
+      case GREATER_THAN, LESS_THAN -> value instanceof Comparable ? operator : null;
+      case STARTS_WITH, ENDS_WITH, MATCHES -> operator;
+      default -> null;
+    };
+  }
+
+  private static ConditionIndex index(Group group, Condition<?>[] conditions) {
+    if (group.operator == Operator.STARTS_WITH || group.operator == Operator.ENDS_WITH) {
+      AffixIndex.Builder builder = AffixIndex.builder(group.operator);
+      for (int id : group.ids) {
+        builder.add(id, (String) ((ValueCondition<?>) conditions[id]).getValue());
+      }
+      return builder.build();
+    }
+    if (group.operator == Operator.MATCHES) {
+      PatternIndex.Builder builder = PatternIndex.builder();
+      for (int id : group.ids) {
+        builder.add(id, ((ValueCondition<?>) conditions[id]).getPattern());
+      }
+      return builder.build();
+    }
+    RangeIndex.Builder builder = RangeIndex.builder(group.operator);
+    for (int id : group.ids) {
+      builder.add(id, (Comparable<?>) ((ValueCondition<?>) conditions[id]).getValue());
+    }
+    return builder.build();
+  }
+
+  private static Group group(
+      List<Group> groups, Attribute<?> attribute, int slot, Operator operator) {
+    for (Group group : groups) {
+      if (group.slot == slot
+          && group.operator == operator
+          && group.attribute.convertsLike(attribute)) {
+        return group;
+      }
+    }
+    Group group = new Group(attribute, slot, operator);
+    groups.add(group);
+    return group;
+  }
+
+  int size() {
+    return indexes.length;
+  }
+
+  /** Gets the index deciding a condition, or -1 if the condition is evaluated on its own. */
+  int indexOf(int conditionId) {
+    return conditionIndex[conditionId];
+  }
+
+  ConditionIndex index(int index) {
+    return indexes[index];
+  }
+
+  Attribute<?> attribute(int index) {
+    return attributes[index];
+  }
+
+  int slot(int index) {
+    return slots[index];
+  }
+
+  private static final class Group {
+    private final Attribute<?> attribute;
+    private final int slot;
+    private final Operator operator;
+    private final List<Integer> ids = new ArrayList<>();
+
+    private Group(Attribute<?> attribute, int slot, Operator operator) {
+      this.attribute = attribute;
+      this.slot = slot;
+      this.operator = operator;
+    }
+  }
+}
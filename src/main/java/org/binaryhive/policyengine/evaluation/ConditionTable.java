@@ -0,0 +1,223 @@
+package org.binaryhive.policyengine.evaluation;
+
+import java.util.Arrays;
+import java.util.Map;
+import lombok.extern.log4j.Log4j2;
+import org.binaryhive.policyengine.condition.Condition;
+import org.binaryhive.policyengine.index.ConditionSink;
+import org.binaryhive.policyengine.model.Attribute;
+
+/**
+ * Per-request table of shared condition results for a {@link PolicySet}. Each distinct condition
+ * is evaluated on first use and its result is reused by every other policy that references it.
+ *
+ * <p>Context values are read by attribute slot. A map-based context is projected lazily, so each
+ * attribute is looked up in the map at most once per request and only if a condition needs it.
+ *
+ * <p>If the policy set has an {@link AdaptiveConditionOrder} and the request is sampled, each
+ * condition evaluation is timed and recorded. A {@link TraceCollector} attached for a {@link
+ * DecisionRecorder} receives the time of every condition evaluation and index lookup.
+ *
+ * <p>Conditions covered by a condition index are decided together: the first time one of them is
+ * needed, the index is resolved for the context value and fills in the results of all of them.
+ * {@link #candidates()} resolves all indexes up front to select the policies worth visiting.
+ */
+@Log4j2
+final class ConditionTable implements ConditionSink {
+  private static final byte UNKNOWN = 0;
+  private static final byte TRUE = 1;
+  private static final byte FALSE = 2;
+  private static final Object UNRESOLVED = new Object();
+  private static final long[] NO_BITS = new long[0];
+
+  private final PolicySet policySet;
+  private final PolicyEvaluator policyEvaluator;
+  private final Map<String, Object> context;
+  private final Object[] values;
+  private final byte[] results;
+  private final AdaptiveConditionOrder sampledOrder;
+  private TraceCollector trace;
+  private long[] scratch = NO_BITS;
+
+  ConditionTable(
+      PolicySet policySet, PolicyEvaluator policyEvaluator, Map<String, Object> context) {
+    this.policySet = policySet;
+    this.policyEvaluator = policyEvaluator;
+    this.context = context;
+    this.values = new Object[policySet.attributes().size()];
+    this.results = new byte[policySet.conditionCount()];
+    this.sampledOrder = sampledOrder(policySet);
+    Arrays.fill(values, UNRESOLVED);
+  }
+
+  /** Creates a table over attribute values that were already stored at their slots. */
+  ConditionTable(PolicySet policySet, PolicyEvaluator policyEvaluator, Object[] values) {
+    this.policySet = policySet;
+    this.policyEvaluator = policyEvaluator;
+    this.context = null;
+    this.values = values;
+    this.results = new byte[policySet.conditionCount()];
+    this.sampledOrder = sampledOrder(policySet);
+  }
+
+  /** The set's adaptive order if this request is sampled for it, otherwise null. */
+  private static AdaptiveConditionOrder sampledOrder(PolicySet policySet) {
+    AdaptiveConditionOrder conditionOrder = policySet.adaptiveConditionOrder();
+    return conditionOrder != null && conditionOrder.sampleRequest() ? conditionOrder : null;
+  }
+
+  PolicySet policySet() {
+    return policySet;
+  }
+
+  /** Reports condition timings of this request to the given collector. */
+  void trace(TraceCollector trace) {
+    this.trace = trace;
+  }
+
+  /** Whether condition evaluations of this request are timed for a trace or adaptive order. */
+  boolean instrumented() {
+    return trace != null || sampledOrder != null;
+  }
+
+  boolean test(int conditionId) {
+    byte result = results[conditionId];
+    if (result == UNKNOWN) {
+      if (trace != null) {
+        long start = System.nanoTime();
+        boolean met = evaluate(conditionId);
+        trace.condition(conditionId, System.nanoTime() - start);
+        return met;
+      }
+      return evaluate(conditionId);
+    }
+    return result == TRUE;
+  }
+
+  private boolean evaluate(int conditionId) {
+    int index = policySet.indexes().indexOf(conditionId);
+    if (index >= 0) {
+      resolveIndex(index);
+      return results[conditionId] == TRUE;
+    }
+    Condition<?> condition = policySet.condition(conditionId);
+    Object value = value(policySet.conditionSlot(conditionId));
+    boolean met;
+    if (sampledOrder != null) {
+      long start = System.nanoTime();
+      met = policyEvaluator.evaluateCondition(condition, value, trace);
+      sampledOrder.record(conditionId, met, System.nanoTime() - start);
+    } else {
+      met = policyEvaluator.evaluateCondition(condition, value, trace);
+    }
+    results[conditionId] = met ? TRUE : FALSE;
+    return met;
+  }
+
+  /**
+   * Resolves every condition index and selects the policies that can apply: those with an indexed
+   * condition that is met, and those without indexed conditions. Any other policy has only failed
+   * indexed conditions and is not applicable.
+   *
+   * @return A bit for each candidate policy, or null if the set has no condition indexes
+   */
+  long[] candidates() {
+    ConditionIndexes indexes = policySet.indexes();
+    if (indexes.size() == 0) {
+      return null;
+    }
+    long[] candidates = policySet.unindexedPolicies().clone();
+    for (int index = 0; index < indexes.size(); index++) {
+      int[] conditionIds = indexes.index(index).conditionIds();
+      // Resolves the whole index, timed like any other lookup
+      test(conditionIds[0]);
+      for (int conditionId : conditionIds) {
+        if (results[conditionId] == TRUE) {
+          for (int policyIndex : policySet.indexedPolicies(conditionId)) {
+            candidates[policyIndex >>> 6] |= 1L << policyIndex;
+          }
+        }
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * Gets the stored result of a condition without evaluating it, for generated code.
+   *
+   * @return 0 if not yet decided, 1 if met, 2 if not met
+   */
+  int cached(int conditionId) {
+    return results[conditionId];
+  }
+
+  @Override
+  public void accept(int conditionId, boolean met) {
+    results[conditionId] = met ? TRUE : FALSE;
+  }
+
+  /** Reuses one array for every index lookup of the request. */
+  @Override
+  public long[] scratchBits(int bits) {
+    int words = (bits + 63) >>> 6;
+    if (scratch.length < words) {
+      scratch = new long[words];
+    } else {
+      Arrays.fill(scratch, 0, words, 0L);
+    }
+    return scratch;
+  }
+
+  /**
+   * Decides every condition of an index. A missing value or one that cannot be converted fails
+   * all of them, just as each condition would fail on its own.
+   */
+  private void resolveIndex(int index) {
+    ConditionIndexes indexes = policySet.indexes();
+    Attribute<?> attribute = indexes.attribute(index);
+    Object converted = null;
+    Object rawValue = value(indexes.slot(index));
+    if (rawValue != null) {
+      try {
+        if (trace != null) {
+          long start = System.nanoTime();
+          converted = attribute.convert(rawValue);
+          trace.conversion(System.nanoTime() - start);
+        } else {
+          converted = attribute.convert(rawValue);
+        }
+      } catch (Exception e) {
+        log.warn("Error evaluating condition: {}: {}", attribute.getName(), e.getMessage());
+      }
+    }
+
+    if (converted != null) {
+      indexes.index(index).resolve(converted, this);
+    } else {
+      for (int conditionId : indexes.index(index).conditionIds()) {
+        results[conditionId] = FALSE;
+      }
+    }
+  }
+
+  /** Replaces the value of an attribute slot, for the next item of a bulk evaluation. */
+  void assign(int slot, Object value) {
+    values[slot] = value;
+  }
+
+  /** Forgets the results of the given conditions, so they are evaluated again on next use. */
+  void forget(int[] conditionIds) {
+    for (int conditionId : conditionIds) {
+      results[conditionId] = UNKNOWN;
+    }
+  }
+
+  Object value(int slot) {
+    Object value = values[slot];
+    if (value == UNRESOLVED) {
+      value = context.get(policySet.attributes().name(slot));
+      values[slot] = value;
+    }
+    return value;
+  }
+}
@@ -0,0 +1,77 @@
+package org.binaryhive.policyengine.evaluation;
+
+import java.util.*;
+import lombok.Getter;
+import org.binaryhive.policyengine.condition.Condition;
+
+/**
+ * The resources a subject may access, as a constraint over resource attributes:
+ *
+ * <pre>(allow1 OR allow2 OR ...) AND NOT (deny1 OR deny2 OR ...)</pre>
+ *
+ * <p>Each clause is a conjunction of conditions. An empty allow clause holds for every resource;
+ * an empty deny clause denies every resource. Callers translate the clauses into their storage
+ * query, for example one {@code WHERE} term per clause, instead of evaluating every row.
+ */
+public final class ConstraintExpression {
+  /** Clauses of which at least one must hold. */
+  @Getter private final List<List<Condition<?>>> allowClauses;
+
+  /** Clauses of which none may hold. */
+  @Getter private final List<List<Condition<?>>> denyClauses;
+
+  private final PolicyEvaluator policyEvaluator;
+
+  ConstraintExpression(
+      List<List<Condition<?>>> allowClauses,
+      List<List<Condition<?>>> denyClauses,
+      PolicyEvaluator policyEvaluator) {
+    this.allowClauses = allowClauses;
+    this.denyClauses = denyClauses;
+    this.policyEvaluator = policyEvaluator;
+  }
+
+  /**
+   * Checks whether no resource can be accessed, so the query can be skipped.
+   *
+   * @return true if the expression never holds
+   */
+  public boolean isUnsatisfiable() {
+    return allowClauses.isEmpty() || denyClauses.stream().anyMatch(List::isEmpty);
+  }
+
+  /**
+   * Checks whether every resource can be accessed, so no filter is needed.
+   *
+   * @return true if the expression always holds
+   */
+  public boolean isUnrestricted() {
+    return denyClauses.isEmpty() && allowClauses.stream().anyMatch(List::isEmpty);
+  }
+
+  /**
+   * Evaluates the expression for one resource, for filtering in memory.
+   *
+   * @param resource The resource attributes
+   * @return true if policy evaluation for this resource would result in ALLOW
+   */
+  public boolean test(Map<String, Object> resource) {
+    return allowClauses.stream().anyMatch(clause -> holds(clause, resource))
+        && denyClauses.stream().noneMatch(clause -> holds(clause, resource));
+  }
+
+  private boolean holds(List<Condition<?>> clause, Map<String, Object> resource) {
+    for (Condition<?> condition : clause) {
+      if (!policyEvaluator.evaluateCondition(
+          condition, resource.get(condition.getAttribute().getName()))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "allow " + allowClauses + " deny " + denyClauses;
+  }
+}
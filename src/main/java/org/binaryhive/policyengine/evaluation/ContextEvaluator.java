@@ -1,16 +1,59 @@
 package org.binaryhive.policyengine.evaluation;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.binaryhive.policyengine.model.Policy;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 @Log4j2
-@RequiredArgsConstructor
 public class ContextEvaluator {
 
+    /** Timings of the traced decision in progress on each thread, reused between decisions. */
+    private static final ThreadLocal<TraceCollector> COLLECTORS =
+            ThreadLocal.withInitial(TraceCollector::new);
+
     private final PolicyEvaluator policyEvaluator;
+    private final CombiningStrategy combiningAlgorithm;
+    private final DecisionRecorder recorder;
+
+    /**
+     * Creates an evaluator with deny-overrides combining.
+     *
+     * @param policyEvaluator The evaluator of single policies
+     */
+    public ContextEvaluator(PolicyEvaluator policyEvaluator) {
+        this(policyEvaluator, CombiningAlgorithm.DENY_OVERRIDES);
+    }
+
+    /**
+     * Creates an evaluator with the given combining algorithm, one of {@link CombiningAlgorithm} or
+     * a custom {@link CombiningStrategy}.
+     *
+     * @param policyEvaluator The evaluator of single policies
+     * @param combiningAlgorithm How the results of several policies are combined
+     */
+    public ContextEvaluator(PolicyEvaluator policyEvaluator, CombiningStrategy combiningAlgorithm) {
+        this(policyEvaluator, combiningAlgorithm, null);
+    }
+
+    /**
+     * Creates an evaluator that times each decision passed to {@link #evaluate} or
+     * {@link #evaluateForAction} and reports it to a recorder, which keeps the slow and sampled
+     * ones.
+     *
+     * @param policyEvaluator The evaluator of single policies
+     * @param combiningAlgorithm How the results of several policies are combined
+     * @param recorder The recorder of decision traces, or null to disable tracing
+     */
+    public ContextEvaluator(
+            PolicyEvaluator policyEvaluator,
+            CombiningStrategy combiningAlgorithm,
+            DecisionRecorder recorder) {
+        this.policyEvaluator = policyEvaluator;
+        this.combiningAlgorithm = combiningAlgorithm;
+        this.recorder = recorder;
+    }
 
     /**
      * Evaluates all policies in the given context and returns the final result.
@@ -20,35 +63,27 @@ public class ContextEvaluator {
      * @return The final policy evaluation result
      */
     public PolicyEvaluationResult evaluate(EvaluationContext context) {
+        if (recorder != null) {
+            return evaluateTraced(context, null);
+        }
+
         List<Policy> policies = context.policies();
         
         if (policies.isEmpty()) {
             log.debug("No policies found for actions: {}", context.getActions());
-            return PolicyEvaluationResult.NOT_APPLICABLE;
+            return combiningAlgorithm.otherwise(false, false);
         }
         
         log.debug("Evaluating {} policies for actions: {}", policies.size(), context.getActions());
         
-        boolean anyAllow = false;
-        for (Policy policy : policies) {
-            PolicyEvaluationResult result = policyEvaluator.evaluate(policy, context.getContext());
-            log.debug("Policy {} evaluated to {}", policy.getName(), result);
-            
-            if (result == PolicyEvaluationResult.DENY) {
-                // An explicit DENY takes precedence over everything else
-                return PolicyEvaluationResult.DENY;
-            } else if (result == PolicyEvaluationResult.ALLOW) {
-                anyAllow = true;
-            }
-        }
-        
-        // If at least one policy explicitly allowed and none denied
-        return anyAllow ? PolicyEvaluationResult.ALLOW : PolicyEvaluationResult.NOT_APPLICABLE;
+        return evaluatePolicies(policies, context);
     }
     
     /**
      * Evaluates policies for a specific action in the context.
      * This is useful when context contains multiple actions but you need to evaluate just one.
+     * An action the context does not hold has no policies, so the combining algorithm decides it
+     * as it decides an empty policy list.
      * 
      * @param context The evaluation context containing policies and attributes
      * @param action The specific action to evaluate
@@ -57,31 +92,22 @@ public class ContextEvaluator {
     public PolicyEvaluationResult evaluateForAction(EvaluationContext context, String action) {
         if (!context.hasAction(action)) {
             log.debug("Action {} not present in context actions: {}", action, context.getActions());
-            return PolicyEvaluationResult.NOT_APPLICABLE;
+            return combiningAlgorithm.otherwise(false, false);
+        }
+        if (recorder != null) {
+            return evaluateTraced(context, action);
         }
         
         List<Policy> policies = context.policiesForAction(action);
         
         if (policies.isEmpty()) {
             log.debug("No policies found for action: {}", action);
-            return PolicyEvaluationResult.NOT_APPLICABLE;
+            return combiningAlgorithm.otherwise(false, false);
         }
         
         log.debug("Evaluating {} policies for action: {}", policies.size(), action);
         
-        boolean anyAllow = false;
-        for (Policy policy : policies) {
-            PolicyEvaluationResult result = policyEvaluator.evaluate(policy, context.getContext());
-            log.debug("Policy {} evaluated to {} for action {}", policy.getName(), result, action);
-            
-            if (result == PolicyEvaluationResult.DENY) {
-                return PolicyEvaluationResult.DENY;
-            } else if (result == PolicyEvaluationResult.ALLOW) {
-                anyAllow = true;
-            }
-        }
-        
-        return anyAllow ? PolicyEvaluationResult.ALLOW : PolicyEvaluationResult.NOT_APPLICABLE;
+        return evaluatePolicies(policies, context);
     }
     
     /**
@@ -100,4 +126,153 @@ public class ContextEvaluator {
         
         return results;
     }
+
+    /**
+     * Evaluates one subject against many resources. The context supplies the policies and the
+     * attributes shared by all resources, such as the subject attributes. Each resource map
+     * supplies the attributes of one resource and takes precedence over the context's attributes.
+     * Conditions on shared attributes are evaluated once for the whole call; only conditions on
+     * resource attributes are evaluated again for each resource.
+     *
+     * @param context The evaluation context containing policies and shared attributes
+     * @param resources The attributes of each resource
+     * @return The result for each resource, in the order of the resources
+     */
+    public PolicyEvaluationResult[] evaluateEach(
+            EvaluationContext context, List<Map<String, Object>> resources) {
+        PolicyEvaluationResult[] results = new PolicyEvaluationResult[resources.size()];
+        List<Policy> policies = context.policies();
+        if (policies.isEmpty()) {
+            Arrays.fill(results, combiningAlgorithm.otherwise(false, false));
+            return results;
+        }
+
+        PolicySet policySet = PolicySet.of(policies);
+        AttributeRegistry attributes = policySet.attributes();
+        ConditionTable table;
+        if (context instanceof ArrayEvaluationContext arrayContext
+                && arrayContext.policies() == policySet) {
+            // Slots are reassigned per resource, so the context's own array is not used directly
+            Object[] values = arrayContext.values().clone();
+            table = new ConditionTable(policySet, policyEvaluator, values);
+        } else {
+            table = new ConditionTable(policySet, policyEvaluator, context.getContext());
+        }
+
+        // Slots that any resource sets, with the shared value used when a resource leaves one out
+        boolean[] resourceSlot = new boolean[attributes.size()];
+        for (Map<String, Object> resource : resources) {
+            for (String name : resource.keySet()) {
+                int slot = attributes.slot(name);
+                if (slot >= 0) {
+                    resourceSlot[slot] = true;
+                }
+            }
+        }
+        int[] slots =
+                IntStream.range(0, attributes.size()).filter(slot -> resourceSlot[slot]).toArray();
+        Object[] sharedValues = new Object[slots.length];
+        for (int k = 0; k < slots.length; k++) {
+            sharedValues[k] = table.value(slots[k]);
+        }
+        int[] resourceConditions =
+                IntStream.range(0, policySet.conditionCount())
+                        .filter(id -> resourceSlot[policySet.conditionSlot(id)])
+                        .toArray();
+        log.debug(
+                "Evaluating {} resources; {} of {} conditions depend on resource attributes",
+                resources.size(),
+                resourceConditions.length,
+                policySet.conditionCount());
+
+        for (int i = 0; i < results.length; i++) {
+            Map<String, Object> resource = resources.get(i);
+            for (int k = 0; k < slots.length; k++) {
+                String name = attributes.name(slots[k]);
+                Object value = resource.containsKey(name) ? resource.get(name) : sharedValues[k];
+                table.assign(slots[k], value);
+            }
+            table.forget(resourceConditions);
+            results[i] = evaluatePolicies(policySet, table);
+        }
+        return results;
+    }
+
+    /**
+     * Evaluates the policies of the context, or of one action if given, timing each stage for the
+     * recorder. Policies are evaluated as without a recorder: plain lists policy by policy, so
+     * retrieval time is only the time {@code policies()} takes.
+     */
+    private PolicyEvaluationResult evaluateTraced(EvaluationContext context, String action) {
+        TraceCollector collector = COLLECTORS.get();
+        if (collector.inUse) {
+            // A nested decision, such as one made while retrieving the policies of this one
+            collector = new TraceCollector();
+        }
+        collector.inUse = true;
+        try {
+            long start = System.nanoTime();
+            List<Policy> policies =
+                    action == null ? context.policies() : context.policiesForAction(action);
+            long retrieved = System.nanoTime();
+
+            PolicyEvaluationResult result;
+            if (policies.isEmpty()) {
+                result = combiningAlgorithm.otherwise(false, false);
+            } else if (policies instanceof PolicySet policySet) {
+                ConditionTable table = conditionTable(policySet, context);
+                table.trace(collector);
+                result = evaluatePolicies(policySet, table);
+            } else {
+                Map<String, Object> attributes = context.getContext();
+                result = PolicyCombiner.combine(
+                        combiningAlgorithm, policies, attributes, policyEvaluator, collector);
+            }
+            long end = System.nanoTime();
+
+            recorder.record(context, action, policies, result, collector, start, retrieved, end);
+            return result;
+        } finally {
+            collector.reset();
+            collector.inUse = false;
+        }
+    }
+
+    /**
+     * Evaluates the policies of a request with the evaluator's combining algorithm. For a
+     * {@link PolicySet}, conditions shared between policies are evaluated once for the request
+     * through a {@link ConditionTable}, and sets compiled into a {@link DecisionDiagram} walk the
+     * diagram instead of visiting each policy; the diagram implements deny-overrides, so it is only
+     * used with that algorithm. Plain lists are evaluated policy by policy rather than compiled
+     * for every request.
+     */
+    private PolicyEvaluationResult evaluatePolicies(List<Policy> policies, EvaluationContext context) {
+        if (policies instanceof PolicySet policySet) {
+            return evaluatePolicies(policySet, conditionTable(policySet, context));
+        }
+        return PolicyCombiner.combine(
+                combiningAlgorithm, policies, context.getContext(), policyEvaluator);
+    }
+
+    private PolicyEvaluationResult evaluatePolicies(PolicySet policySet, ConditionTable table) {
+        DecisionDiagram decisionDiagram = policySet.diagram();
+        if (decisionDiagram != null && combiningAlgorithm == CombiningAlgorithm.DENY_OVERRIDES) {
+            PolicyEvaluationResult result = decisionDiagram.evaluate(table);
+            log.debug("Decision diagram evaluated to {}", result);
+            return result;
+        }
+
+        return PolicyCombiner.combine(combiningAlgorithm, table, policyEvaluator);
+    }
+
+    /**
+     * Array-backed contexts built for this policy set already hold their values at the attribute
+     * slots; any other context is projected from its attribute map.
+     */
+    private ConditionTable conditionTable(PolicySet policySet, EvaluationContext context) {
+        if (context instanceof ArrayEvaluationContext arrayContext && arrayContext.policies() == policySet) {
+            return new ConditionTable(policySet, policyEvaluator, arrayContext.values());
+        }
+        return new ConditionTable(policySet, policyEvaluator, context.getContext());
+    }
 }
@@ -0,0 +1,95 @@
+package org.binaryhive.policyengine.evaluation;
+
+import java.util.*;
+
+/**
+ * Hashes the attribute values a {@link PolicySet} depends on into a 64-bit key. Slots are hashed
+ * in registry order, so the key does not depend on how the context map was filled, and context
+ * entries that no condition reads do not contribute.
+ *
+ * <p>Values are hashed as they are in the context, without converting them to the type of their
+ * attribute: conversion allocates, and throws for invalid values. Equal values give equal keys, and
+ * so equal decisions; a value and its string form, such as {@code 5} and {@code "5"}, give
+ * different keys even when they decide the same.
+ *
+ * <p>Strings, integral numbers, floating-point numbers, booleans, enums and lists of them are
+ * hashed without allocating. Integral numbers hash by value whatever their boxed type. Other values
+ * contribute their {@link Object#hashCode()}.
+ */
+final class ContextFingerprint {
+  private static final long SEED = 0x9E3779B97F4A7C15L;
+  private static final long FNV_PRIME = 0x100000001B3L;
+  private static final long NULL_HASH = 0x5BD1E9955BD1E995L;
+
+  private final AttributeRegistry attributes;
+
+  ContextFingerprint(AttributeRegistry attributes) {
+    this.attributes = attributes;
+  }
+
+  /** Fingerprints the values of an array-backed context built for this set. */
+  long fingerprint(Object[] values) {
+    long hash = SEED;
+    for (Object value : values) {
+      hash = combine(hash, hash(value));
+    }
+    return mix(hash);
+  }
+
+  /** Fingerprints a map-based context, looking up each referenced attribute once. */
+  long fingerprint(Map<String, Object> context) {
+    long hash = SEED;
+    for (int slot = 0; slot < attributes.size(); slot++) {
+      hash = combine(hash, hash(context.get(attributes.name(slot))));
+    }
+    return mix(hash);
+  }
+
+  private static long hash(Object value) {
+    if (value == null) {
+      return NULL_HASH;
+    }
+    if (value instanceof String string) {
+      long hash = string.length();
+      for (int i = 0; i < string.length(); i++) {
+        hash = (hash ^ string.charAt(i)) * FNV_PRIME;
+      }
+      return mix(hash);
+    }
+    if (value instanceof Double || value instanceof Float) {
+      return mix(Double.doubleToLongBits(((Number) value).doubleValue()));
+    }
+    if (value instanceof Long || value instanceof Integer
+        || value instanceof Short || value instanceof Byte) {
+      return mix(((Number) value).longValue());
+    }
+    if (value instanceof Boolean bool) {
+      return bool ? 0x27D4EB2F165667C5L : 0x165667B19E3779F9L;
+    }
+    if (value instanceof Enum<?> constant) {
+      return hash(constant.name());
+    }
+    if (value instanceof List<?> list && list instanceof RandomAccess) {
+      long hash = list.size();
+      for (int i = 0; i < list.size(); i++) {
+        hash = combine(hash, hash(list.get(i)));
+      }
+      return mix(hash);
+    }
+    return mix(value.hashCode());
+  }
+
+  private static long combine(long hash, long value) {
+    return Long.rotateLeft(hash ^ value, 27) * SEED + 0x52DCE729L;
+  }
+
+  /** The 64-bit finalizer of MurmurHash3. */
+  private static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    hash *= 0xC4CEB9FE1A85EC53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
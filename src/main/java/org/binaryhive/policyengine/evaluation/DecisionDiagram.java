@@ -0,0 +1,295 @@
+package org.binaryhive.policyengine.evaluation;
+
+import java.util.*;
+import lombok.extern.log4j.Log4j2;
+import org.binaryhive.policyengine.condition.Condition;
+import org.binaryhive.policyengine.condition.DenyListCondition;
+import org.binaryhive.policyengine.condition.ListCondition;
+import org.binaryhive.policyengine.condition.ValueCondition;
+import org.binaryhive.policyengine.model.Effect;
+
+/**
+ * A {@link PolicySet} compiled into a reduced ordered decision diagram for deny-overrides
+ * combining.
+ *
+ * <p>Each inner node tests one distinct condition of the set and each leaf is a {@link
+ * PolicyEvaluationResult}. Variables are tested in one fixed order along every path, so evaluating
+ * a request walks a single path and tests each condition at most once, however many policies share
+ * it. Equal sub-diagrams are merged and redundant tests removed while the diagram is built.
+ *
+ * <p>Compilation is optional: it gives up, and the set keeps evaluating policy by policy, when a
+ * policy uses a condition type the compiler does not know or the diagram would exceed its node
+ * budget.
+ */
+@Log4j2
+public final class DecisionDiagram {
+  /** Default limit on inner nodes, which keeps a compiled set within a few megabytes. */
+  public static final int DEFAULT_NODE_BUDGET = 100_000;
+
+  // Leaves, ordered so that deny-overrides combining is the maximum of two leaves
+  private static final int NOT_APPLICABLE = 0;
+  private static final int ALLOW = 1;
+  private static final int DENY = 2;
+  private static final int LEAVES = 3;
+
+  private static final PolicyEvaluationResult[] RESULTS = {
+    PolicyEvaluationResult.NOT_APPLICABLE, PolicyEvaluationResult.ALLOW, PolicyEvaluationResult.DENY
+  };
+
+  private final int root;
+  private final int[] variables;
+  private final int[] low;
+  private final int[] high;
+
+  private DecisionDiagram(int root, int[] variables, int[] low, int[] high) {
+    this.root = root;
+    this.variables = variables;
+    this.low = low;
+    this.high = high;
+  }
+
+  /**
+   * Compiles a policy set with the {@link #DEFAULT_NODE_BUDGET}.
+   *
+   * @param policySet The policies to compile
+   * @return The diagram, or empty if the set cannot be compiled
+   */
+  public static Optional<DecisionDiagram> compile(PolicySet policySet) {
+    return compile(policySet, DEFAULT_NODE_BUDGET);
+  }
+
+  /**
+   * Compiles a policy set into a decision diagram.
+   *
+   * @param policySet  The policies to compile
+   * @param nodeBudget The maximum number of inner nodes
+   * @return The diagram, or empty if a condition is not supported or the budget is exceeded
+   */
+  public static Optional<DecisionDiagram> compile(PolicySet policySet, int nodeBudget) {
+    for (int id = 0; id < policySet.conditionCount(); id++) {
+      if (!isSupported(policySet.condition(id))) {
+        log.debug(
+            "Condition type {} is not supported in decision diagrams",
+            policySet.condition(id).getClass().getName());
+        return Optional.empty();
+      }
+    }
+
+    Builder builder = new Builder(variableOrder(policySet), nodeBudget);
+    try {
+      int root = NOT_APPLICABLE;
+      for (int i = 0; i < policySet.size(); i++) {
+        root = builder.combine(root, builder.policy(policySet, i));
+      }
+      return Optional.of(builder.build(root));
+    } catch (BudgetExceededException e) {
+      log.debug("Decision diagram exceeds the budget of {} nodes", nodeBudget);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Only the engine's own conditions are known to be side-effect free, which a diagram needs
+   * because it tests conditions in its own order and skips the ones it does not need.
+   */
+  private static boolean isSupported(Condition<?> condition) {
+    Class<?> type = condition.getClass();
+    return type == ValueCondition.class
+        || type == ListCondition.class
+        || type == DenyListCondition.class;
+  }
+
+  /**
+   * Orders conditions so that tests on the same attribute are adjacent, most referenced attributes
+   * and conditions first. Conditions shared by many policies near the root keep the diagram small.
+   */
+  private static int[] variableOrder(PolicySet policySet) {
+    int[] references = new int[policySet.conditionCount()];
+    int[] attributeReferences = new int[policySet.attributes().size()];
+    for (int i = 0; i < policySet.size(); i++) {
+      for (int id : policySet.conditionIds(i)) {
+        references[id]++;
+        attributeReferences[policySet.conditionSlot(id)]++;
+      }
+    }
+
+    Integer[] order = new Integer[references.length];
+    for (int id = 0; id < order.length; id++) {
+      order[id] = id;
+    }
+    Arrays.sort(
+        order,
+        Comparator.<Integer>comparingInt(id -> -attributeReferences[policySet.conditionSlot(id)])
+            .thenComparingInt(policySet::conditionSlot)
+            .thenComparingInt(id -> -references[id])
+            .thenComparingInt(id -> id));
+
+    int[] level = new int[order.length];
+    for (int position = 0; position < order.length; position++) {
+      level[order[position]] = position;
+    }
+    return level;
+  }
+
+  /**
+   * Gets the number of inner nodes.
+   *
+   * @return The node count
+   */
+  public int nodeCount() {
+    return variables.length;
+  }
+
+  /**
+   * Evaluates the diagram, taking condition results from the request's table.
+   *
+   * @param table The condition table of the request
+   * @return The combined result of all policies
+   */
+  PolicyEvaluationResult evaluate(ConditionTable table) {
+    int node = root;
+    while (node >= LEAVES) {
+      int inner = node - LEAVES;
+      node = table.test(variables[inner]) ? high[inner] : low[inner];
+    }
+    return RESULTS[node];
+  }
+
+  /** Builds nodes bottom-up; node ids below {@link #LEAVES} are leaves. */
+  private static final class Builder {
+    private final int[] level;
+    private final int nodeBudget;
+    private final List<int[]> nodes = new ArrayList<>();
+    private final Map<List<Integer>, Integer> unique = new HashMap<>();
+    private final Map<Long, Integer> combined = new HashMap<>();
+
+    Builder(int[] level, int nodeBudget) {
+      this.level = level;
+      this.nodeBudget = nodeBudget;
+    }
+
+    /** The diagram of one policy: its effect if all conditions hold, otherwise not applicable. */
+    int policy(PolicySet policySet, int policyIndex) {
+      // Build bottom-up, so the condition tested last is created first
+      Integer[] ordered =
+          Arrays.stream(policySet.conditionIds(policyIndex))
+              .distinct()
+              .boxed()
+              .toArray(Integer[]::new);
+      Arrays.sort(ordered, Comparator.comparingInt(id -> -level[id]));
+
+      int node = policySet.effect(policyIndex) == Effect.ALLOW ? ALLOW : DENY;
+      for (int id : ordered) {
+        node = node(id, NOT_APPLICABLE, node);
+      }
+      return node;
+    }
+
+    /** Deny-overrides combination of two diagrams. */
+    int combine(int a, int b) {
+      if (a < LEAVES && b < LEAVES) {
+        return Math.max(a, b);
+      }
+      if (a == b || a == DENY || b == NOT_APPLICABLE) {
+        return a;
+      }
+      if (b == DENY || a == NOT_APPLICABLE) {
+        return b;
+      }
+
+      long key = a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+      Integer cached = combined.get(key);
+      if (cached != null) {
+        return cached;
+      }
+
+      int variable = Math.min(levelOf(a), levelOf(b));
+      int result =
+          node(
+              variableAt(variable, a, b),
+              combine(cofactor(a, variable, false), cofactor(b, variable, false)),
+              combine(cofactor(a, variable, true), cofactor(b, variable, true)));
+      combined.put(key, result);
+      return result;
+    }
+
+    private int levelOf(int node) {
+      return node < LEAVES ? Integer.MAX_VALUE : level[nodes.get(node - LEAVES)[0]];
+    }
+
+    private int variableAt(int variableLevel, int a, int b) {
+      return levelOf(a) == variableLevel ? nodes.get(a - LEAVES)[0] : nodes.get(b - LEAVES)[0];
+    }
+
+    private int cofactor(int node, int variableLevel, boolean value) {
+      if (levelOf(node) != variableLevel) {
+        return node;
+      }
+      int[] inner = nodes.get(node - LEAVES);
+      return value ? inner[2] : inner[1];
+    }
+
+    /** Gets or creates the node testing a condition; a test with equal branches is skipped. */
+    private int node(int conditionId, int low, int high) {
+      if (low == high) {
+        return low;
+      }
+      List<Integer> key = List.of(conditionId, low, high);
+      Integer existing = unique.get(key);
+      if (existing != null) {
+        return existing;
+      }
+      if (nodes.size() >= nodeBudget) {
+        throw BudgetExceededException.INSTANCE;
+      }
+      int id = nodes.size() + LEAVES;
+      nodes.add(new int[] {conditionId, low, high});
+      unique.put(key, id);
+      return id;
+    }
+
+    /** Copies the nodes reachable from the root; intermediate results of combining are dropped. */
+    DecisionDiagram build(int root) {
+      int[] renumbered = new int[nodes.size()];
+      List<Integer> reachable = new ArrayList<>();
+      Deque<Integer> pending = new ArrayDeque<>();
+      if (root >= LEAVES) {
+        pending.push(root);
+      }
+      while (!pending.isEmpty()) {
+        int node = pending.pop();
+        if (renumbered[node - LEAVES] != 0) {
+          continue;
+        }
+        renumbered[node - LEAVES] = reachable.size() + LEAVES;
+        reachable.add(node);
+        for (int child : new int[] {nodes.get(node - LEAVES)[1], nodes.get(node - LEAVES)[2]}) {
+          if (child >= LEAVES && renumbered[child - LEAVES] == 0) {
+            pending.push(child);
+          }
+        }
+      }
+
+      int[] variables = new int[reachable.size()];
+      int[] low = new int[reachable.size()];
+      int[] high = new int[reachable.size()];
+      for (int i = 0; i < reachable.size(); i++) {
+        int[] inner = nodes.get(reachable.get(i) - LEAVES);
+        variables[i] = inner[0];
+        low[i] = inner[1] < LEAVES ? inner[1] : renumbered[inner[1] - LEAVES];
+        high[i] = inner[2] < LEAVES ? inner[2] : renumbered[inner[2] - LEAVES];
+      }
+      return new DecisionDiagram(
+          root < LEAVES ? root : renumbered[root - LEAVES], variables, low, high);
+    }
+  }
+
+  /** Thrown while building to abandon compilation; preallocated, as it is only used for control. */
+  private static final class BudgetExceededException extends RuntimeException {
+    private static final BudgetExceededException INSTANCE = new BudgetExceededException();
+
+    private BudgetExceededException() {
+      super("Decision diagram node budget exceeded", null, false, false);
+    }
+  }
+}
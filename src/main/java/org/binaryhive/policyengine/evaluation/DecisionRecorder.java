@@ -0,0 +1,156 @@
+package org.binaryhive.policyengine.evaluation;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.binaryhive.policyengine.condition.Condition;
+import org.binaryhive.policyengine.model.Policy;
+
+/**
+ * Bounded in-memory capture of slow decisions for a {@link ContextEvaluator}.
+ *
+ * <p>While a recorder is attached, the evaluator times the stages of every decision: policy
+ * retrieval, conversion, condition evaluation and combining. A {@link DecisionTrace} is kept for
+ * decisions that take at least the threshold, and for one decision in every {@code
+ * sampleInterval}, so slow outliers can be compared with typical decisions. Traces go into a ring
+ * buffer that keeps the most recent {@code capacity} of them. Each slot holds the sequence number
+ * of its trace, so a dump taken while traces are being written skips slots that are not yet, or
+ * no longer, holding the trace it expects, and lists the others in capture order.
+ *
+ * <p>Timing adds two clock reads per evaluated condition, so attach a recorder while investigating
+ * rather than permanently on latency-critical paths.
+ *
+ * <pre>{@code
+ * DecisionRecorder recorder = new DecisionRecorder(Duration.ofMillis(1), 10_000, 256);
+ * ContextEvaluator evaluator =
+ *     new ContextEvaluator(policyEvaluator, CombiningAlgorithm.DENY_OVERRIDES, recorder);
+ * ...
+ * recorder.dump().forEach(log::info);
+ * }</pre>
+ */
+public final class DecisionRecorder {
+  private final long thresholdNanos;
+  private final int sampleInterval;
+  private final AtomicReferenceArray<Captured> traces;
+  private final AtomicLong decisions = new AtomicLong();
+  private final AtomicLong captured = new AtomicLong();
+
+  /**
+   * Creates a recorder.
+   *
+   * @param threshold      Decisions taking at least this long are captured
+   * @param sampleInterval Capture one decision in this many regardless of its duration; 0 disables
+   *                       sampling
+   * @param capacity       Number of most recent traces kept
+   */
+  public DecisionRecorder(Duration threshold, int sampleInterval, int capacity) {
+    if (sampleInterval < 0 || capacity < 1) {
+      throw new IllegalArgumentException(
+          "Invalid sample interval or capacity: " + sampleInterval + ", " + capacity);
+    }
+    this.thresholdNanos = threshold.toNanos();
+    this.sampleInterval = sampleInterval;
+    this.traces = new AtomicReferenceArray<>(capacity);
+  }
+
+  /**
+   * Gets the captured traces still in the buffer, oldest first.
+   *
+   * @return A snapshot of the buffer
+   */
+  public List<DecisionTrace> dump() {
+    long end = captured.get();
+    long start = Math.max(0, end - traces.length());
+    List<DecisionTrace> snapshot = new ArrayList<>((int) (end - start));
+    for (long i = start; i < end; i++) {
+      Captured captured = traces.get((int) (i % traces.length()));
+      // The slot may still hold an older trace, or already a newer one, during concurrent captures
+      if (captured != null && captured.sequence() == i) {
+        snapshot.add(captured.trace());
+      }
+    }
+    return snapshot;
+  }
+
+  /**
+   * Gets the number of traces captured since the recorder was created, including those that were
+   * overwritten.
+   *
+   * @return The capture count
+   */
+  public long capturedCount() {
+    return captured.get();
+  }
+
+  /**
+   * Records a finished decision, keeping a trace of it if it is slow or sampled.
+   *
+   * @param action    The action the decision was evaluated for, or null for all actions
+   * @param policies  The policies of the decision, a {@link PolicySet} or a plain list
+   * @param start     Clock reading when the decision started
+   * @param retrieved Clock reading when the policies were retrieved
+   * @param end       Clock reading when the decision finished
+   */
+  void record(
+      EvaluationContext context,
+      String action,
+      List<Policy> policies,
+      PolicyEvaluationResult result,
+      TraceCollector collector,
+      long start,
+      long retrieved,
+      long end) {
+    boolean sampled = sampleInterval > 0 && decisions.getAndIncrement() % sampleInterval == 0;
+    boolean slow = end - start >= thresholdNanos;
+    if (!slow && !sampled) {
+      return;
+    }
+
+    String slowestPolicyId = collector.slowestPolicyId;
+    Condition<?> slowestCondition = collector.slowestCondition;
+    if (collector.slowestConditionId >= 0 && policies instanceof PolicySet policySet) {
+      slowestPolicyId = firstPolicyWith(policySet, collector.slowestConditionId);
+      slowestCondition = policySet.condition(collector.slowestConditionId);
+    }
+    long evaluationNanos = end - retrieved;
+    DecisionTrace trace =
+        new DecisionTrace(
+            System.currentTimeMillis(),
+            context.getActions(),
+            action,
+            result,
+            !slow,
+            policies.size(),
+            collector.conditionsEvaluated,
+            end - start,
+            retrieved - start,
+            collector.conversionNanos,
+            collector.conditionNanos - collector.conversionNanos,
+            Math.max(0, evaluationNanos - collector.conditionNanos),
+            slowestPolicyId,
+            slowestCondition,
+            collector.slowestConditionNanos);
+    Captured entry = new Captured(captured.getAndIncrement(), trace);
+    // A capture that was overtaken by a later one for the same slot must not replace it
+    traces.accumulateAndGet(
+        (int) (entry.sequence() % traces.length()),
+        entry,
+        (current, next) ->
+            current == null || current.sequence() < next.sequence() ? next : current);
+  }
+
+  private static String firstPolicyWith(PolicySet policySet, int conditionId) {
+    for (int i = 0; i < policySet.size(); i++) {
+      for (int id : policySet.conditionIds(i)) {
+        if (id == conditionId) {
+          return policySet.get(i).getPolicyId();
+        }
+      }
+    }
+    return null;
+  }
+
+  /** A trace in the buffer with its capture sequence number. */
+  private record Captured(long sequence, DecisionTrace trace) {}
+}
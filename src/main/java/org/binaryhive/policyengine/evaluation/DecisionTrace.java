@@ -0,0 +1,106 @@
+package org.binaryhive.policyengine.evaluation;
+
+import java.util.Set;
+import lombok.Getter;
+import org.binaryhive.policyengine.condition.Condition;
+
+/**
+ * Timing breakdown of one decision captured by a {@link DecisionRecorder}.
+ *
+ * <p>The stages add up to the total: policy retrieval, the time the context took to return its
+ * policies, conversion of context values, condition evaluation after conversion, and combining,
+ * which covers everything else spent walking the policies. Condition times include
+ * index lookups, which decide several conditions at once.
+ */
+@Getter
+public final class DecisionTrace {
+  /** Wall-clock time the decision finished, in epoch milliseconds. */
+  private final long timestamp;
+
+  private final Set<String> actions;
+
+  /** The action the decision was evaluated for, or null if it covered all actions. */
+  private final String action;
+
+  private final PolicyEvaluationResult result;
+
+  /** Whether the decision was captured by sampling rather than by exceeding the threshold. */
+  private final boolean sampled;
+
+  private final int policyCount;
+  private final int conditionsEvaluated;
+  private final long totalNanos;
+  private final long retrievalNanos;
+  private final long conversionNanos;
+  private final long conditionNanos;
+  private final long combiningNanos;
+
+  /** The first policy that references the slowest condition, or null if none was evaluated. */
+  private final String slowestPolicyId;
+
+  /** The condition, or index lookup, that took longest, or null if none was evaluated. */
+  private final Condition<?> slowestCondition;
+
+  private final long slowestConditionNanos;
+
+  DecisionTrace(
+      long timestamp,
+      Set<String> actions,
+      String action,
+      PolicyEvaluationResult result,
+      boolean sampled,
+      int policyCount,
+      int conditionsEvaluated,
+      long totalNanos,
+      long retrievalNanos,
+      long conversionNanos,
+      long conditionNanos,
+      long combiningNanos,
+      String slowestPolicyId,
+      Condition<?> slowestCondition,
+      long slowestConditionNanos) {
+    this.timestamp = timestamp;
+    this.actions = actions;
+    this.action = action;
+    this.result = result;
+    this.sampled = sampled;
+    this.policyCount = policyCount;
+    this.conditionsEvaluated = conditionsEvaluated;
+    this.totalNanos = totalNanos;
+    this.retrievalNanos = retrievalNanos;
+    this.conversionNanos = conversionNanos;
+    this.conditionNanos = conditionNanos;
+    this.combiningNanos = combiningNanos;
+    this.slowestPolicyId = slowestPolicyId;
+    this.slowestCondition = slowestCondition;
+    this.slowestConditionNanos = slowestConditionNanos;
+  }
+
+  @Override
+  public String toString() {
+    String slowest =
+        slowestCondition == null
+            ? "none"
+            : String.format(
+                "%s %s %s in %s (%d ns)",
+                slowestCondition.getAttribute().getName(),
+                slowestCondition.getOperator(),
+                slowestCondition.getClass().getSimpleName(),
+                slowestPolicyId,
+                slowestConditionNanos);
+    return String.format(
+        "%s %s (%s) in %d ns: retrieval %d, conversion %d, conditions %d, combining %d;"
+            + " %d policies, %d conditions evaluated; slowest %s",
+        action != null ? action : actions,
+        result,
+        sampled ? "sampled" : "slow",
+        totalNanos,
+        retrievalNanos,
+        conversionNanos,
+        conditionNanos,
+        combiningNanos,
+        policyCount,
+        conditionsEvaluated,
+        slowest);
+  }
+}
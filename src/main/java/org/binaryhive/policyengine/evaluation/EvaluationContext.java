@@ -33,6 +33,28 @@ public abstract class EvaluationContext {
         this.context = context != null ? context : new HashMap<>();
     }
 
+    /**
+     * Selects the constructor that uses a subclass's own collections as they are. A separate
+     * argument, so calls of the copying constructor never bind to that one.
+     */
+    protected enum Storage {
+        /** The collections are owned by the subclass and not copied. */
+        SHARED
+    }
+
+    /**
+     * Constructor for subclasses that maintain their own action and attribute collections. Both
+     * are used as they are, without copying, so the subclass can back them with its own storage.
+     *
+     * @param actions The actions to evaluate
+     * @param context The context attributes map
+     * @param storage {@link Storage#SHARED}
+     */
+    protected EvaluationContext(Set<String> actions, Map<String, Object> context, Storage storage) {
+        this.actions = Objects.requireNonNull(actions, "actions");
+        this.context = Objects.requireNonNull(context, "context");
+    }
+
     /**
      * Gets the primary action if only one exists.
      * This is for backward compatibility with code expecting a single action.
@@ -0,0 +1,456 @@
+package org.binaryhive.policyengine.evaluation;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.lang.invoke.MethodHandles;
+import java.util.*;
+import lombok.extern.log4j.Log4j2;
+import org.binaryhive.policyengine.condition.Condition;
+import org.binaryhive.policyengine.condition.ListCondition;
+import org.binaryhive.policyengine.condition.ValueCondition;
+import org.binaryhive.policyengine.model.Attribute;
+import org.binaryhive.policyengine.model.Effect;
+import org.binaryhive.policyengine.model.Operator;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+/**
+ * Policies of a {@link PolicySet} compiled to bytecode. Each policy becomes a hidden class whose
+ * one method tests the policy's conditions as straight-line code, in the set's compiled order.
+ *
+ * <p>Conditions of the engine's own types on plain string and integer attributes are inlined: the
+ * context value is tested against thresholds, strings and small {@code IN} lists that appear as
+ * constants in the bytecode, so the JIT compiles them without calls through {@link
+ * Condition#evaluate} or conversion. Values of another type, missing values, indexed conditions and
+ * all other conditions go through {@link ConditionTable#test}, as they would when interpreted.
+ * Inlined results are stored in the table, so conditions shared between policies are still
+ * evaluated once per request.
+ *
+ * <p>A class per policy keeps every method small. The JIT compiles large generated methods slowly
+ * and recompiles them each time a branch it had never seen taken is reached, which for a method
+ * covering many policies happens for a long time after warm-up. Policies without inlined
+ * conditions are left to the interpreter, as their code would only repeat the interpreter's calls.
+ */
+@Log4j2
+final class GeneratedPolicies {
+  /** Bytecode budget of one generated method, below the JIT's 8000 byte limit for huge methods. */
+  private static final int MAX_METHOD_BYTES = 6_000;
+
+  /** Largest {@code IN} list that is inlined as a switch. */
+  private static final int MAX_INLINED_VALUES = 16;
+
+  private static final String CLASS_NAME =
+      Type.getInternalName(GeneratedPolicies.class) + "Code";
+  private static final String CODE = Type.getInternalName(Code.class);
+  private static final String TABLE = Type.getInternalName(ConditionTable.class);
+  private static final String RESULT = Type.getDescriptor(PolicyEvaluationResult.class);
+  private static final String RESULT_TYPE = Type.getInternalName(PolicyEvaluationResult.class);
+  private static final String EVALUATE =
+      Type.getMethodDescriptor(
+          Type.getType(PolicyEvaluationResult.class), Type.getType(ConditionTable.class));
+
+  // Locals of the generated method
+  private static final int TABLE_LOCAL = 1;
+  private static final int VALUE_LOCAL = 2;
+  private static final int RESULT_LOCAL = 3;
+  private static final int INT_LOCAL = 4;
+
+  /** The generated evaluator of one policy. */
+  interface Code {
+    PolicyEvaluationResult evaluate(ConditionTable table);
+  }
+
+  private final Code[] byPolicy;
+  private final int classCount;
+
+  private GeneratedPolicies(Code[] byPolicy, int classCount) {
+    this.byPolicy = byPolicy;
+    this.classCount = classCount;
+  }
+
+  /**
+   * Generates the code of a policy set.
+   *
+   * @param policySet The policies to compile
+   * @return The generated code, or empty if the classes cannot be defined
+   */
+  static Optional<GeneratedPolicies> generate(PolicySet policySet) {
+    Code[] byPolicy = new Code[policySet.size()];
+    int classCount = 0;
+    try {
+      for (int i = 0; i < policySet.size(); i++) {
+        byPolicy[i] = generate(policySet, i);
+        if (byPolicy[i] != null) {
+          classCount++;
+        }
+      }
+    } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+      log.debug("Cannot generate policy code: {}", e.toString());
+      return Optional.empty();
+    }
+    log.debug("Generated {} of {} policies", classCount, policySet.size());
+    return Optional.of(new GeneratedPolicies(byPolicy, classCount));
+  }
+
+  /**
+   * Generates the code of one policy.
+   *
+   * @return The code, or null if the policy is better interpreted
+   */
+  static Code generate(PolicySet policySet, int policyIndex)
+      throws ReflectiveOperationException {
+    int bytes = estimatedBytes(policySet, policyIndex);
+    if (bytes == 0) {
+      return null;
+    }
+    if (bytes > MAX_METHOD_BYTES) {
+      log.debug("Policy {} is too large to generate and stays interpreted", policyIndex);
+      return null;
+    }
+    byte[] code = generateClass(policySet, policyIndex);
+    MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(code, true);
+    return (Code) lookup.lookupClass().getDeclaredConstructor().newInstance();
+  }
+
+  /**
+   * Evaluates a policy through its generated code.
+   *
+   * @return The result, or null if the policy is not generated
+   */
+  PolicyEvaluationResult evaluate(int policyIndex, ConditionTable table) {
+    Code code = byPolicy[policyIndex];
+    return code != null ? code.evaluate(table) : null;
+  }
+
+  /** The number of hidden classes defined for the set. */
+  int classCount() {
+    return classCount;
+  }
+
+  private static byte[] generateClass(PolicySet policySet, int policyIndex) {
+    ClassWriter writer =
+        new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS) {
+          // Frames only merge values typed as Object, so no classes need to be loaded
+          @Override
+          protected String getCommonSuperClass(String type1, String type2) {
+            return "java/lang/Object";
+          }
+        };
+    writer.visit(
+        V17, ACC_FINAL | ACC_SUPER, CLASS_NAME, null, "java/lang/Object", new String[] {CODE});
+
+    MethodVisitor constructor = writer.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+    constructor.visitCode();
+    constructor.visitVarInsn(ALOAD, 0);
+    constructor.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+    constructor.visitInsn(RETURN);
+    constructor.visitMaxs(0, 0);
+    constructor.visitEnd();
+
+    MethodVisitor method = writer.visitMethod(ACC_PUBLIC, "evaluate", EVALUATE, null, null);
+    method.visitCode();
+    Label notApplicable = new Label();
+    for (int id : policySet.compiledConditionIds(policyIndex)) {
+      condition(method, policySet, id, notApplicable);
+    }
+    String effect = policySet.effect(policyIndex) == Effect.ALLOW ? "ALLOW" : "DENY";
+    method.visitFieldInsn(GETSTATIC, RESULT_TYPE, effect, RESULT);
+    method.visitInsn(ARETURN);
+    method.visitLabel(notApplicable);
+    method.visitFieldInsn(GETSTATIC, RESULT_TYPE, "NOT_APPLICABLE", RESULT);
+    method.visitInsn(ARETURN);
+    method.visitMaxs(0, 0);
+    method.visitEnd();
+
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+
+  /** Tests one condition, jumping to {@code failed} if it does not hold. */
+  private static void condition(
+      MethodVisitor method, PolicySet policySet, int id, Label failed) {
+    Condition<?> condition = policySet.condition(id);
+    if (!inlined(policySet, id)) {
+      method.visitVarInsn(ALOAD, TABLE_LOCAL);
+      push(method, id);
+      method.visitMethodInsn(INVOKEVIRTUAL, TABLE, "test", "(I)Z", false);
+      method.visitJumpInsn(IFEQ, failed);
+      return;
+    }
+
+    Label compute = new Label();
+    Label fallback = new Label();
+    Label next = new Label();
+
+    // A result stored earlier in the request
+    method.visitVarInsn(ALOAD, TABLE_LOCAL);
+    push(method, id);
+    method.visitMethodInsn(INVOKEVIRTUAL, TABLE, "cached", "(I)I", false);
+    method.visitVarInsn(ISTORE, RESULT_LOCAL);
+    method.visitVarInsn(ILOAD, RESULT_LOCAL);
+    method.visitJumpInsn(IFEQ, compute);
+    method.visitVarInsn(ILOAD, RESULT_LOCAL);
+    method.visitInsn(ICONST_1);
+    method.visitJumpInsn(IF_ICMPNE, failed);
+    method.visitJumpInsn(GOTO, next);
+
+    // The inlined test, if the value already has the attribute's type
+    method.visitLabel(compute);
+    method.visitVarInsn(ALOAD, TABLE_LOCAL);
+    push(method, policySet.conditionSlot(id));
+    method.visitMethodInsn(INVOKEVIRTUAL, TABLE, "value", "(I)Ljava/lang/Object;", false);
+    method.visitVarInsn(ASTORE, VALUE_LOCAL);
+    method.visitVarInsn(ALOAD, VALUE_LOCAL);
+    String type = inlinedType(condition);
+    method.visitTypeInsn(INSTANCEOF, type);
+    method.visitJumpInsn(IFEQ, fallback);
+    if (type.equals("java/lang/String")) {
+      stringTest(method, condition);
+    } else {
+      integerTest(method, condition);
+    }
+    method.visitVarInsn(ISTORE, RESULT_LOCAL);
+    method.visitVarInsn(ALOAD, TABLE_LOCAL);
+    push(method, id);
+    method.visitVarInsn(ILOAD, RESULT_LOCAL);
+    method.visitMethodInsn(INVOKEVIRTUAL, TABLE, "accept", "(IZ)V", false);
+    method.visitVarInsn(ILOAD, RESULT_LOCAL);
+    method.visitJumpInsn(IFEQ, failed);
+    method.visitJumpInsn(GOTO, next);
+
+    // Anything else is converted and evaluated as usual
+    method.visitLabel(fallback);
+    method.visitVarInsn(ALOAD, TABLE_LOCAL);
+    push(method, id);
+    method.visitMethodInsn(INVOKEVIRTUAL, TABLE, "test", "(I)Z", false);
+    method.visitJumpInsn(IFEQ, failed);
+    method.visitLabel(next);
+  }
+
+  /** Leaves the result of a condition on a string value in the value local on the stack. */
+  private static void stringTest(MethodVisitor method, Condition<?> condition) {
+    if (condition instanceof ListCondition<?> listCondition) {
+      stringMembership(
+          method, listCondition.getValues(), condition.getOperator() == Operator.NOT_IN);
+      return;
+    }
+
+    String value = (String) ((ValueCondition<?>) condition).getValue();
+    switch (condition.getOperator()) {
+      case EQUALS, NOT_EQUALS -> {
+        method.visitLdcInsn(value);
+        method.visitVarInsn(ALOAD, VALUE_LOCAL);
+        method.visitMethodInsn(
+            INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false);
+        if (condition.getOperator() == Operator.NOT_EQUALS) {
+          method.visitInsn(ICONST_1);
+          method.visitInsn(IXOR);
+        }
+      }
+      case STARTS_WITH, ENDS_WITH -> {
+        stringValue(method);
+        method.visitLdcInsn(value);
+        String name = condition.getOperator() == Operator.STARTS_WITH ? "startsWith" : "endsWith";
+        method.visitMethodInsn(
+            INVOKEVIRTUAL, "java/lang/String", name, "(Ljava/lang/String;)Z", false);
+      }
+      case GREATER_THAN, LESS_THAN -> {
+        stringValue(method);
+        method.visitLdcInsn(value);
+        method.visitMethodInsn(
+            INVOKEVIRTUAL, "java/lang/String", "compareTo", "(Ljava/lang/String;)I", false);
+        bool(method, condition.getOperator() == Operator.GREATER_THAN ? IFLE : IFGE);
+      }
+      default -> throw new IllegalStateException("Not inlined: " + condition.getOperator());
+    }
+  }
+
+  /** Leaves the result of a condition on an integer value in the value local on the stack. */
+  private static void integerTest(MethodVisitor method, Condition<?> condition) {
+    method.visitVarInsn(ALOAD, VALUE_LOCAL);
+    method.visitTypeInsn(CHECKCAST, "java/lang/Integer");
+    method.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Integer", "intValue", "()I", false);
+    method.visitVarInsn(ISTORE, INT_LOCAL);
+
+    if (condition instanceof ListCondition<?> listCondition) {
+      Label found = new Label();
+      Label missing = new Label();
+      int[] keys =
+          listCondition.getValues().stream()
+              .mapToInt(value -> (Integer) value)
+              .sorted()
+              .distinct()
+              .toArray();
+      Label[] cases = new Label[keys.length];
+      Arrays.fill(cases, found);
+      method.visitVarInsn(ILOAD, INT_LOCAL);
+      method.visitLookupSwitchInsn(missing, keys, cases);
+      membershipResult(method, found, missing, condition.getOperator() == Operator.NOT_IN);
+      return;
+    }
+
+    method.visitVarInsn(ILOAD, INT_LOCAL);
+    push(method, (Integer) ((ValueCondition<?>) condition).getValue());
+    // Jumps when the condition does not hold
+    int failing =
+        switch (condition.getOperator()) {
+          case EQUALS -> IF_ICMPNE;
+          case NOT_EQUALS -> IF_ICMPEQ;
+          case GREATER_THAN -> IF_ICMPLE;
+          case LESS_THAN -> IF_ICMPGE;
+          default -> throw new IllegalStateException("Not inlined: " + condition.getOperator());
+        };
+    bool(method, failing);
+  }
+
+  /**
+   * Leaves whether the string value is one of the values, or not for {@code NOT_IN}, on the stack.
+   * The value's hash code selects the candidates to compare with, so a member needs one {@code
+   * equals} call and most other values none, and the method holds a single call site for them.
+   */
+  private static void stringMembership(MethodVisitor method, List<?> values, boolean negate) {
+    TreeMap<Integer, List<String>> byHash = new TreeMap<>();
+    for (Object value : values) {
+      byHash.computeIfAbsent(value.hashCode(), hash -> new ArrayList<>()).add((String) value);
+    }
+    Label found = new Label();
+    Label missing = new Label();
+    Label compare = new Label();
+    int[] keys = byHash.keySet().stream().mapToInt(Integer::intValue).toArray();
+    Label[] cases = new Label[keys.length];
+    for (int i = 0; i < cases.length; i++) {
+      cases[i] = new Label();
+    }
+    stringValue(method);
+    method.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "hashCode", "()I", false);
+    method.visitLookupSwitchInsn(missing, keys, cases);
+    for (int i = 0; i < cases.length; i++) {
+      method.visitLabel(cases[i]);
+      List<String> candidates = byHash.get(keys[i]);
+      // Values with equal hash codes are compared in turn
+      for (String candidate : candidates.subList(0, candidates.size() - 1)) {
+        method.visitLdcInsn(candidate);
+        method.visitVarInsn(ALOAD, VALUE_LOCAL);
+        method.visitMethodInsn(
+            INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false);
+        method.visitJumpInsn(IFNE, found);
+      }
+      method.visitLdcInsn(candidates.get(candidates.size() - 1));
+      method.visitJumpInsn(GOTO, compare);
+    }
+    method.visitLabel(compare);
+    method.visitVarInsn(ALOAD, VALUE_LOCAL);
+    method.visitMethodInsn(
+        INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false);
+    method.visitJumpInsn(IFNE, found);
+    membershipResult(method, found, missing, negate);
+  }
+
+  /** Leaves 1 on the stack if the value is a member, or 0, inverted for {@code NOT_IN}. */
+  private static void membershipResult(
+      MethodVisitor method, Label found, Label missing, boolean negate) {
+    Label end = new Label();
+    method.visitLabel(missing);
+    method.visitInsn(negate ? ICONST_1 : ICONST_0);
+    method.visitJumpInsn(GOTO, end);
+    method.visitLabel(found);
+    method.visitInsn(negate ? ICONST_0 : ICONST_1);
+    method.visitLabel(end);
+  }
+
+  /** Turns a conditional jump that is taken when the condition fails into 0 or 1 on the stack. */
+  private static void bool(MethodVisitor method, int failingJump) {
+    Label fails = new Label();
+    Label end = new Label();
+    method.visitJumpInsn(failingJump, fails);
+    method.visitInsn(ICONST_1);
+    method.visitJumpInsn(GOTO, end);
+    method.visitLabel(fails);
+    method.visitInsn(ICONST_0);
+    method.visitLabel(end);
+  }
+
+  private static void stringValue(MethodVisitor method) {
+    method.visitVarInsn(ALOAD, VALUE_LOCAL);
+    method.visitTypeInsn(CHECKCAST, "java/lang/String");
+  }
+
+  private static void push(MethodVisitor method, int value) {
+    if (value >= -1 && value <= 5) {
+      method.visitInsn(ICONST_0 + value);
+    } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+      method.visitIntInsn(BIPUSH, value);
+    } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+      method.visitIntInsn(SIPUSH, value);
+    } else {
+      method.visitLdcInsn(value);
+    }
+  }
+
+  /**
+   * The internal name of the value type a condition is inlined for, or null if it is evaluated
+   * through the table. Only the engine's own condition classes are inlined, on attributes whose
+   * values of their own type need no conversion, with operators and values whose result the
+   * generated code reproduces exactly.
+   */
+  private static String inlinedType(Condition<?> condition) {
+    Attribute<?> attribute = condition.getAttribute();
+    if (attribute == null || !attribute.acceptsInstances()) {
+      return null;
+    }
+    Class<?> type = attribute.getType();
+    Operator operator = condition.getOperator();
+    if (condition.getClass() == ValueCondition.class) {
+      Object value = ((ValueCondition<?>) condition).getValue();
+      if (!type.isInstance(value)) {
+        return null;
+      }
+      boolean supported =
+          switch (operator) {
+            case EQUALS, NOT_EQUALS, GREATER_THAN, LESS_THAN -> true;
+            case STARTS_WITH, ENDS_WITH -> type == String.class;
+            default -> false;
+          };
+      return supported ? Type.getInternalName(type) : null;
+    }
+    if (condition.getClass() == ListCondition.class) {
+      List<?> values = ((ListCondition<?>) condition).getValues();
+      if (values == null || values.size() > MAX_INLINED_VALUES) {
+        return null;
+      }
+      for (Object value : values) {
+        if (!type.isInstance(value)) {
+          return null;
+        }
+      }
+      return Type.getInternalName(type);
+    }
+    return null;
+  }
+
+  /** A generous estimate of the bytecode of a policy's method, or 0 if no condition is inlined. */
+  private static int estimatedBytes(PolicySet policySet, int policyIndex) {
+    int bytes = 8;
+    boolean inlined = false;
+    for (int id : policySet.compiledConditionIds(policyIndex)) {
+      Condition<?> condition = policySet.condition(id);
+      if (!inlined(policySet, id)) {
+        bytes += 12;
+      } else if (condition instanceof ListCondition<?> listCondition) {
+        bytes += 64 + 12 * listCondition.getValues().size();
+        inlined = true;
+      } else {
+        bytes += 72;
+        inlined = true;
+      }
+    }
+    return inlined ? bytes : 0;
+  }
+
+  private static boolean inlined(PolicySet policySet, int conditionId) {
+    return policySet.indexes().indexOf(conditionId) < 0
+        && inlinedType(policySet.condition(conditionId)) != null;
+  }
+}
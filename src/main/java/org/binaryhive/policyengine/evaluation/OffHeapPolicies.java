@@ -0,0 +1,172 @@
+package org.binaryhive.policyengine.evaluation;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import org.binaryhive.policyengine.condition.Condition;
+import org.binaryhive.policyengine.model.Effect;
+import org.binaryhive.policyengine.model.Policy;
+
+/**
+ * The policies of a {@link PolicySet} encoded into one direct {@link ByteBuffer}, so that millions
+ * of policies do not keep millions of {@link Policy} objects, condition lists and id arrays on the
+ * heap. The evaluator reads effects and condition ids from the buffer; {@link Policy} objects are
+ * decoded only when a caller asks for one.
+ *
+ * <p>The buffer starts with the offset of each policy's record. A record holds the effect, the
+ * priority, the condition count, the condition ids in evaluation order, the condition ids in
+ * declaration order, and the id, name and description as UTF-8.
+ */
+final class OffHeapPolicies {
+  private static final int EFFECT = 0;
+  private static final int PRIORITY = 1;
+  private static final int COUNT = 5;
+  private static final int CONDITIONS = 9;
+  private static final byte NO_EFFECT = -1;
+  private static final Effect[] EFFECTS = Effect.values();
+
+  private final ByteBuffer buffer;
+  private final int size;
+
+  private OffHeapPolicies(ByteBuffer buffer, int size) {
+    this.buffer = buffer;
+    this.size = size;
+  }
+
+  /**
+   * Encodes policies with their interned condition ids.
+   *
+   * @param policies         The policies
+   * @param declared         The condition ids of each policy in declaration order
+   * @param policyConditions The condition ids of each policy in evaluation order
+   * @return The encoded policies
+   * @throws IllegalArgumentException if the policies do not fit into one buffer
+   */
+  static OffHeapPolicies encode(Policy[] policies, int[][] declared, int[][] policyConditions) {
+    byte[][] strings = new byte[policies.length * 3][];
+    long capacity = 4L * policies.length;
+    for (int i = 0; i < policies.length; i++) {
+      strings[3 * i] = utf8(policies[i].getPolicyId());
+      strings[3 * i + 1] = utf8(policies[i].getName());
+      strings[3 * i + 2] = utf8(policies[i].getDescription());
+      capacity += CONDITIONS + 8L * declared[i].length;
+      for (int s = 3 * i; s < 3 * i + 3; s++) {
+        capacity += 4 + (strings[s] != null ? strings[s].length : 0);
+      }
+    }
+    if (capacity > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(
+          "Policies need " + capacity + " bytes, more than fit into one buffer");
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocateDirect((int) capacity);
+    int offset = 4 * policies.length;
+    for (int i = 0; i < policies.length; i++) {
+      buffer.putInt(4 * i, offset);
+      buffer.position(offset);
+      Effect effect = policies[i].getEffect();
+      buffer.put(effect != null ? (byte) effect.ordinal() : NO_EFFECT);
+      buffer.putInt(policies[i].getPriority());
+      buffer.putInt(declared[i].length);
+      for (int id : policyConditions[i]) {
+        buffer.putInt(id);
+      }
+      for (int id : declared[i]) {
+        buffer.putInt(id);
+      }
+      for (int s = 3 * i; s < 3 * i + 3; s++) {
+        byte[] string = strings[s];
+        buffer.putInt(string != null ? string.length : -1);
+        if (string != null) {
+          buffer.put(string);
+        }
+      }
+      offset = buffer.position();
+    }
+    return new OffHeapPolicies(buffer, policies.length);
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** The number of bytes held off-heap. */
+  int bytes() {
+    return buffer.capacity();
+  }
+
+  Effect effect(int policyIndex) {
+    byte effect = buffer.get(record(policyIndex) + EFFECT);
+    return effect != NO_EFFECT ? EFFECTS[effect] : null;
+  }
+
+  /** The position of the first condition id of a policy, in evaluation order. */
+  int conditionsStart(int policyIndex) {
+    return record(policyIndex) + CONDITIONS;
+  }
+
+  /** The position after the last condition id of a policy, in evaluation order. */
+  int conditionsEnd(int policyIndex) {
+    int record = record(policyIndex);
+    return record + CONDITIONS + 4 * buffer.getInt(record + COUNT);
+  }
+
+  /** The condition id at a position between {@link #conditionsStart} and {@link #conditionsEnd}. */
+  int conditionId(int position) {
+    return buffer.getInt(position);
+  }
+
+  /** Copies the condition ids of a policy in evaluation order. */
+  int[] conditionIds(int policyIndex) {
+    int start = conditionsStart(policyIndex);
+    int[] ids = new int[(conditionsEnd(policyIndex) - start) / 4];
+    for (int k = 0; k < ids.length; k++) {
+      ids[k] = buffer.getInt(start + 4 * k);
+    }
+    return ids;
+  }
+
+  /**
+   * Decodes a policy. Each call creates a new {@link Policy}.
+   *
+   * @param policyIndex The index of the policy
+   * @param conditions  The interned conditions of the set
+   * @return The policy
+   */
+  Policy policy(int policyIndex, Condition<?>[] conditions) {
+    int record = record(policyIndex);
+    int count = buffer.getInt(record + COUNT);
+    int position = record + CONDITIONS + 4 * count;
+    List<Condition<?>> policyConditions = new ArrayList<>(count);
+    for (int k = 0; k < count; k++) {
+      policyConditions.add(conditions[buffer.getInt(position)]);
+      position += 4;
+    }
+    String[] strings = new String[3];
+    for (int s = 0; s < strings.length; s++) {
+      int length = buffer.getInt(position);
+      position += 4;
+      if (length >= 0) {
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        strings[s] = new String(bytes, StandardCharsets.UTF_8);
+        position += length;
+      }
+    }
+    return new Policy(
+        strings[0],
+        strings[1],
+        strings[2],
+        policyConditions,
+        effect(policyIndex),
+        buffer.getInt(record + PRIORITY));
+  }
+
+  private int record(int policyIndex) {
+    return buffer.getInt(4 * policyIndex);
+  }
+
+  private static byte[] utf8(String string) {
+    return string != null ? string.getBytes(StandardCharsets.UTF_8) : null;
+  }
+}
@@ -0,0 +1,136 @@
+package org.binaryhive.policyengine.evaluation;
+
+import java.util.*;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.binaryhive.policyengine.condition.Condition;
+import org.binaryhive.policyengine.model.Effect;
+import org.binaryhive.policyengine.model.Policy;
+
+/**
+ * Specializes policies for attributes that are known in advance, such as the subject attributes of
+ * a session.
+ *
+ * <p>Every condition on a known attribute is evaluated once. Policies with a condition that fails
+ * can never apply and are dropped; conditions that hold are removed from the surviving policies.
+ * The result is a residual {@link PolicySet} whose conditions only read the remaining attributes,
+ * and evaluating it for a context gives the same result as evaluating the original policies for
+ * that context together with the known attributes.
+ *
+ * <pre>{@code
+ * PolicySet sessionPolicies =
+ *     partialEvaluator.specialize(policies, Map.of("role", user.getRole(), "department", dept));
+ * }</pre>
+ */
+@Log4j2
+@RequiredArgsConstructor
+public final class PartialEvaluator {
+
+  private final PolicyEvaluator policyEvaluator;
+
+  /**
+   * Specializes policies for known attribute values. An attribute that maps to null is known to be
+   * absent. Policy order is preserved.
+   *
+   * @param policies The policies to specialize
+   * @param known    The attribute values known in advance
+   * @return The residual policy set; it has a decision diagram, adaptive orders and off-heap
+   *     storage if the source set had them
+   */
+  public PolicySet specialize(Collection<Policy> policies, Map<String, Object> known) {
+    // Equal conditions are shared between policies, so each is evaluated once
+    Map<Condition<?>, Boolean> decided = new HashMap<>();
+    List<Policy> residual = new ArrayList<>();
+    for (Policy policy : policies) {
+      Policy residualPolicy = residualPolicy(policy, known, decided);
+      if (residualPolicy != null) {
+        residual.add(residualPolicy);
+      }
+    }
+    log.debug(
+        "Specialized {} policies to {} for attributes {}",
+        policies.size(),
+        residual.size(),
+        known.keySet());
+
+    PolicySet residualSet = PolicySet.of(residual);
+    if (policies instanceof PolicySet policySet) {
+      if (policySet.isOffHeap()) {
+        residualSet = residualSet.withOffHeapStorage();
+      }
+      if (policySet.hasGeneratedCode()) {
+        residualSet = residualSet.withGeneratedCode();
+      }
+      TieredPolicies tiered = policySet.tieredPolicies();
+      if (tiered != null) {
+        residualSet =
+            residualSet.withTieredCode(
+                tiered.compileThreshold(), tiered.decayInterval(), tiered.executor());
+      }
+      if (policySet.diagram() != null) {
+        residualSet = residualSet.withDecisionDiagram();
+      }
+      AdaptiveConditionOrder conditionOrder = policySet.adaptiveConditionOrder();
+      if (conditionOrder != null) {
+        residualSet =
+            residualSet.withAdaptiveConditionOrder(
+                conditionOrder.sampleInterval(),
+                conditionOrder.reorderInterval(),
+                conditionOrder.executor());
+      }
+      AdaptivePolicyOrder policyOrder = policySet.adaptivePolicyOrder();
+      if (policyOrder != null) {
+        residualSet =
+            residualSet.withAdaptivePolicyOrder(
+                policyOrder.sampleInterval(),
+                policyOrder.reorderInterval(),
+                policyOrder.executor());
+      }
+    }
+    return residualSet;
+  }
+
+  /**
+   * Reduces deny-overrides evaluation of the policies to a constraint over the attributes that are
+   * not known, such as resource attributes. A resource satisfies the expression exactly when
+   * evaluating the policies for it together with the known attributes results in {@code ALLOW}.
+   *
+   * @param policies The policies of one action
+   * @param known    The attribute values known in advance, such as subject attributes
+   * @return The normalized constraint expression
+   */
+  public ConstraintExpression constraints(Collection<Policy> policies, Map<String, Object> known) {
+    Set<List<Condition<?>>> allowClauses = new LinkedHashSet<>();
+    Set<List<Condition<?>>> denyClauses = new LinkedHashSet<>();
+    for (Policy policy : specialize(policies, known)) {
+      List<Condition<?>> clause = Clauses.normalize(policy.getConditions());
+      if (clause != null) {
+        (policy.getEffect() == Effect.ALLOW ? allowClauses : denyClauses).add(clause);
+      }
+    }
+    return new ConstraintExpression(
+        List.copyOf(allowClauses), List.copyOf(denyClauses), policyEvaluator);
+  }
+
+  /**
+   * Returns the policy without its met conditions, the policy itself if no condition is on a known
+   * attribute, or null if a condition is not met.
+   */
+  private Policy residualPolicy(
+      Policy policy, Map<String, Object> known, Map<Condition<?>, Boolean> decided) {
+    List<Condition<?>> remaining = new ArrayList<>();
+    for (Condition<?> condition : policy.getConditions()) {
+      String name = condition.getAttribute().getName();
+      if (!known.containsKey(name)) {
+        remaining.add(condition);
+      } else if (!decided.computeIfAbsent(
+          condition, c -> policyEvaluator.evaluateCondition(c, known.get(name)))) {
+        return null;
+      }
+    }
+    if (remaining.size() == policy.getConditions().size()) {
+      return policy;
+    }
+    return policy.withConditions(List.copyOf(remaining));
+  }
+}
@@ -0,0 +1,151 @@
+package org.binaryhive.policyengine.evaluation;
+
+import java.util.*;
+import lombok.extern.log4j.Log4j2;
+import org.binaryhive.policyengine.model.Effect;
+import org.binaryhive.policyengine.model.Policy;
+
+/**
+ * Walks the policies of a request for a {@link CombiningStrategy}, evaluating them until the
+ * strategy's outcome is decided.
+ */
+@Log4j2
+final class PolicyCombiner {
+
+  private PolicyCombiner() {}
+
+  /**
+   * Evaluates the policies of a set in order until the outcome is decided. Sets with condition
+   * indexes visit only the {@link ConditionTable#candidates() candidate} policies; the others are
+   * not applicable, which leaves the outcome unchanged unless the strategy stops at that result.
+   *
+   * @param strategy The combining strategy
+   * @param table The condition results of the request
+   * @param policyEvaluator The evaluator of single policies
+   * @return The combined result
+   */
+  static PolicyEvaluationResult combine(
+      CombiningStrategy strategy, ConditionTable table, PolicyEvaluator policyEvaluator) {
+    PolicySet policySet = table.policySet();
+    Effect decisiveEffect = strategy.decisiveEffect();
+    AdaptivePolicyOrder policyOrder =
+        decisiveEffect != null ? policySet.adaptivePolicyOrder() : null;
+    boolean sampled = policyOrder != null && policyOrder.sampleRequest();
+    TieredPolicies tiered = policySet.tieredPolicies();
+    if (tiered != null) {
+      tiered.request();
+    }
+    int[] order = policySet.evaluationOrder(decisiveEffect);
+    // Sampled requests observe every policy, so the adaptive order sees unbiased decision rates
+    long[] candidates =
+        sampled || strategy.isDecisive(PolicyEvaluationResult.NOT_APPLICABLE)
+            ? null
+            : table.candidates();
+    boolean anyAllow = false;
+    boolean anyDeny = false;
+    for (int k = 0; k < order.length; k++) {
+      int i = order[k];
+      if (k > 0
+          && policySet.priority(i) != policySet.priority(order[k - 1])
+          && strategy.isDecidedBefore(anyAllow, anyDeny)) {
+        log.debug("{} decided before priority {}", strategy, policySet.priority(i));
+        return strategy.otherwise(anyAllow, anyDeny);
+      }
+      if (candidates != null && (candidates[i >>> 6] & 1L << i) == 0) {
+        continue;
+      }
+      PolicyEvaluationResult result;
+      if (sampled) {
+        long start = System.nanoTime();
+        result = policyEvaluator.evaluate(i, table);
+        policyOrder.record(i, result, System.nanoTime() - start);
+      } else {
+        result = policyEvaluator.evaluate(i, table);
+      }
+      if (log.isDebugEnabled()) {
+        // Off-heap sets decode the policy, so only look it up when logging
+        log.debug("Policy {} evaluated to {}", policySet.get(i).getName(), result);
+      }
+
+      if (strategy.isDecisive(result)) {
+        log.debug("{} decided by policy {} of {}", strategy, k + 1, order.length);
+        return result;
+      }
+      anyAllow |= result == PolicyEvaluationResult.ALLOW;
+      anyDeny |= result == PolicyEvaluationResult.DENY;
+    }
+    return strategy.otherwise(anyAllow, anyDeny);
+  }
+
+  /**
+   * Evaluates plain policies one by one in priority order until the outcome is decided. Used for
+   * lists that are not a {@link PolicySet}: compiling such a list for a single request costs more
+   * than evaluating its policies directly.
+   *
+   * @param strategy The combining strategy
+   * @param policies The policies of the request
+   * @param context The context attributes
+   * @param policyEvaluator The evaluator of single policies
+   * @return The combined result
+   */
+  static PolicyEvaluationResult combine(
+      CombiningStrategy strategy,
+      List<Policy> policies,
+      Map<String, Object> context,
+      PolicyEvaluator policyEvaluator) {
+    return combine(strategy, policies, context, policyEvaluator, null);
+  }
+
+  /**
+   * Evaluates plain policies like {@link #combine(CombiningStrategy, List, Map, PolicyEvaluator)},
+   * timing each condition for a trace.
+   *
+   * @param trace The collector of condition timings, or null to evaluate untimed
+   */
+  static PolicyEvaluationResult combine(
+      CombiningStrategy strategy,
+      List<Policy> policies,
+      Map<String, Object> context,
+      PolicyEvaluator policyEvaluator,
+      TraceCollector trace) {
+    boolean anyAllow = false;
+    boolean anyDeny = false;
+    Policy previous = null;
+    for (Policy policy : byPriority(policies)) {
+      if (previous != null
+          && policy.getPriority() != previous.getPriority()
+          && strategy.isDecidedBefore(anyAllow, anyDeny)) {
+        log.debug("{} decided before priority {}", strategy, policy.getPriority());
+        return strategy.otherwise(anyAllow, anyDeny);
+      }
+      previous = policy;
+      PolicyEvaluationResult result =
+          trace != null
+              ? policyEvaluator.evaluate(policy, context, trace)
+              : policyEvaluator.evaluate(policy, context);
+      log.debug("Policy {} evaluated to {}", policy.getName(), result);
+
+      if (strategy.isDecisive(result)) {
+        return result;
+      }
+      anyAllow |= result == PolicyEvaluationResult.ALLOW;
+      anyDeny |= result == PolicyEvaluationResult.DENY;
+    }
+    return strategy.otherwise(anyAllow, anyDeny);
+  }
+
+  /** The policies by descending priority, keeping list order; lists of one priority as given. */
+  private static List<Policy> byPriority(List<Policy> policies) {
+    Iterator<Policy> iterator = policies.iterator();
+    int first = iterator.hasNext() ? iterator.next().getPriority() : 0;
+    while (iterator.hasNext()) {
+      if (iterator.next().getPriority() != first) {
+        List<Policy> sorted = new ArrayList<>(policies);
+        // Stable, so policies of equal priority keep their list order
+        sorted.sort(Comparator.comparingInt(Policy::getPriority).reversed());
+        return sorted;
+      }
+    }
+    return policies;
+  }
+}
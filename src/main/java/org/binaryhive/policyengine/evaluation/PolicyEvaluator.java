@@ -3,6 +3,7 @@ package org.binaryhive.policyengine.evaluation;
 import java.util.*;
 import lombok.extern.log4j.Log4j2;
 import org.binaryhive.policyengine.condition.Condition;
+import org.binaryhive.policyengine.condition.ListCondition;
 import org.binaryhive.policyengine.model.Effect;
 import org.binaryhive.policyengine.model.Policy;
 
@@ -23,19 +24,97 @@ public final class PolicyEvaluator {
     }
   }
 
+  /** Evaluates a policy of a plain list, timing each condition for the given trace. */
+  PolicyEvaluationResult evaluate(
+      Policy policy, Map<String, Object> context, TraceCollector trace) {
+    for (Condition<?> condition : policy.getConditions()) {
+      long start = System.nanoTime();
+      boolean met =
+          evaluateCondition(condition, context.get(condition.getAttribute().getName()), trace);
+      trace.condition(policy, condition, System.nanoTime() - start);
+      if (!met) {
+        return PolicyEvaluationResult.NOT_APPLICABLE;
+      }
+    }
+    return policy.getEffect() == Effect.ALLOW
+        ? PolicyEvaluationResult.ALLOW
+        : PolicyEvaluationResult.DENY;
+  }
+
+  /**
+   * Evaluates a policy of a {@link PolicySet}, reading condition results from the shared table so
+   * conditions already decided for this request are not evaluated again.
+   */
+  PolicyEvaluationResult evaluate(int policyIndex, ConditionTable table) {
+    PolicySet policySet = table.policySet();
+    if (policySet.adaptiveConditionOrder() == null && !table.instrumented()) {
+      GeneratedPolicies generated = policySet.generatedPolicies();
+      TieredPolicies tiered = policySet.tieredPolicies();
+      PolicyEvaluationResult result = null;
+      if (generated != null) {
+        result = generated.evaluate(policyIndex, table);
+      } else if (tiered != null) {
+        result = tiered.evaluate(policySet, policyIndex, table);
+      }
+      if (result != null) {
+        return result;
+      }
+    }
+    OffHeapPolicies offHeap = policySet.offHeapPolicies();
+    if (offHeap != null && policySet.adaptiveConditionOrder() == null) {
+      // Condition ids are read in place from direct memory
+      int end = offHeap.conditionsEnd(policyIndex);
+      for (int position = offHeap.conditionsStart(policyIndex); position < end; position += 4) {
+        if (!table.test(offHeap.conditionId(position))) {
+          return PolicyEvaluationResult.NOT_APPLICABLE;
+        }
+      }
+    } else {
+      for (int conditionId : policySet.conditionIds(policyIndex)) {
+        if (!table.test(conditionId)) {
+          return PolicyEvaluationResult.NOT_APPLICABLE;
+        }
+      }
+    }
+    return policySet.effect(policyIndex) == Effect.ALLOW
+        ? PolicyEvaluationResult.ALLOW
+        : PolicyEvaluationResult.DENY;
+  }
+
   private boolean evaluateCondition(Condition<?> condition, Map<String, Object> context) {
-    var attributeName = condition.getAttribute().getName();
-    var rawContextValue = context.get(attributeName);
+    return evaluateCondition(condition, context.get(condition.getAttribute().getName()));
+  }
+
+  boolean evaluateCondition(Condition<?> condition, Object rawContextValue) {
+    return evaluateCondition(condition, rawContextValue, null);
+  }
 
+  /** Evaluates a condition, reporting the time spent converting the value if a trace is given. */
+  boolean evaluateCondition(
+      Condition<?> condition, Object rawContextValue, TraceCollector trace) {
     if (rawContextValue == null) {
       return evaluateWithNull(condition);
     }
 
     try {
-      var convertedValue = condition.getAttribute().convert(rawContextValue);
+      if (rawContextValue instanceof String delimited
+          && condition instanceof ListCondition<?> listCondition
+          && condition.getAttribute().getElementType() != null) {
+        // Membership over the raw string, without materializing the list
+        return listCondition.evaluateDelimited(delimited);
+      }
+      Object convertedValue;
+      if (trace != null) {
+        long start = System.nanoTime();
+        convertedValue = condition.getAttribute().convert(rawContextValue);
+        trace.conversion(System.nanoTime() - start);
+      } else {
+        convertedValue = condition.getAttribute().convert(rawContextValue);
+      }
       return evaluateTyped(condition, convertedValue);
     } catch (Exception e) {
-      log.warn("Error evaluating condition: {}: {}", attributeName, e.getMessage());
+      log.warn(
+          "Error evaluating condition: {}: {}", condition.getAttribute().getName(), e.getMessage());
       return false;
     }
   }
@@ -0,0 +1,248 @@
+package org.binaryhive.policyengine.evaluation;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import lombok.extern.log4j.Log4j2;
+import org.binaryhive.policyengine.exception.PolicyEvaluationException;
+import org.binaryhive.policyengine.model.Policy;
+
+/**
+ * Registry of compiled policy sets by key, such as a tenant id, for deployments where each key has
+ * its own policies and only some keys are active at any time.
+ *
+ * <p>A key's policies are loaded and compiled on first access. Concurrent first requests for the
+ * same key share a single load: one thread runs the loader and the others wait for its result. A
+ * failed load is not cached, so the next request tries again.
+ *
+ * <p>The registry keeps the sets within a memory budget measured by {@link
+ * PolicySet#estimatedBytes()}. When a load takes it over the budget, sets that were used least
+ * recently are evicted until it fits again, and are loaded again on their next access. Recency is
+ * tracked with a timestamp per key that reads refresh at most once per {@link
+ * #ACCESS_GRANULARITY_NANOS}, so reads take no lock and rarely write. Eviction is sampled: each
+ * round compares the next {@link #EVICTION_SAMPLES} loaded sets in map order and evicts the least
+ * recently used of them, so a load costs the same however many keys are loaded. The set that was
+ * just loaded is never evicted, even if it exceeds the budget on its own.
+ *
+ * <pre>{@code
+ * PolicyRegistry<String> registry =
+ *     new PolicyRegistry<>(policyStore::loadTenant, PolicySet::withOffHeapStorage, 512L << 20);
+ *
+ * class TenantContext extends EvaluationContext {
+ *   ...
+ *   public List<Policy> policies() {
+ *     return registry.policies(tenantId);
+ *   }
+ * }
+ * }</pre>
+ *
+ * @param <K> The key type
+ */
+@Log4j2
+public final class PolicyRegistry<K> {
+  /** Reads refresh the access time of a key only if it is older than this. */
+  static final long ACCESS_GRANULARITY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  /** The number of loaded sets compared to pick each evicted set. */
+  static final int EVICTION_SAMPLES = 8;
+
+  private final Function<? super K, ? extends Collection<Policy>> loader;
+  private final UnaryOperator<PolicySet> compiler;
+  private final long memoryBudget;
+  private final ConcurrentHashMap<K, Entry> entries = new ConcurrentHashMap<>();
+
+  /** Guards the accounting of loaded sets; loads themselves run outside of it. */
+  private final Object lock = new Object();
+
+  private long usedBytes;
+
+  /** Where the next eviction round continues sampling; guarded by the lock. */
+  private Iterator<Map.Entry<K, Entry>> evictionHand = Collections.emptyIterator();
+
+  /**
+   * Creates a registry that compiles loaded policies with {@link PolicySet#of}.
+   *
+   * @param loader       Loads the policies of a key
+   * @param memoryBudget The estimated bytes the loaded sets may use together
+   */
+  public PolicyRegistry(
+      Function<? super K, ? extends Collection<Policy>> loader, long memoryBudget) {
+    this(loader, UnaryOperator.identity(), memoryBudget);
+  }
+
+  /**
+   * Creates a registry.
+   *
+   * @param loader       Loads the policies of a key
+   * @param compiler     Turns the compiled set of a key into the stored one, for example with
+   *                     {@link PolicySet#withDecisionDiagram()}
+   * @param memoryBudget The estimated bytes the loaded sets may use together
+   */
+  public PolicyRegistry(
+      Function<? super K, ? extends Collection<Policy>> loader,
+      UnaryOperator<PolicySet> compiler,
+      long memoryBudget) {
+    if (memoryBudget < 0) {
+      throw new IllegalArgumentException("Memory budget must not be negative: " + memoryBudget);
+    }
+    this.loader = loader;
+    this.compiler = compiler;
+    this.memoryBudget = memoryBudget;
+  }
+
+  /**
+   * Gets the policy set of a key, loading it if it is not loaded yet.
+   *
+   * @param key The key
+   * @return The compiled policy set
+   * @throws PolicyEvaluationException if the policies cannot be loaded
+   */
+  public PolicySet policies(K key) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      Entry created = new Entry();
+      entry = entries.putIfAbsent(key, created);
+      if (entry == null) {
+        entry = created;
+        load(key, created);
+      }
+    }
+    long now = System.nanoTime();
+    if (now - entry.lastAccess > ACCESS_GRANULARITY_NANOS) {
+      entry.lastAccess = now;
+    }
+    return entry.await(key);
+  }
+
+  /**
+   * Removes the policy set of a key, so it is loaded again on next access. A load in progress is
+   * not interrupted, but its result is not kept.
+   *
+   * @param key The key
+   */
+  public void invalidate(K key) {
+    synchronized (lock) {
+      Entry entry = entries.remove(key);
+      if (entry != null) {
+        usedBytes -= entry.bytes;
+      }
+    }
+  }
+
+  /**
+   * Gets the number of keys whose policies are loaded or being loaded.
+   *
+   * @return The key count
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Gets the estimated memory used by the loaded sets.
+   *
+   * @return The estimated bytes
+   */
+  public long usedBytes() {
+    synchronized (lock) {
+      return usedBytes;
+    }
+  }
+
+  private void load(K key, Entry entry) {
+    PolicySet policySet;
+    try {
+      policySet = compiler.apply(PolicySet.of(loader.apply(key)));
+    } catch (Throwable e) {
+      // Not cached; the waiting requests fail with it and the next request loads again
+      entries.remove(key, entry);
+      entry.future.completeExceptionally(e);
+      if (e instanceof Error error) {
+        throw error;
+      }
+      return;
+    }
+
+    long bytes = policySet.estimatedBytes();
+    synchronized (lock) {
+      // An invalidation during the load drops the result after the waiting requests get it
+      if (entries.get(key) == entry) {
+        entry.bytes = bytes;
+        usedBytes += bytes;
+        evict(entry);
+      }
+    }
+    log.debug("Loaded {} policies for {} ({} bytes)", policySet.size(), key, bytes);
+    entry.future.complete(policySet);
+  }
+
+  /** Evicts sampled least recently used sets other than the given one until within budget. */
+  private void evict(Entry keep) {
+    while (usedBytes > memoryBudget) {
+      Map.Entry<K, Entry> victim = sampleLeastRecent(keep);
+      if (victim == null) {
+        return;
+      }
+      if (entries.remove(victim.getKey(), victim.getValue())) {
+        usedBytes -= victim.getValue().bytes;
+        log.debug("Evicted policies for {}", victim.getKey());
+      }
+    }
+  }
+
+  /**
+   * Gets the least recently used of the next {@link #EVICTION_SAMPLES} loaded sets after the
+   * eviction hand, skipping the given one and sets still loading.
+   *
+   * @return The set to evict, or null if no other set is loaded
+   */
+  private Map.Entry<K, Entry> sampleLeastRecent(Entry keep) {
+    Map.Entry<K, Entry> victim = null;
+    int sampled = 0;
+    int size = entries.size();
+    // At most one full turn, so registries with fewer candidates than samples stop
+    for (int visited = 0; visited <= size && sampled < EVICTION_SAMPLES; visited++) {
+      if (!evictionHand.hasNext()) {
+        evictionHand = entries.entrySet().iterator();
+        if (!evictionHand.hasNext()) {
+          break;
+        }
+      }
+      Map.Entry<K, Entry> candidate = evictionHand.next();
+      Entry entry = candidate.getValue();
+      if (entry == keep || entry.bytes == 0) {
+        continue;
+      }
+      sampled++;
+      if (victim == null || entry.lastAccess < victim.getValue().lastAccess) {
+        victim = candidate;
+      }
+    }
+    return victim;
+  }
+
+  /** A loaded set, or the load of one in progress. */
+  private static final class Entry {
+    final CompletableFuture<PolicySet> future = new CompletableFuture<>();
+
+    /** The estimated size, set under the registry lock once loaded; 0 while loading. */
+    long bytes;
+
+    volatile long lastAccess = System.nanoTime();
+
+    PolicySet await(Object key) {
+      try {
+        return future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new PolicyEvaluationException("Interrupted while loading policies for " + key, e);
+      } catch (ExecutionException e) {
+        throw new PolicyEvaluationException("Cannot load policies for " + key, e.getCause());
+      }
+    }
+  }
+}
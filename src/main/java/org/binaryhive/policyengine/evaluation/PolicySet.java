@@ -0,0 +1,785 @@
+package org.binaryhive.policyengine.evaluation;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import lombok.extern.log4j.Log4j2;
+import org.binaryhive.policyengine.condition.Condition;
+import org.binaryhive.policyengine.condition.ListCondition;
+import org.binaryhive.policyengine.model.Effect;
+import org.binaryhive.policyengine.model.Policy;
+
+/**
+ * An immutable, pre-compiled view of a list of policies.
+ *
+ * <p>When the set is built, every distinct condition (same attribute, operator and value) is
+ * interned once and each policy refers to its conditions by a dense id. During evaluation the
+ * result of each distinct condition is computed at most once per request and shared by every
+ * policy that references it.
+ *
+ * <p>Every referenced attribute name is assigned a slot in an {@link AttributeRegistry}, and each
+ * condition reads its context value by slot. A map-based context is projected onto the slots once
+ * per request, looking up each attribute at most once.
+ *
+ * <p>Conditions that can be decided together, such as many {@code GREATER_THAN} thresholds,
+ * {@code STARTS_WITH} prefixes or {@code MATCHES} patterns on the same attribute, are grouped into
+ * condition indexes. Before the policies of a request are walked, each index is looked up once,
+ * and only the candidate policies are visited: those with an indexed condition that is met, and
+ * those without indexed conditions. Within a policy, indexed conditions are checked first.
+ *
+ * <p>The evaluation order is computed once when the set is built: policies with a higher {@link
+ * Policy#getPriority() priority} come first, and policies of equal priority keep their list order.
+ * The set itself, as a {@link List}, keeps the order it was built with.
+ *
+ * <p>A set can additionally be compiled into a {@link DecisionDiagram} with {@link
+ * #withDecisionDiagram()}, which then replaces policy-by-policy evaluation. With {@link
+ * #withAdaptiveConditionOrder()}, the conditions of each policy are reordered at runtime from
+ * their observed pass rate and cost, and with {@link #withAdaptivePolicyOrder()} the policies are
+ * reordered so that the ones that usually decide a request run first.
+ *
+ * <p>{@link #withGeneratedCode()} compiles the policies to bytecode, and {@link #withTieredCode()}
+ * compiles only the policies that are evaluated often, in the background. Both need ASM on the
+ * class path, which is an optional dependency; without it, policies stay interpreted.
+ *
+ * <p>For very large sets, {@link #withOffHeapStorage()} moves the policies into direct memory, so
+ * they no longer add to the objects the garbage collector has to trace.
+ *
+ * <p>A {@code PolicySet} is a {@link List}, so {@link EvaluationContext#policies()} can return one
+ * built at load time. Plain lists are evaluated policy by policy, without sharing condition
+ * results.
+ */
+@Log4j2
+public final class PolicySet extends AbstractList<Policy> implements RandomAccess {
+  /** Default number of requests per sampled request for adaptive condition order. */
+  public static final int DEFAULT_SAMPLE_INTERVAL = 64;
+
+  /** Default number of sampled requests between two reorderings of the conditions. */
+  public static final int DEFAULT_REORDER_INTERVAL = 1_000;
+
+  /** Default number of evaluations within a window after which tiered code compiles a policy. */
+  public static final int DEFAULT_COMPILE_THRESHOLD = 1_000;
+
+  /** Default number of requests per window of tiered code. */
+  public static final int DEFAULT_DECAY_INTERVAL = 10_000;
+
+  /** Largest set whose policies are all compiled by {@link #withGeneratedCode()}. */
+  public static final int MAX_GENERATED_POLICIES = 64;
+
+  private final Policy[] policies;
+  private final Condition<?>[] conditions;
+  private final int[][] policyConditions;
+  private final int[] priorities;
+  private final int[] evaluationOrder;
+  private final AttributeRegistry attributes;
+  private final int[] conditionSlots;
+  private final ConditionIndexes indexes;
+
+  /** For each indexed condition, the policies that reference it; null for other conditions. */
+  private final int[][] indexedPolicies;
+
+  /** A bit for each policy without indexed conditions, which is always a candidate. */
+  private final long[] unindexedPolicies;
+
+  private final ContextFingerprint fingerprint;
+  private final DecisionDiagram decisionDiagram;
+  private final AdaptiveConditionOrder conditionOrder;
+  private final AdaptivePolicyOrder policyOrder;
+
+  /** The encoded policies of an off-heap set, which then has no policy or condition id arrays. */
+  private final OffHeapPolicies offHeap;
+
+  /** The policies compiled to bytecode, or null if they are interpreted. */
+  private final GeneratedPolicies generated;
+
+  /** The code of the hot policies, or null if they are not compiled on demand. */
+  private final TieredPolicies tiered;
+
+  private PolicySet(Policy[] policies, Condition<?>[] conditions, int[][] policyConditions) {
+    this.policies = policies;
+    this.conditions = conditions;
+    this.policyConditions = policyConditions;
+    this.priorities = new int[policies.length];
+    for (int i = 0; i < policies.length; i++) {
+      priorities[i] = policies[i].getPriority();
+    }
+    // Stable, so policies of equal priority keep their list order
+    this.evaluationOrder =
+        IntStream.range(0, policies.length)
+            .boxed()
+            .sorted(Comparator.comparingInt((Integer i) -> priorities[i]).reversed())
+            .mapToInt(Integer::intValue)
+            .toArray();
+
+    List<String> names = new ArrayList<>(conditions.length);
+    for (Condition<?> condition : conditions) {
+      names.add(condition.getAttribute().getName());
+    }
+    this.attributes = AttributeRegistry.of(names);
+    this.conditionSlots = new int[conditions.length];
+    for (int i = 0; i < conditions.length; i++) {
+      conditionSlots[i] = attributes.slot(names.get(i));
+    }
+
+    this.indexes = ConditionIndexes.build(conditions, conditionSlots);
+    this.fingerprint = new ContextFingerprint(attributes);
+    for (int[] conditionIds : policyConditions) {
+      indexedFirst(conditionIds);
+    }
+    this.indexedPolicies = new int[conditions.length][];
+    this.unindexedPolicies = new long[(policies.length + 63) >>> 6];
+    indexPolicies(policyConditions);
+    this.decisionDiagram = null;
+    this.conditionOrder = null;
+    this.policyOrder = null;
+    this.offHeap = null;
+    this.generated = null;
+    this.tiered = null;
+  }
+
+  /** Shares the compiled policies with the source set, with another diagram and adaptive orders. */
+  private PolicySet(
+      PolicySet source,
+      DecisionDiagram decisionDiagram,
+      AdaptiveConditionOrder conditionOrder,
+      AdaptivePolicyOrder policyOrder) {
+    this.policies = source.policies;
+    this.conditions = source.conditions;
+    this.policyConditions = source.policyConditions;
+    this.priorities = source.priorities;
+    this.evaluationOrder = source.evaluationOrder;
+    this.attributes = source.attributes;
+    this.conditionSlots = source.conditionSlots;
+    this.indexes = source.indexes;
+    this.indexedPolicies = source.indexedPolicies;
+    this.unindexedPolicies = source.unindexedPolicies;
+    this.fingerprint = source.fingerprint;
+    this.decisionDiagram = decisionDiagram;
+    this.conditionOrder = conditionOrder;
+    this.policyOrder = policyOrder;
+    this.offHeap = source.offHeap;
+    this.generated = source.generated;
+    this.tiered = source.tiered;
+  }
+
+  /**
+   * Shares everything but the policy storage and generated code with the source set. Off-heap
+   * sets read their policies from direct memory.
+   */
+  private PolicySet(
+      PolicySet source,
+      OffHeapPolicies offHeap,
+      GeneratedPolicies generated,
+      TieredPolicies tiered) {
+    this.policies = offHeap != null ? null : source.policies;
+    this.conditions = source.conditions;
+    this.policyConditions = offHeap != null ? null : source.policyConditions;
+    this.priorities = source.priorities;
+    this.evaluationOrder = source.evaluationOrder;
+    this.attributes = source.attributes;
+    this.conditionSlots = source.conditionSlots;
+    this.indexes = source.indexes;
+    this.indexedPolicies = source.indexedPolicies;
+    this.unindexedPolicies = source.unindexedPolicies;
+    this.fingerprint = source.fingerprint;
+    this.decisionDiagram = source.decisionDiagram;
+    this.conditionOrder = source.conditionOrder;
+    this.policyOrder = source.policyOrder;
+    this.offHeap = offHeap;
+    this.generated = generated;
+    this.tiered = tiered;
+  }
+
+  /** Stable reordering that moves indexed conditions to the front; the AND is order-free. */
+  private void indexedFirst(int[] conditionIds) {
+    int[] reordered = new int[conditionIds.length];
+    int next = 0;
+    for (int id : conditionIds) {
+      if (indexes.indexOf(id) >= 0) {
+        reordered[next++] = id;
+      }
+    }
+    for (int id : conditionIds) {
+      if (indexes.indexOf(id) < 0) {
+        reordered[next++] = id;
+      }
+    }
+    System.arraycopy(reordered, 0, conditionIds, 0, conditionIds.length);
+  }
+
+  /** Lists the policies of each indexed condition, and marks the policies without any. */
+  private void indexPolicies(int[][] policyConditions) {
+    int[] counts = new int[indexedPolicies.length];
+    for (int i = 0; i < policyConditions.length; i++) {
+      boolean indexed = false;
+      for (int id : policyConditions[i]) {
+        if (indexes.indexOf(id) >= 0) {
+          counts[id]++;
+          indexed = true;
+        }
+      }
+      if (!indexed) {
+        unindexedPolicies[i >>> 6] |= 1L << i;
+      }
+    }
+    for (int id = 0; id < counts.length; id++) {
+      if (counts[id] > 0) {
+        indexedPolicies[id] = new int[counts[id]];
+        counts[id] = 0;
+      }
+    }
+    for (int i = 0; i < policyConditions.length; i++) {
+      for (int id : policyConditions[i]) {
+        if (indexedPolicies[id] != null) {
+          indexedPolicies[id][counts[id]++] = i;
+        }
+      }
+    }
+  }
+
+  /**
+   * Compiles the given policies into a policy set. The conditions of each policy are captured at
+   * this point; later changes to a {@link Policy} are not reflected in the set.
+   *
+   * @param policies The policies to compile
+   * @return The compiled policy set, or the argument itself if it already is one
+   */
+  public static PolicySet of(Collection<Policy> policies) {
+    if (policies instanceof PolicySet policySet) {
+      return policySet;
+    }
+
+    Policy[] policyArray = policies.toArray(new Policy[0]);
+    Map<Condition<?>, Integer> ids = new HashMap<>();
+    List<Condition<?>> distinct = new ArrayList<>();
+    int[][] policyConditions = new int[policyArray.length][];
+
+    for (int i = 0; i < policyArray.length; i++) {
+      List<Condition<?>> policyConditionList = policyArray[i].getConditions();
+      int[] conditionIds = new int[policyConditionList.size()];
+      int j = 0;
+      for (Condition<?> condition : policyConditionList) {
+        Integer id = ids.get(condition);
+        if (id == null) {
+          id = distinct.size();
+          ids.put(condition, id);
+          distinct.add(condition);
+        }
+        conditionIds[j++] = id;
+      }
+      policyConditions[i] = conditionIds;
+    }
+
+    return new PolicySet(policyArray, distinct.toArray(new Condition<?>[0]), policyConditions);
+  }
+
+  /**
+   * Gets a policy of the set. Policies of an off-heap set are decoded on every call, so the
+   * returned instance is a new, equivalent policy each time.
+   */
+  @Override
+  public Policy get(int index) {
+    if (offHeap != null) {
+      Objects.checkIndex(index, offHeap.size());
+      return offHeap.policy(index, conditions);
+    }
+    return policies[index];
+  }
+
+  @Override
+  public int size() {
+    return offHeap != null ? offHeap.size() : policies.length;
+  }
+
+  /**
+   * Gets the number of distinct conditions referenced by the policies in this set.
+   *
+   * @return The distinct condition count
+   */
+  public int conditionCount() {
+    return conditions.length;
+  }
+
+  /**
+   * Gets the registry of attribute slots used by the conditions of this set.
+   *
+   * @return The attribute registry
+   */
+  public AttributeRegistry attributes() {
+    return attributes;
+  }
+
+  /**
+   * Computes a 64-bit key of the attribute values that the decisions of this set depend on, for
+   * caching or deduplicating decisions. Only the attributes referenced by conditions are hashed,
+   * in slot order, so unrelated context entries and the order in which the context was filled do
+   * not change the key. The actions are not part of the key.
+   *
+   * <p>Values are hashed as given, without converting them, so strings, numbers, booleans, enums
+   * and lists of them are hashed without allocating. A value and its string form, such as {@code
+   * 5} and {@code "5"}, give different keys. Equal keys for different values are possible but
+   * unlikely.
+   *
+   * @param context The evaluation context
+   * @return The fingerprint of the context's relevant attributes
+   */
+  public long fingerprint(EvaluationContext context) {
+    if (context instanceof ArrayEvaluationContext arrayContext && arrayContext.policies() == this) {
+      return fingerprint.fingerprint(arrayContext.values());
+    }
+    return fingerprint.fingerprint(context.getContext());
+  }
+
+  /**
+   * Computes the fingerprint of a context attributes map, like {@link
+   * #fingerprint(EvaluationContext)}.
+   *
+   * @param context The context attributes map
+   * @return The fingerprint of the relevant attributes
+   */
+  public long fingerprint(Map<String, Object> context) {
+    return fingerprint.fingerprint(context);
+  }
+
+  /**
+   * Estimates the memory held by this set, on and off the heap. The estimate counts the policies,
+   * their condition ids and strings, the distinct conditions and their value lists, and the
+   * off-heap buffer; indexes and decision diagrams are approximated from the condition count. It
+   * is meant for budgets such as the one of a {@link PolicyRegistry}, not for exact accounting.
+   *
+   * @return The estimated size in bytes
+   */
+  public long estimatedBytes() {
+    long bytes = 64 + 12L * size();
+    for (Condition<?> condition : conditions) {
+      bytes += 96;
+      if (condition instanceof ListCondition<?> listCondition) {
+        List<?> values = listCondition.getValues();
+        bytes += values != null ? 32L * values.size() : 0;
+      }
+    }
+    if (offHeap != null) {
+      return bytes + offHeap.bytes();
+    }
+    for (int i = 0; i < policies.length; i++) {
+      Policy policy = policies[i];
+      bytes += 128 + 12L * policyConditions[i].length;
+      bytes += stringBytes(policy.getPolicyId()) + stringBytes(policy.getName());
+      bytes += stringBytes(policy.getDescription());
+    }
+    return bytes;
+  }
+
+  private static long stringBytes(String string) {
+    return string != null ? 40 + string.length() : 0;
+  }
+
+  /**
+   * Returns a policy set with the same policies that is evaluated through a {@link
+   * DecisionDiagram}. If the policies cannot be compiled into a diagram, this set is returned and
+   * keeps evaluating policy by policy.
+   *
+   * <p>The diagram implements deny-overrides combining over all policies of the set, so it is meant
+   * for sets that hold the policies of a single action. Evaluators with another {@link
+   * CombiningAlgorithm} ignore it and evaluate policy by policy.
+   *
+   * @return A policy set evaluated through a decision diagram, or this set
+   */
+  public PolicySet withDecisionDiagram() {
+    if (decisionDiagram != null) {
+      return this;
+    }
+    return DecisionDiagram.compile(this)
+        .map(diagram -> new PolicySet(this, diagram, conditionOrder, policyOrder))
+        .orElse(this);
+  }
+
+  /**
+   * Returns a policy set with the same policies whose conditions are reordered at runtime, with
+   * the {@link #DEFAULT_SAMPLE_INTERVAL} and {@link #DEFAULT_REORDER_INTERVAL}.
+   *
+   * @return A policy set with adaptive condition order
+   */
+  public PolicySet withAdaptiveConditionOrder() {
+    return withAdaptiveConditionOrder(DEFAULT_SAMPLE_INTERVAL, DEFAULT_REORDER_INTERVAL);
+  }
+
+  /**
+   * Returns a policy set with the same policies whose conditions are reordered at runtime. Sampled
+   * requests time each condition they evaluate and count how often it fails; periodically the
+   * conditions of each policy are sorted so that cheap conditions that usually fail come first.
+   * Results do not change, as all conditions of a policy must hold in any order. Conditions are
+   * reordered on the common pool.
+   *
+   * @param sampleInterval  Sample one request in this many on average
+   * @param reorderInterval Reorder the conditions after this many sampled requests
+   * @return A policy set with adaptive condition order
+   */
+  public PolicySet withAdaptiveConditionOrder(int sampleInterval, int reorderInterval) {
+    return withAdaptiveConditionOrder(sampleInterval, reorderInterval, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns a policy set with the same policies whose conditions are reordered at runtime, like
+   * {@link #withAdaptiveConditionOrder(int, int)}. The new order is computed on the executor, so
+   * requests never wait for it; until it is published they keep the current order.
+   *
+   * @param sampleInterval  Sample one request in this many on average
+   * @param reorderInterval Reorder the conditions after this many sampled requests
+   * @param executor        Runs the reordering
+   * @return A policy set with adaptive condition order
+   */
+  public PolicySet withAdaptiveConditionOrder(
+      int sampleInterval, int reorderInterval, Executor executor) {
+    AdaptiveConditionOrder adaptive =
+        new AdaptiveConditionOrder(
+            compiledConditions(),
+            indexes,
+            conditions.length,
+            sampleInterval,
+            reorderInterval,
+            executor);
+    return new PolicySet(this, decisionDiagram, adaptive, policyOrder);
+  }
+
+  /**
+   * Returns a policy set with the same policies that are reordered at runtime, with the {@link
+   * #DEFAULT_SAMPLE_INTERVAL} and {@link #DEFAULT_REORDER_INTERVAL}.
+   *
+   * @return A policy set with adaptive policy order
+   */
+  public PolicySet withAdaptivePolicyOrder() {
+    return withAdaptivePolicyOrder(DEFAULT_SAMPLE_INTERVAL, DEFAULT_REORDER_INTERVAL);
+  }
+
+  /**
+   * Returns a policy set with the same policies that are reordered at runtime. Sampled requests
+   * time each policy they evaluate and count how often it returns ALLOW or DENY; periodically the
+   * policies of each priority are sorted so that cheap policies that usually decide the request
+   * are evaluated first, and evaluation stops sooner.
+   *
+   * <p>Decisions do not change: policies only move within their priority, and only for combining
+   * algorithms whose result does not depend on the order of those policies. {@link
+   * CombiningAlgorithm#FIRST_APPLICABLE} always uses the list order. Since statistics are kept per
+   * set, build one set per action so each action gets its own order. Policies are reordered on
+   * the common pool.
+   *
+   * @param sampleInterval  Sample one request in this many on average
+   * @param reorderInterval Reorder the policies after this many sampled requests
+   * @return A policy set with adaptive policy order
+   */
+  public PolicySet withAdaptivePolicyOrder(int sampleInterval, int reorderInterval) {
+    return withAdaptivePolicyOrder(sampleInterval, reorderInterval, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns a policy set with the same policies that are reordered at runtime, like {@link
+   * #withAdaptivePolicyOrder(int, int)}, with the new orders computed on the executor.
+   *
+   * @param sampleInterval  Sample one request in this many on average
+   * @param reorderInterval Reorder the policies after this many sampled requests
+   * @param executor        Runs the reordering
+   * @return A policy set with adaptive policy order
+   */
+  public PolicySet withAdaptivePolicyOrder(
+      int sampleInterval, int reorderInterval, Executor executor) {
+    AdaptivePolicyOrder adaptive =
+        new AdaptivePolicyOrder(
+            evaluationOrder, priorities, sampleInterval, reorderInterval, executor);
+    return new PolicySet(this, decisionDiagram, conditionOrder, adaptive);
+  }
+
+  /**
+   * Returns a policy set with the same policies stored in direct memory. The policy ids, names,
+   * descriptions, effects and condition ids are encoded into one off-heap buffer, and the {@link
+   * Policy} objects and per-policy arrays are no longer referenced by the set. The evaluator reads
+   * the buffer directly, so evaluation does not decode policies; {@link #get(int)} does.
+   *
+   * <p>The interned conditions, indexes and any decision diagram stay on the heap. Their number
+   * grows with the distinct conditions rather than with the policies, so sets whose policies share
+   * most conditions benefit the most. Adaptive condition order keeps its own order on the heap.
+   * The buffer is released when the set is no longer reachable.
+   *
+   * @return The off-heap policy set, or this set if it already is one
+   * @throws IllegalArgumentException if the encoded policies exceed 2 GB
+   */
+  public PolicySet withOffHeapStorage() {
+    if (offHeap != null) {
+      return this;
+    }
+    Map<Condition<?>, Integer> ids = new HashMap<>();
+    for (int id = 0; id < conditions.length; id++) {
+      ids.put(conditions[id], id);
+    }
+    int[][] declared = new int[policies.length][];
+    for (int i = 0; i < policies.length; i++) {
+      declared[i] = declaredConditions(policies[i], ids, policyConditions[i]);
+    }
+    OffHeapPolicies encoded = OffHeapPolicies.encode(policies, declared, policyConditions);
+    return new PolicySet(this, encoded, generated, tiered);
+  }
+
+  /** The condition ids of a policy in declaration order, or the compiled ones if it changed. */
+  private static int[] declaredConditions(
+      Policy policy, Map<Condition<?>, Integer> ids, int[] compiled) {
+    List<Condition<?>> policyConditions = policy.getConditions();
+    if (policyConditions == null || policyConditions.size() != compiled.length) {
+      return compiled;
+    }
+    int[] declared = new int[compiled.length];
+    int k = 0;
+    for (Condition<?> condition : policyConditions) {
+      Integer id = ids.get(condition);
+      if (id == null) {
+        return compiled;
+      }
+      declared[k++] = id;
+    }
+    return declared;
+  }
+
+  /**
+   * Returns a policy set with the same policies compiled to bytecode. Each policy becomes a hidden
+   * class that tests its conditions as straight-line code, with the thresholds, strings and small
+   * value lists of conditions on plain string and integer attributes inlined as constants, so the
+   * JIT can compile them like hand-written checks. Other conditions are evaluated as usual from the
+   * generated code, and policies without inlined conditions stay interpreted. If the classes
+   * cannot be generated, for example because ASM is not on the class path, this set is returned
+   * and keeps interpreting its policies.
+   *
+   * <p>Generated code pays off for sets where a request evaluates tens of policies. When requests
+   * walk hundreds of policies each, the compiled code of all of them no longer fits the processor's
+   * instruction cache and the interpreted set is faster. Sets of more than {@link
+   * #MAX_GENERATED_POLICIES} policies are therefore returned unchanged, with a warning; {@link
+   * #withTieredCode()} compiles only the hot policies of such sets.
+   *
+   * <p>Generated code is used for requests that are neither traced by a {@link DecisionRecorder}
+   * nor sampled for an adaptive condition order, which need every condition evaluation timed.
+   * With adaptive condition order the policies are always interpreted in the adapted order.
+   *
+   * @return A policy set evaluated through generated code, or this set
+   */
+  public PolicySet withGeneratedCode() {
+    if (generated != null) {
+      return this;
+    }
+    if (size() > MAX_GENERATED_POLICIES) {
+      log.warn(
+          "Not generating code for {} policies, more than {}; use tiered code for large sets",
+          size(),
+          MAX_GENERATED_POLICIES);
+      return this;
+    }
+    if (!CodeGeneration.AVAILABLE) {
+      return this;
+    }
+    try {
+      return GeneratedPolicies.generate(this)
+          .map(code -> new PolicySet(this, offHeap, code, tiered))
+          .orElse(this);
+    } catch (LinkageError e) {
+      // ASM is present but unusable, such as an incompatible version
+      log.warn("Cannot load the code generator, policies stay interpreted: {}", e.toString());
+      return this;
+    }
+  }
+
+  /**
+   * Checks whether the policies of this set are evaluated through generated code.
+   *
+   * @return true for sets built with {@link #withGeneratedCode()}
+   */
+  public boolean hasGeneratedCode() {
+    return generated != null;
+  }
+
+  /**
+   * Returns a policy set with the same policies that compiles its hot policies to bytecode, with
+   * the {@link #DEFAULT_COMPILE_THRESHOLD} and {@link #DEFAULT_DECAY_INTERVAL}, on the common
+   * fork-join pool.
+   *
+   * @return A policy set with tiered code
+   */
+  public PolicySet withTieredCode() {
+    return withTieredCode(
+        DEFAULT_COMPILE_THRESHOLD, DEFAULT_DECAY_INTERVAL, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns a policy set with the same policies that starts out interpreted and compiles hot
+   * policies to bytecode in the background, as {@link #withGeneratedCode()} does for all of them.
+   * Each policy counts its evaluations; once it is evaluated {@code compileThreshold} times within
+   * a window of {@code decayInterval} requests, its code is generated on the executor and used by
+   * the following requests. Compiled policies that are evaluated less than half as often in a
+   * later window are cold, and their code is dropped until they get hot again. At most 32
+   * policies of a set are compiled at a time.
+   *
+   * <p>This avoids the load time and memory of generating code for policies that are rarely
+   * reached, and keeps the compiled code, and so the instruction cache footprint, limited to the
+   * policies that dominate the traffic. Requests never wait for a compilation. For thresholds
+   * and windows of a few hundred or more, only a random sample of up to one in 16 evaluations
+   * and requests is counted, so the counters stay off the hot path; the threshold and window
+   * then hold on average. Generated code is used under the same conditions as with {@link
+   * #withGeneratedCode()}, which takes precedence if the set has both.
+   *
+   * @param compileThreshold Compile a policy after this many evaluations within a window
+   * @param decayInterval    The number of requests in a window
+   * @param executor         Runs the compilations
+   * @return A policy set with tiered code, or this set if all its policies are generated or ASM
+   *     is not on the class path
+   */
+  public PolicySet withTieredCode(int compileThreshold, int decayInterval, Executor executor) {
+    if (generated != null || !CodeGeneration.AVAILABLE) {
+      return this;
+    }
+    TieredPolicies tieredPolicies =
+        new TieredPolicies(size(), compileThreshold, decayInterval, executor);
+    return new PolicySet(this, offHeap, null, tieredPolicies);
+  }
+
+  /**
+   * Checks whether this set compiles its hot policies to bytecode.
+   *
+   * @return true for sets built with {@link #withTieredCode()}
+   */
+  public boolean hasTieredCode() {
+    return tiered != null;
+  }
+
+  /**
+   * Checks whether the policies of this set are stored in direct memory.
+   *
+   * @return true for sets built with {@link #withOffHeapStorage()}
+   */
+  public boolean isOffHeap() {
+    return offHeap != null;
+  }
+
+  /**
+   * Gets the decision diagram this set is evaluated through.
+   *
+   * @return The diagram, or empty if policies are evaluated one by one
+   */
+  public Optional<DecisionDiagram> decisionDiagram() {
+    return Optional.ofNullable(decisionDiagram);
+  }
+
+  DecisionDiagram diagram() {
+    return decisionDiagram;
+  }
+
+  int conditionSlot(int conditionId) {
+    return conditionSlots[conditionId];
+  }
+
+  ConditionIndexes indexes() {
+    return indexes;
+  }
+
+  Condition<?> condition(int conditionId) {
+    return conditions[conditionId];
+  }
+
+  /** Condition ids of a policy in evaluation order; must not be modified. */
+  int[] conditionIds(int policyIndex) {
+    if (conditionOrder != null) {
+      return conditionOrder.conditionIds(policyIndex);
+    }
+    // Copied from direct memory; the evaluator reads the buffer through offHeapPolicies() instead
+    return offHeap != null ? offHeap.conditionIds(policyIndex) : policyConditions[policyIndex];
+  }
+
+  /** The policies that reference an indexed condition; must not be modified. */
+  int[] indexedPolicies(int conditionId) {
+    return indexedPolicies[conditionId];
+  }
+
+  /** A bit for each policy without indexed conditions; must not be modified. */
+  long[] unindexedPolicies() {
+    return unindexedPolicies;
+  }
+
+  /** The generated code, or null if the policies are interpreted. */
+  GeneratedPolicies generatedPolicies() {
+    return generated;
+  }
+
+  /** The tiered code, or null if hot policies are not compiled on demand. */
+  TieredPolicies tieredPolicies() {
+    return tiered;
+  }
+
+  /** The encoded policies, or null if the set keeps its policies on the heap. */
+  OffHeapPolicies offHeapPolicies() {
+    return offHeap;
+  }
+
+  Effect effect(int policyIndex) {
+    return offHeap != null ? offHeap.effect(policyIndex) : policies[policyIndex].getEffect();
+  }
+
+  /** The condition ids of every policy in compiled order, copied out of an off-heap set. */
+  private int[][] compiledConditions() {
+    if (offHeap == null) {
+      return policyConditions;
+    }
+    int[][] compiled = new int[offHeap.size()][];
+    for (int i = 0; i < compiled.length; i++) {
+      compiled[i] = offHeap.conditionIds(i);
+    }
+    return compiled;
+  }
+
+  /** Condition ids of a policy in compiled order, ignoring any adaptive order. */
+  int[] compiledConditionIds(int policyIndex) {
+    return offHeap != null ? offHeap.conditionIds(policyIndex) : policyConditions[policyIndex];
+  }
+
+  /** The adaptive condition order, or null if conditions are tested in their compiled order. */
+  AdaptiveConditionOrder adaptiveConditionOrder() {
+    return conditionOrder;
+  }
+
+  /** The adaptive policy order, or null if policies are evaluated in priority and list order. */
+  AdaptivePolicyOrder adaptivePolicyOrder() {
+    return policyOrder;
+  }
+
+  /** Policy indexes by descending priority; must not be modified. */
+  int[] evaluationOrder() {
+    return evaluationOrder;
+  }
+
+  /**
+   * Policy indexes by descending priority for an algorithm that stops at the given effect, in the
+   * adaptive order if the set has one; must not be modified.
+   */
+  int[] evaluationOrder(Effect decisive) {
+    return policyOrder != null && decisive != null
+        ? policyOrder.evaluationOrder(decisive)
+        : evaluationOrder;
+  }
+
+  /** The priority a policy had when the set was built. */
+  int priority(int policyIndex) {
+    return priorities[policyIndex];
+  }
+
+  /**
+   * Checks once whether ASM, which generated code is built with, is on the class path. Generated
+   * code is only loaded once this holds, as loading it without ASM fails.
+   */
+  private static final class CodeGeneration {
+    static final boolean AVAILABLE = asmAvailable();
+
+    private static boolean asmAvailable() {
+      try {
+        Class.forName("org.objectweb.asm.ClassWriter", false, PolicySet.class.getClassLoader());
+        return true;
+      } catch (ClassNotFoundException | LinkageError e) {
+        log.warn("ASM is not on the class path, policies stay interpreted");
+        return false;
+      }
+    }
+  }
+}
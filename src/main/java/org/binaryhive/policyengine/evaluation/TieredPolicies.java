@@ -0,0 +1,242 @@
+package org.binaryhive.policyengine.evaluation;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Generated code of a {@link PolicySet} that is only built for the policies that are evaluated
+ * often.
+ *
+ * <p>Every policy starts interpreted and counts its evaluations. Once it is evaluated {@code
+ * compileThreshold} times within a window of {@code decayInterval} requests, the policy is
+ * compiled by {@link GeneratedPolicies#generate(PolicySet, int)} on the executor. The code is
+ * published through an atomic array, so a request runs either the interpreter or the complete
+ * code of a policy; requests are never blocked on a compilation.
+ *
+ * <p>At the end of each window the counters are reset. Compiled policies that were evaluated fewer
+ * than half the threshold times in the window are cold: their code is dropped, and its hidden class
+ * is unloaded once no request still runs it. A dropped policy is compiled again if it gets hot.
+ * Policies whose code would not be worth generating stay interpreted for good.
+ *
+ * <p>At most {@link #MAX_COMPILED} policies of a set are compiled or queued at a time; further hot
+ * policies stay interpreted until cold ones are dropped. When every request walks hundreds of
+ * policies, all of them are hot, and compiling all of them makes evaluation several times slower
+ * than interpreting, as their code no longer fits the processor's instruction cache. Sets with
+ * more compiled policies also take much longer to reach their steady speed after warm-up.
+ *
+ * <p>Counting is sampled: each evaluation and each request is counted with probability {@code 1 /
+ * sampleInterval}, drawn from the calling thread's {@link ThreadLocalRandom}, and the threshold and
+ * window are scaled down by the same factor. Most evaluations therefore only read the shared
+ * counters, and requests increment the shared request count only when sampled, which keeps cores
+ * evaluating the same set from invalidating each other's cache lines. The interval is at most
+ * {@link #MAX_SAMPLE_INTERVAL}, and 1 for thresholds too small to sample, which are counted
+ * exactly. Counters are plain integers incremented without synchronization, so concurrent
+ * evaluations may lose increments; this only delays compilation slightly under contention.
+ */
+@Log4j2
+final class TieredPolicies {
+  private static final int INTERPRETED = 0;
+  private static final int QUEUED = 1;
+  private static final int COMPILED = 2;
+  private static final int NOT_GENERATED = 3;
+
+  /** The most policies of one set that are compiled at a time. */
+  static final int MAX_COMPILED = 32;
+
+  /** The most evaluations and requests per counted one. */
+  static final int MAX_SAMPLE_INTERVAL = 16;
+
+  /** The fewest counted evaluations a threshold is scaled down to. */
+  private static final int MIN_SAMPLES = 16;
+
+  private final int compileThreshold;
+  private final int decayInterval;
+  private final Executor executor;
+
+  /** The sample interval minus one; intervals are powers of two. */
+  private final int sampleMask;
+
+  /** The compile threshold and window length in counted evaluations and requests. */
+  private final int sampledThreshold;
+
+  private final int sampledWindow;
+
+  private final int[] evaluations;
+  private final AtomicIntegerArray states;
+  private final AtomicReferenceArray<GeneratedPolicies.Code> code;
+  private final AtomicInteger reserved = new AtomicInteger();
+  private final AtomicLong sampledRequests = new AtomicLong();
+  private final AtomicBoolean decaying = new AtomicBoolean();
+
+  /**
+   * @param policyCount      The number of policies of the set
+   * @param compileThreshold Compile a policy after this many evaluations within a window
+   * @param decayInterval    The number of requests in a window
+   * @param executor         Runs compilations and the end of windows
+   */
+  TieredPolicies(int policyCount, int compileThreshold, int decayInterval, Executor executor) {
+    if (compileThreshold < 1 || decayInterval < 1) {
+      throw new IllegalArgumentException(
+          "Thresholds must be positive: " + compileThreshold + ", " + decayInterval);
+    }
+    this.compileThreshold = compileThreshold;
+    this.decayInterval = decayInterval;
+    this.executor = executor;
+    int sampleInterval =
+        Integer.highestOneBit(
+            Math.max(
+                1,
+                Math.min(
+                    MAX_SAMPLE_INTERVAL,
+                    Math.min(compileThreshold, decayInterval) / MIN_SAMPLES)));
+    this.sampleMask = sampleInterval - 1;
+    this.sampledThreshold = Math.max(1, compileThreshold / sampleInterval);
+    this.sampledWindow = Math.max(1, decayInterval / sampleInterval);
+    this.evaluations = new int[policyCount];
+    this.states = new AtomicIntegerArray(policyCount);
+    this.code = new AtomicReferenceArray<>(policyCount);
+  }
+
+  int compileThreshold() {
+    return compileThreshold;
+  }
+
+  int decayInterval() {
+    return decayInterval;
+  }
+
+  Executor executor() {
+    return executor;
+  }
+
+  int sampleInterval() {
+    return sampleMask + 1;
+  }
+
+  /**
+   * Called once per request; counts it if sampled. The counted request that completes a window of
+   * about {@code decayInterval} requests ends it.
+   */
+  void request() {
+    if (!sampled()) {
+      return;
+    }
+    if (sampledRequests.incrementAndGet() % sampledWindow == 0
+        && decaying.compareAndSet(false, true)) {
+      if (!submit(this::decay)) {
+        decaying.set(false);
+      }
+    }
+  }
+
+  /**
+   * Counts an evaluation of a policy and evaluates it through its code if it is compiled.
+   *
+   * @param policySet   The set, or a set derived from it, that the request evaluates
+   * @param policyIndex The policy
+   * @param table       The condition results of the request
+   * @return The result, or null if the policy is interpreted
+   */
+  PolicyEvaluationResult evaluate(PolicySet policySet, int policyIndex, ConditionTable table) {
+    int count = sampled() ? ++evaluations[policyIndex] : evaluations[policyIndex];
+    GeneratedPolicies.Code compiled = code.get(policyIndex);
+    if (compiled != null) {
+      return compiled.evaluate(table);
+    }
+    if (count >= sampledThreshold) {
+      queue(policySet, policyIndex);
+    }
+    return null;
+  }
+
+  /** Decides whether the calling evaluation or request is counted. */
+  private boolean sampled() {
+    return sampleMask == 0 || (ThreadLocalRandom.current().nextInt() & sampleMask) == 0;
+  }
+
+  /** The number of policies whose code is currently compiled. */
+  int compiledCount() {
+    int count = 0;
+    for (int i = 0; i < code.length(); i++) {
+      if (code.get(i) != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private void queue(PolicySet policySet, int policyIndex) {
+    // Policies that are queued or not worth generating are past the threshold on every call
+    if (states.get(policyIndex) != INTERPRETED || reserved.get() >= MAX_COMPILED) {
+      return;
+    }
+    if (!states.compareAndSet(policyIndex, INTERPRETED, QUEUED)) {
+      return;
+    }
+    if (reserved.incrementAndGet() > MAX_COMPILED
+        || !submit(() -> compile(policySet, policyIndex))) {
+      release(policyIndex, INTERPRETED);
+    }
+  }
+
+  /** Gives up the compiled slot of a policy. */
+  private void release(int policyIndex, int state) {
+    states.set(policyIndex, state);
+    reserved.decrementAndGet();
+  }
+
+  private void compile(PolicySet policySet, int policyIndex) {
+    GeneratedPolicies.Code compiled;
+    try {
+      compiled = GeneratedPolicies.generate(policySet, policyIndex);
+    } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+      log.debug("Cannot generate code of policy {}: {}", policyIndex, e.toString());
+      compiled = null;
+    }
+    if (compiled == null) {
+      release(policyIndex, NOT_GENERATED);
+      return;
+    }
+    code.set(policyIndex, compiled);
+    states.set(policyIndex, COMPILED);
+    log.debug("Compiled hot policy {}", policyIndex);
+  }
+
+  /** Drops the code of cold policies and starts a new window. */
+  private void decay() {
+    try {
+      int dropped = 0;
+      int coldBelow = Math.max(1, sampledThreshold / 2);
+      for (int i = 0; i < evaluations.length; i++) {
+        if (states.get(i) == COMPILED && evaluations[i] < coldBelow) {
+          code.set(i, null);
+          release(i, INTERPRETED);
+          dropped++;
+        }
+        evaluations[i] = 0;
+      }
+      if (dropped > 0) {
+        log.debug("Dropped the code of {} cold policies", dropped);
+      }
+    } finally {
+      decaying.set(false);
+    }
+  }
+
+  private boolean submit(Runnable task) {
+    try {
+      executor.execute(task);
+      return true;
+    } catch (RejectedExecutionException e) {
+      log.debug("Tiered compilation task rejected: {}", e.getMessage());
+      return false;
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package org.binaryhive.policyengine.evaluation;
+
+import org.binaryhive.policyengine.condition.Condition;
+import org.binaryhive.policyengine.model.Policy;
+
+/**
+ * Per-request accumulator of stage timings for a {@link DecisionRecorder}. Conversion time is
+ * reported by the {@link PolicyEvaluator} and is part of the condition time reported by the {@link
+ * ConditionTable}, or by the evaluator for plain policy lists; it is subtracted when the trace is
+ * built.
+ *
+ * <p>A {@link PolicySet} reports the slowest condition by id, resolved only if the decision is
+ * kept; a plain list reports the condition and its policy directly.
+ */
+final class TraceCollector {
+  long conversionNanos;
+  long conditionNanos;
+  int conditionsEvaluated;
+  int slowestConditionId = -1;
+  Condition<?> slowestCondition;
+  String slowestPolicyId;
+  long slowestConditionNanos;
+
+  /** Whether a decision on this thread is collecting into this instance. */
+  boolean inUse;
+
+  void conversion(long nanos) {
+    conversionNanos += nanos;
+  }
+
+  /** Records one condition, or one index lookup, including its conversion. */
+  void condition(int conditionId, long nanos) {
+    if (add(nanos)) {
+      slowestConditionId = conditionId;
+    }
+  }
+
+  /** Records one condition of a plain policy list, including its conversion. */
+  void condition(Policy policy, Condition<?> condition, long nanos) {
+    if (add(nanos)) {
+      slowestCondition = condition;
+      slowestPolicyId = policy.getPolicyId();
+    }
+  }
+
+  private boolean add(long nanos) {
+    conditionNanos += nanos;
+    boolean slowest = nanos > slowestConditionNanos || conditionsEvaluated == 0;
+    conditionsEvaluated++;
+    if (slowest) {
+      slowestConditionNanos = nanos;
+    }
+    return slowest;
+  }
+
+  /** Clears the timings, so the collector can be reused for the next decision of its thread. */
+  void reset() {
+    conversionNanos = 0;
+    conditionNanos = 0;
+    conditionsEvaluated = 0;
+    slowestConditionId = -1;
+    slowestCondition = null;
+    slowestPolicyId = null;
+    slowestConditionNanos = 0;
+  }
+}
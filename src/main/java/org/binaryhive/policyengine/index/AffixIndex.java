@@ -0,0 +1,165 @@
+package org.binaryhive.policyengine.index;
+
+import java.util.*;
+import org.binaryhive.policyengine.model.Operator;
+
+/**
+ * Index over {@link Operator#STARTS_WITH} or {@link Operator#ENDS_WITH} conditions of one string
+ * attribute. All prefixes share one trie; suffixes are stored reversed, so the same trie walked
+ * from the end of the value finds them. One walk over the value reaches the deepest node matching
+ * it, and a condition is satisfied exactly when its node lies on that path.
+ *
+ * <p>Nodes are numbered in depth-first order, so "lies on the path" is an interval check against
+ * the node where the walk stopped and resolving a value does not allocate.
+ */
+public final class AffixIndex implements ConditionIndex {
+  private final Operator operator;
+  private final char[][] labels;
+  private final int[][] children;
+  /** Depth-first number of each node; a node's subtree is {@code [node, subtreeEnd[node])}. */
+  private final int[] subtreeEnd;
+
+  private final int[] conditionIds;
+  private final int[] conditionNodes;
+
+  private AffixIndex(
+      Operator operator,
+      char[][] labels,
+      int[][] children,
+      int[] subtreeEnd,
+      int[] conditionIds,
+      int[] conditionNodes) {
+    this.operator = operator;
+    this.labels = labels;
+    this.children = children;
+    this.subtreeEnd = subtreeEnd;
+    this.conditionIds = conditionIds;
+    this.conditionNodes = conditionNodes;
+  }
+
+  /**
+   * Creates a builder for an index over conditions with the given operator.
+   *
+   * @param operator {@link Operator#STARTS_WITH} or {@link Operator#ENDS_WITH}
+   * @return A new builder
+   */
+  public static Builder builder(Operator operator) {
+    if (operator != Operator.STARTS_WITH && operator != Operator.ENDS_WITH) {
+      throw new IllegalArgumentException("AffixIndex only supports STARTS_WITH or ENDS_WITH");
+    }
+    return new Builder(operator);
+  }
+
+  public Operator getOperator() {
+    return operator;
+  }
+
+  @Override
+  public int[] conditionIds() {
+    return conditionIds;
+  }
+
+  /**
+   * Walks the trie along the value and returns the deepest node reached.
+   *
+   * @param value The context value
+   * @return The depth-first number of the last node matching the value
+   */
+  public int walk(String value) {
+    boolean reversed = operator == Operator.ENDS_WITH;
+    int length = value.length();
+    int node = 0;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(reversed ? length - 1 - i : i);
+      int k = Arrays.binarySearch(labels[node], c);
+      if (k < 0) {
+        break;
+      }
+      node = children[node][k];
+    }
+    return node;
+  }
+
+  @Override
+  public void resolve(Object value, ConditionSink sink) {
+    int reached = walk((String) value);
+    for (int i = 0; i < conditionIds.length; i++) {
+      int node = conditionNodes[i];
+      sink.accept(conditionIds[i], node <= reached && reached < subtreeEnd[node]);
+    }
+  }
+
+  /** Collects prefixes or suffixes and lays the trie out in arrays once when it is built. */
+  public static final class Builder {
+    private final Operator operator;
+    private final Node root = new Node();
+    private final List<Integer> conditionIds = new ArrayList<>();
+    private final List<Node> conditionNodes = new ArrayList<>();
+
+    private Builder(Operator operator) {
+      this.operator = operator;
+    }
+
+    /**
+     * Adds a condition to the index.
+     *
+     * @param conditionId The condition id reported to the sink
+     * @param affix       The prefix or suffix the condition tests for
+     * @return This builder
+     */
+    public Builder add(int conditionId, String affix) {
+      Objects.requireNonNull(affix, "affix");
+      boolean reversed = operator == Operator.ENDS_WITH;
+      int length = affix.length();
+      Node node = root;
+      for (int i = 0; i < length; i++) {
+        char c = affix.charAt(reversed ? length - 1 - i : i);
+        node = node.children.computeIfAbsent(c, k -> new Node());
+      }
+      conditionIds.add(conditionId);
+      conditionNodes.add(node);
+      return this;
+    }
+
+    public AffixIndex build() {
+      List<Node> nodes = new ArrayList<>();
+      number(root, nodes);
+
+      char[][] labels = new char[nodes.size()][];
+      int[][] children = new int[nodes.size()][];
+      int[] subtreeEnd = new int[nodes.size()];
+      for (Node node : nodes) {
+        labels[node.number] = new char[node.children.size()];
+        children[node.number] = new int[node.children.size()];
+        int k = 0;
+        for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+          labels[node.number][k] = child.getKey();
+          children[node.number][k] = child.getValue().number;
+          k++;
+        }
+        subtreeEnd[node.number] = node.subtreeEnd;
+      }
+
+      int[] ids = conditionIds.stream().mapToInt(Integer::intValue).toArray();
+      int[] nodeNumbers = conditionNodes.stream().mapToInt(node -> node.number).toArray();
+      return new AffixIndex(operator, labels, children, subtreeEnd, ids, nodeNumbers);
+    }
+
+    private static void number(Node node, List<Node> nodes) {
+      node.number = nodes.size();
+      nodes.add(node);
+      for (Node child : node.children.values()) {
+        number(child, nodes);
+      }
+      node.subtreeEnd = nodes.size();
+    }
+  }
+
+  private static final class Node {
+    /** Sorted by character, so the array layout supports binary search. */
+    private final TreeMap<Character, Node> children = new TreeMap<>();
+
+    private int number;
+    private int subtreeEnd;
+  }
+}
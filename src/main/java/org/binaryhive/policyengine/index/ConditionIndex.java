@@ -0,0 +1,24 @@
+package org.binaryhive.policyengine.index;
+
+/**
+ * An index over the conditions of one attribute that decides all of them for a context value at
+ * once, instead of evaluating each condition on its own.
+ */
+public interface ConditionIndex {
+
+  /**
+   * Gets the ids of the conditions covered by this index.
+   *
+   * @return The condition ids
+   */
+  int[] conditionIds();
+
+  /**
+   * Decides every condition of this index for a converted, non-null context value and reports
+   * each outcome to the sink.
+   *
+   * @param value The converted context value
+   * @param sink  Receives the outcome of each condition
+   */
+  void resolve(Object value, ConditionSink sink);
+}
@@ -0,0 +1,19 @@
+package org.binaryhive.policyengine.index;
+
+/** Receives the outcome of conditions decided by a {@link ConditionIndex}. */
+@FunctionalInterface
+public interface ConditionSink {
+  void accept(int conditionId, boolean met);
+
+  /**
+   * Gets a cleared bit set for an index to mark intermediate results during one {@link
+   * ConditionIndex#resolve} call. Sinks that serve many lookups, such as the per-request condition
+   * table, hand out the same array each time, so it must not be kept after the call.
+   *
+   * @param bits The number of bits needed
+   * @return Words holding at least that many bits, all clear
+   */
+  default long[] scratchBits(int bits) {
+    return new long[(bits + 63) >>> 6];
+  }
+}
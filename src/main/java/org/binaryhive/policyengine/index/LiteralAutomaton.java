@@ -0,0 +1,120 @@
+package org.binaryhive.policyengine.index;
+
+import java.util.*;
+
+/**
+ * Aho-Corasick automaton over a fixed set of literals. A single pass over a string reports every
+ * literal that occurs in it, no matter how many literals there are.
+ */
+final class LiteralAutomaton {
+  private final char[][] labels;
+  private final int[][] children;
+  private final int[] fail;
+  /** The literal ending at each state, or -1. */
+  private final int[] literal;
+  /** The nearest state on the fail chain that ends a literal, or -1. */
+  private final int[] output;
+
+  private LiteralAutomaton(
+      char[][] labels, int[][] children, int[] fail, int[] literal, int[] output) {
+    this.labels = labels;
+    this.children = children;
+    this.fail = fail;
+    this.literal = literal;
+    this.output = output;
+  }
+
+  /**
+   * Builds an automaton over distinct, non-empty literals. Literals are reported by their position
+   * in the list.
+   */
+  static LiteralAutomaton of(List<String> literals) {
+    List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+    List<Integer> ends = new ArrayList<>();
+    trie.add(new TreeMap<>());
+    ends.add(-1);
+    for (int l = 0; l < literals.size(); l++) {
+      int state = 0;
+      for (char c : literals.get(l).toCharArray()) {
+        Integer next = trie.get(state).get(c);
+        if (next == null) {
+          next = trie.size();
+          trie.get(state).put(c, next);
+          trie.add(new TreeMap<>());
+          ends.add(-1);
+        }
+        state = next;
+      }
+      ends.set(state, l);
+    }
+
+    int size = trie.size();
+    char[][] labels = new char[size][];
+    int[][] children = new int[size][];
+    for (int state = 0; state < size; state++) {
+      TreeMap<Character, Integer> edges = trie.get(state);
+      labels[state] = new char[edges.size()];
+      children[state] = new int[edges.size()];
+      int k = 0;
+      for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+        labels[state][k] = edge.getKey();
+        children[state][k] = edge.getValue();
+        k++;
+      }
+    }
+
+    int[] literal = ends.stream().mapToInt(Integer::intValue).toArray();
+    int[] fail = new int[size];
+    int[] output = new int[size];
+    output[0] = -1;
+    LiteralAutomaton automaton = new LiteralAutomaton(labels, children, fail, literal, output);
+
+    // Breadth-first, so the fail state of a parent is final before its children are visited
+    ArrayDeque<Integer> queue = new ArrayDeque<>();
+    for (int child : children[0]) {
+      fail[child] = 0;
+      output[child] = -1;
+      queue.add(child);
+    }
+    while (!queue.isEmpty()) {
+      int state = queue.poll();
+      for (int k = 0; k < labels[state].length; k++) {
+        int child = children[state][k];
+        int f = automaton.next(fail[state], labels[state][k]);
+        fail[child] = f;
+        output[child] = literal[f] >= 0 ? f : output[f];
+        queue.add(child);
+      }
+    }
+    return automaton;
+  }
+
+  /**
+   * Marks every literal that occurs in the string.
+   *
+   * @param s     The string to scan
+   * @param found Bits indexed by literal, set for each literal found
+   */
+  void scan(CharSequence s, long[] found) {
+    int state = 0;
+    for (int i = 0; i < s.length(); i++) {
+      state = next(state, s.charAt(i));
+      for (int o = literal[state] >= 0 ? state : output[state]; o >= 0; o = output[o]) {
+        found[literal[o] >>> 6] |= 1L << literal[o];
+      }
+    }
+  }
+
+  private int next(int state, char c) {
+    while (true) {
+      int k = Arrays.binarySearch(labels[state], c);
+      if (k >= 0) {
+        return children[state][k];
+      }
+      if (state == 0) {
+        return 0;
+      }
+      state = fail[state];
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package org.binaryhive.policyengine.index;
+
+import java.util.*;
+import java.util.regex.Pattern;
+import org.binaryhive.policyengine.model.Operator;
+
+/**
+ * Index over {@link Operator#MATCHES} conditions of one string attribute.
+ *
+ * <p>For each pattern a literal is extracted that every match must contain. The literals of all
+ * patterns are combined into one Aho-Corasick automaton, so a single scan over the value tells
+ * which patterns can match at all. Only those patterns, and the ones without a usable literal, run
+ * their compiled expression.
+ */
+public final class PatternIndex implements ConditionIndex {
+  private final int[] conditionIds;
+  private final Pattern[] patterns;
+  /** The literal each pattern requires, or -1 if the pattern always has to run. */
+  private final int[] requiredLiteral;
+
+  private final int literalCount;
+  private final LiteralAutomaton automaton;
+
+  private PatternIndex(
+      int[] conditionIds,
+      Pattern[] patterns,
+      int[] requiredLiteral,
+      int literalCount,
+      LiteralAutomaton automaton) {
+    this.conditionIds = conditionIds;
+    this.patterns = patterns;
+    this.requiredLiteral = requiredLiteral;
+    this.literalCount = literalCount;
+    this.automaton = automaton;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  @Override
+  public int[] conditionIds() {
+    return conditionIds;
+  }
+
+  @Override
+  public void resolve(Object value, ConditionSink sink) {
+    String string = (String) value;
+    long[] found = sink.scratchBits(literalCount);
+    automaton.scan(string, found);
+    for (int i = 0; i < conditionIds.length; i++) {
+      int literal = requiredLiteral[i];
+      boolean candidate = literal < 0 || (found[literal >>> 6] & (1L << literal)) != 0;
+      sink.accept(conditionIds[i], candidate && patterns[i].matcher(string).matches());
+    }
+  }
+
+  /** Collects patterns and builds the literal automaton once. */
+  public static final class Builder {
+    private final List<Integer> conditionIds = new ArrayList<>();
+    private final List<Pattern> patterns = new ArrayList<>();
+
+    private Builder() {}
+
+    /**
+     * Adds a condition to the index.
+     *
+     * @param conditionId The condition id reported to the sink
+     * @param pattern     The compiled expression the value has to match
+     * @return This builder
+     */
+    public Builder add(int conditionId, Pattern pattern) {
+      if (pattern.flags() != 0) {
+        throw new IllegalArgumentException("PatternIndex only supports patterns without flags");
+      }
+      conditionIds.add(conditionId);
+      patterns.add(pattern);
+      return this;
+    }
+
+    public PatternIndex build() {
+      Map<String, Integer> literals = new LinkedHashMap<>();
+      int[] requiredLiteral = new int[patterns.size()];
+      for (int i = 0; i < patterns.size(); i++) {
+        String literal = RequiredLiterals.of(patterns.get(i).pattern());
+        if (literal.isEmpty()) {
+          requiredLiteral[i] = -1;
+        } else {
+          literals.putIfAbsent(literal, literals.size());
+          requiredLiteral[i] = literals.get(literal);
+        }
+      }
+
+      return new PatternIndex(
+          conditionIds.stream().mapToInt(Integer::intValue).toArray(),
+          patterns.toArray(new Pattern[0]),
+          requiredLiteral,
+          literals.size(),
+          LiteralAutomaton.of(new ArrayList<>(literals.keySet())));
+    }
+  }
+}
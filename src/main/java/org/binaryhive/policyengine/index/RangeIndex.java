@@ -0,0 +1,120 @@
+package org.binaryhive.policyengine.index;
+
+import java.util.*;
+import org.binaryhive.policyengine.model.Operator;
+
+/**
+ * Index over {@link Operator#GREATER_THAN} or {@link Operator#LESS_THAN} conditions of one
+ * attribute. Thresholds are kept sorted, so a single binary search over them splits the
+ * conditions into satisfied and unsatisfied ones.
+ */
+public final class RangeIndex implements ConditionIndex {
+  private final Operator operator;
+  private final Object[] thresholds;
+  private final int[] conditionIds;
+
+  private RangeIndex(Operator operator, Object[] thresholds, int[] conditionIds) {
+    this.operator = operator;
+    this.thresholds = thresholds;
+    this.conditionIds = conditionIds;
+  }
+
+  /**
+   * Creates a builder for an index over conditions with the given operator.
+   *
+   * @param operator {@link Operator#GREATER_THAN} or {@link Operator#LESS_THAN}
+   * @return A new builder
+   */
+  public static Builder builder(Operator operator) {
+    if (operator != Operator.GREATER_THAN && operator != Operator.LESS_THAN) {
+      throw new IllegalArgumentException("RangeIndex only supports GREATER_THAN or LESS_THAN");
+    }
+    return new Builder(operator);
+  }
+
+  public Operator getOperator() {
+    return operator;
+  }
+
+  @Override
+  public int[] conditionIds() {
+    return conditionIds;
+  }
+
+  /**
+   * Finds the split point for a value. For GREATER_THAN the conditions before the split point are
+   * satisfied, for LESS_THAN the conditions from the split point on.
+   *
+   * @param value The context value, of the same type as the thresholds
+   * @return The split point in threshold order
+   */
+  public int split(Object value) {
+    @SuppressWarnings("unchecked")
+    Comparable<Object> comparable = (Comparable<Object>) value;
+    // GREATER_THAN: thresholds < value; LESS_THAN: thresholds <= value are not satisfied
+    boolean inclusive = operator == Operator.LESS_THAN;
+    int low = 0;
+    int high = thresholds.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      int cmp = comparable.compareTo(thresholds[mid]);
+      if (cmp > 0 || (inclusive && cmp == 0)) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  @Override
+  public void resolve(Object value, ConditionSink sink) {
+    int split = split(value);
+    boolean belowSplitMet = operator == Operator.GREATER_THAN;
+    for (int i = 0; i < conditionIds.length; i++) {
+      sink.accept(conditionIds[i], (i < split) == belowSplitMet);
+    }
+  }
+
+  /** Collects thresholds and sorts them once when the index is built. */
+  public static final class Builder {
+    private final Operator operator;
+    private final List<Object> thresholds = new ArrayList<>();
+    private final List<Integer> conditionIds = new ArrayList<>();
+
+    private Builder(Operator operator) {
+      this.operator = operator;
+    }
+
+    /**
+     * Adds a condition to the index. All thresholds of an index must be mutually comparable.
+     *
+     * @param conditionId The condition id reported to the sink
+     * @param threshold   The value the condition compares against
+     * @return This builder
+     */
+    public Builder add(int conditionId, Comparable<?> threshold) {
+      thresholds.add(Objects.requireNonNull(threshold, "threshold"));
+      conditionIds.add(conditionId);
+      return this;
+    }
+
+    public RangeIndex build() {
+      Integer[] order = new Integer[thresholds.size()];
+      for (int i = 0; i < order.length; i++) {
+        order[i] = i;
+      }
+      @SuppressWarnings("unchecked")
+      Comparator<Object> natural = (a, b) -> ((Comparable<Object>) a).compareTo(b);
+      Arrays.sort(order, (a, b) -> natural.compare(thresholds.get(a), thresholds.get(b)));
+
+      Object[] sortedThresholds = new Object[order.length];
+      int[] sortedIds = new int[order.length];
+      for (int i = 0; i < order.length; i++) {
+        sortedThresholds[i] = thresholds.get(order[i]);
+        sortedIds[i] = conditionIds.get(order[i]);
+      }
+      return new RangeIndex(operator, sortedThresholds, sortedIds);
+    }
+  }
+}
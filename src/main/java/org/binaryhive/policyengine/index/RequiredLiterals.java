@@ -0,0 +1,155 @@
+package org.binaryhive.policyengine.index;
+
+/**
+ * Finds a literal that every string fully matching a regular expression must contain. The scan is
+ * conservative: constructs it does not understand make it report no literal, which only costs the
+ * prefilter, never correctness. It reads the expression by code point, as {@link
+ * java.util.regex.Pattern} does, so a quantifier after a supplementary character applies to the
+ * whole surrogate pair.
+ */
+final class RequiredLiterals {
+  private RequiredLiterals() {}
+
+  /**
+   * Returns the longest run of characters that must appear in every match, or the empty string if
+   * no such run can be proven.
+   *
+   * @param regex The regular expression, compiled without flags
+   * @return The required literal, possibly empty
+   */
+  static String of(String regex) {
+    if (regex.contains("(?") || regex.contains("\\Q")) {
+      // Inline flags and quoting change how the characters that follow are read
+      return "";
+    }
+
+    String longest = "";
+    StringBuilder run = new StringBuilder();
+    int i = 0;
+    while (i < regex.length()) {
+      int c = regex.codePointAt(i);
+      int width = Character.charCount(c);
+      switch (c) {
+        case '|' -> {
+          // Top-level alternation: no literal is common to all branches
+          return "";
+        }
+        case '(' -> {
+          longest = longer(longest, run);
+          i = skipQuantifier(regex, skipGroup(regex, i));
+          continue;
+        }
+        case '[' -> {
+          longest = longer(longest, run);
+          i = skipQuantifier(regex, skipClass(regex, i));
+          continue;
+        }
+        case '.', '^', '$' -> {
+          longest = longer(longest, run);
+          i = skipQuantifier(regex, i + 1);
+          continue;
+        }
+        case '\\' -> {
+          if (i + 1 >= regex.length()) {
+            return "";
+          }
+          int escaped = regex.codePointAt(i + 1);
+          if (Character.isLetterOrDigit(escaped)) {
+            if ("dDsSwWbB".indexOf(escaped) < 0) {
+              // Escapes with arguments (\p{..}, \x.., \k<..>, back references) are not parsed
+              return "";
+            }
+            longest = longer(longest, run);
+            i = skipQuantifier(regex, i + 2);
+            continue;
+          }
+          c = escaped;
+          width = Character.charCount(escaped);
+          i++;
+        }
+        default -> {}
+      }
+
+      // A literal code point, possibly followed by a quantifier
+      int next = i + width;
+      char quantifier = next < regex.length() ? regex.charAt(next) : 0;
+      if (quantifier == '?' || quantifier == '*' || quantifier == '{') {
+        longest = longer(longest, run);
+      } else if (quantifier == '+') {
+        run.appendCodePoint(c);
+        longest = longer(longest, run);
+      } else {
+        run.appendCodePoint(c);
+      }
+      i = skipQuantifier(regex, next);
+    }
+    return longer(longest, run);
+  }
+
+  /** Returns the longer of the two and clears the run. */
+  private static String longer(String longest, StringBuilder run) {
+    String candidate = run.toString();
+    run.setLength(0);
+    return candidate.length() > longest.length() ? candidate : longest;
+  }
+
+  private static int skipQuantifier(String regex, int i) {
+    if (i >= regex.length()) {
+      return i;
+    }
+    char c = regex.charAt(i);
+    if (c == '?' || c == '*' || c == '+') {
+      i++;
+    } else if (c == '{') {
+      int close = regex.indexOf('}', i);
+      i = close < 0 ? regex.length() : close + 1;
+    } else {
+      return i;
+    }
+    // Lazy and possessive modifiers
+    if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+      i++;
+    }
+    return i;
+  }
+
+  private static int skipGroup(String regex, int open) {
+    int depth = 0;
+    for (int i = open; i < regex.length(); i++) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i++;
+      } else if (c == '[') {
+        i = skipClass(regex, i) - 1;
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')' && --depth == 0) {
+        return i + 1;
+      }
+    }
+    return regex.length();
+  }
+
+  private static int skipClass(String regex, int open) {
+    int i = open + 1;
+    if (i < regex.length() && regex.charAt(i) == '^') {
+      i++;
+    }
+    if (i < regex.length() && regex.charAt(i) == ']') {
+      // A closing bracket right after the opening one is a literal
+      i++;
+    }
+    int depth = 1;
+    for (; i < regex.length(); i++) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i++;
+      } else if (c == '[') {
+        depth++;
+      } else if (c == ']' && --depth == 0) {
+        return i + 1;
+      }
+    }
+    return regex.length();
+  }
+}
@@ -1,19 +1,42 @@
 package org.binaryhive.policyengine.model;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Function;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import org.binaryhive.policyengine.exception.AttributeConversionException;
 
-@RequiredArgsConstructor
 public class Attribute<T> {
+  /** Validator shared by attributes that accept every value, so they can be recognized. */
+  private static final Function<Object, Boolean> ACCEPT_ALL = v -> true;
+
   @Getter private final String name;
   @Getter private final Class<T> type;
   private final Function<Object, T> converter;
   private final Function<T, Boolean> validator;
 
+  /** The attribute of the elements for list attributes, otherwise null. */
+  @Getter private final Attribute<?> elementType;
+
+  public Attribute(
+      String name, Class<T> type, Function<Object, T> converter, Function<T, Boolean> validator) {
+    this(name, type, converter, validator, null);
+  }
+
+  private Attribute(
+      String name,
+      Class<T> type,
+      Function<Object, T> converter,
+      Function<T, Boolean> validator,
+      Attribute<?> elementType) {
+    this.name = name;
+    this.type = type;
+    this.converter = converter;
+    this.validator = validator;
+    this.elementType = elementType;
+  }
+
   public T convert(Object value) {
     if (value == null) {
       return null;
@@ -44,8 +67,54 @@ public class Attribute<T> {
     }
   }
 
+  /**
+   * Checks whether this is a string attribute that accepts every value, so a string converts to
+   * itself and can never fail validation.
+   *
+   * @return true for plain string attributes
+   */
+  public boolean acceptsAnyString() {
+    return type == String.class && validator == (Object) ACCEPT_ALL;
+  }
+
+  /**
+   * Checks whether values that already have this attribute's type convert to themselves and are
+   * always valid, as for attributes created by {@link #string(String)} and {@link
+   * #integer(String)}. Such values can be tested without converting them.
+   *
+   * @return true for plain string and integer attributes
+   */
+  public boolean acceptsInstances() {
+    return (type == String.class || type == Integer.class) && validator == (Object) ACCEPT_ALL;
+  }
+
+  /**
+   * Checks whether another attribute converts and validates values exactly like this one, so a
+   * value converted by one can be used for conditions on the other.
+   * <p>List attributes created by {@link #list(String, Attribute)} each carry their own converter,
+   * so they are compared through their element attributes instead.
+   *
+   * @param other The attribute to compare with
+   * @return true if both attributes share name, type, converter and validator
+   */
+  public boolean convertsLike(Attribute<?> other) {
+    if (this == other) {
+      return true;
+    }
+    if (!name.equals(other.name) || type != other.type || validator != (Object) other.validator) {
+      return false;
+    }
+    if (converter == (Object) other.converter) {
+      return true;
+    }
+    return elementType != null
+        && other.elementType != null
+        && elementType.convertsLike(other.elementType);
+  }
+
+  @SuppressWarnings("unchecked")
   public static Attribute<String> string(String name) {
-    return string(name, s -> true);
+    return string(name, (Function<String, Boolean>) (Function<?, Boolean>) ACCEPT_ALL);
   }
 
   public static Attribute<String> string(String name, Function<String, Boolean> validator) {
@@ -53,50 +122,24 @@ public class Attribute<T> {
         name, String.class, v -> v instanceof String ? (String) v : String.valueOf(v), validator);
   }
 
+  @SuppressWarnings("unchecked")
   public static Attribute<Integer> integer(String name) {
-    return integer(name, i -> true);
+    return integer(name, (Function<Integer, Boolean>) (Function<?, Boolean>) ACCEPT_ALL);
   }
 
   public static Attribute<Integer> integer(String name, Function<Integer, Boolean> validator) {
-    return new Attribute<>(
-        name,
-        Integer.class,
-        v -> {
-          if (v instanceof Integer) return (Integer) v;
-          if (v instanceof Number) return ((Number) v).intValue();
-          if (v instanceof String) return Integer.parseInt((String) v);
-          throw new AttributeConversionException("Cannot convert to Integer: " + v);
-        },
-        validator);
+    return new Attribute<>(name, Integer.class, AttributeConverters.integer(), validator);
   }
 
   public static <E extends Enum<E>> Attribute<E> enumType(String name, Class<E> enumClass) {
-    return new Attribute<>(
-        name,
-        enumClass,
-        v -> {
-          if (enumClass.isInstance(v)) return enumClass.cast(v);
-          if (v instanceof String) {
-            String strValue = (String) v;
-            try {
-              return Enum.valueOf(enumClass, strValue);
-            } catch (IllegalArgumentException e) {
-              // Try case-insensitive match
-              for (E enumConstant : enumClass.getEnumConstants()) {
-                if (enumConstant.name().equalsIgnoreCase(strValue)) {
-                  return enumConstant;
-                }
-              }
-              throw new AttributeConversionException(
-                  "No enum constant " + enumClass.getSimpleName() + "." + strValue);
-            }
-          }
-          throw new AttributeConversionException(
-              "Cannot convert to " + enumClass.getSimpleName() + ": " + v);
-        },
-        e -> true);
+    return new Attribute<>(name, enumClass, AttributeConverters.enumType(enumClass), e -> true);
   }
 
+  /**
+   * Creates a list attribute. Lists are converted element by element; a string containing commas
+   * is split with {@link DelimitedValues}. Each element is converted and validated exactly once.
+   */
+  @SuppressWarnings("unchecked")
   public static <T> Attribute<List<T>> list(String name, Attribute<T> elementType) {
     return new Attribute<>(
         name,
@@ -105,16 +148,25 @@ public class Attribute<T> {
           if (v instanceof List) {
             // Convert each element to the expected type
             List<?> list = (List<?>) v;
-            return list.stream().map(elementType::convert).toList();
+            List<T> converted = new ArrayList<>(list.size());
+            for (Object element : list) {
+              T convertedElement = elementType.convert(element);
+              if (convertedElement == null) {
+                throw new AttributeConversionException(
+                    "Value " + v + " is not valid for attribute " + name);
+              }
+              converted.add(convertedElement);
+            }
+            return Collections.unmodifiableList(converted);
           }
-          if (v instanceof String && ((String) v).contains(",")) {
+          if (v instanceof String && ((String) v).indexOf(',') >= 0) {
             // Convert comma-separated string to list
-            String[] parts = ((String) v).split("\\s*,\\s*");
-            return Arrays.stream(parts).map(elementType::convert).toList();
+            return DelimitedValues.parse((String) v, elementType);
           }
           // Single value to list
           return List.of(elementType.convert(v));
         },
-        list -> list.stream().allMatch(elementType::isValid));
+        list -> true,
+        elementType);
   }
 }
@@ -0,0 +1,86 @@
+package org.binaryhive.policyengine.model;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import org.binaryhive.policyengine.exception.AttributeConversionException;
+
+/**
+ * Specialized converters used by the {@link Attribute} factories. Lookup tables are built once when
+ * an attribute is created, so converting a known input costs a single hash lookup and never uses
+ * exceptions for control flow.
+ */
+final class AttributeConverters {
+  /** Integers whose decimal strings are cached; covers typical levels, counts and codes. */
+  private static final int SMALL_INTEGER_MIN = -128;
+
+  private static final int SMALL_INTEGER_MAX = 1024;
+  private static final Map<String, Integer> SMALL_INTEGERS = smallIntegers();
+
+  /** One converter per enum class, so enum attributes with the same name convert alike. */
+  private static final ClassValue<Function<Object, ?>> ENUM_CONVERTERS =
+      new ClassValue<>() {
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected Function<Object, ?> computeValue(Class<?> type) {
+          return enumConverter((Class) type);
+        }
+      };
+
+  private AttributeConverters() {}
+
+  static Function<Object, Integer> integer() {
+    return v -> {
+      if (v instanceof Integer) return (Integer) v;
+      if (v instanceof Number) return ((Number) v).intValue();
+      if (v instanceof String) {
+        Integer cached = SMALL_INTEGERS.get(v);
+        return cached != null ? cached : Integer.valueOf(Integer.parseInt((String) v));
+      }
+      throw new AttributeConversionException("Cannot convert to Integer: " + v);
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  static <E extends Enum<E>> Function<Object, E> enumType(Class<E> enumClass) {
+    return (Function<Object, E>) ENUM_CONVERTERS.get(enumClass);
+  }
+
+  private static <E extends Enum<E>> Function<Object, E> enumConverter(Class<E> enumClass) {
+    Map<String, E> byName = new HashMap<>();
+    Map<String, E> byFoldedName = new HashMap<>();
+    for (E enumConstant : enumClass.getEnumConstants()) {
+      byName.put(enumConstant.name(), enumConstant);
+      // Declaration order wins when constants differ only by case
+      byFoldedName.putIfAbsent(enumConstant.name().toLowerCase(Locale.ROOT), enumConstant);
+    }
+
+    return v -> {
+      if (enumClass.isInstance(v)) return enumClass.cast(v);
+      if (v instanceof String) {
+        String strValue = (String) v;
+        E enumConstant = byName.get(strValue);
+        if (enumConstant == null) {
+          // Try case-insensitive match
+          enumConstant = byFoldedName.get(strValue.toLowerCase(Locale.ROOT));
+        }
+        if (enumConstant == null) {
+          throw new AttributeConversionException(
+              "No enum constant " + enumClass.getSimpleName() + "." + strValue);
+        }
+        return enumConstant;
+      }
+      throw new AttributeConversionException(
+          "Cannot convert to " + enumClass.getSimpleName() + ": " + v);
+    };
+  }
+
+  private static Map<String, Integer> smallIntegers() {
+    Map<String, Integer> integers = new HashMap<>();
+    for (int i = SMALL_INTEGER_MIN; i <= SMALL_INTEGER_MAX; i++) {
+      integers.put(Integer.toString(i), i);
+    }
+    return integers;
+  }
+}
@@ -0,0 +1,236 @@
+package org.binaryhive.policyengine.model;
+
+import java.util.*;
+import java.util.function.Predicate;
+import org.binaryhive.policyengine.exception.AttributeConversionException;
+
+/**
+ * Single-pass handling of comma-separated list attribute values.
+ *
+ * <p>A string that contains a comma is split into elements at each comma, and the whitespace on
+ * both sides of the comma is dropped. Trailing empty elements are dropped too. These are the same
+ * rules as {@code value.split("\\s*,\\s*")}, without the regular expression. A string without a
+ * comma is a single element, kept exactly as it is.
+ *
+ * <p>Elements are converted and validated in the same pass. Membership tests can run over the
+ * character sequence itself, so no element list is created.
+ */
+public final class DelimitedValues {
+  private DelimitedValues() {}
+
+  /**
+   * Converts a comma-separated string into a list, converting and validating each element once.
+   *
+   * @param delimited   The comma-separated string
+   * @param elementType The attribute used to convert each element
+   * @return The converted elements
+   * @throws AttributeConversionException if an element cannot be converted or is not valid
+   */
+  public static <T> List<T> parse(String delimited, Attribute<T> elementType) {
+    List<T> elements = new ArrayList<>();
+    forEach(
+        delimited,
+        (s, start, end) -> {
+          elements.add(convert(elementType, s.subSequence(start, end).toString()));
+          return false;
+        });
+    return Collections.unmodifiableList(elements);
+  }
+
+  /**
+   * Tests whether any element of a comma-separated string is contained in the given values.
+   *
+   * <p>Elements of plain string attributes are compared directly against the characters of the
+   * input and the scan stops at the first match. Elements of other attributes are converted one at
+   * a time. All of them are still converted, so an invalid element fails the same way as a full
+   * conversion would.
+   *
+   * @param delimited   The comma-separated string
+   * @param elementType The attribute used to convert each element
+   * @param values      The values to look for
+   * @return true if at least one element is among the values
+   * @throws AttributeConversionException if an element cannot be converted or is not valid
+   */
+  public static boolean containsAny(
+      CharSequence delimited, Attribute<?> elementType, ValueLookup values) {
+    if (elementType.acceptsAnyString()) {
+      boolean[] found = new boolean[1];
+      forEach(delimited, (s, start, end) -> found[0] = values.contains(s, start, end));
+      return found[0];
+    }
+    return anyMatch(delimited, elementType, values::contains);
+  }
+
+  private static <T> boolean anyMatch(
+      CharSequence delimited, Attribute<T> elementType, Predicate<Object> predicate) {
+    boolean[] found = new boolean[1];
+    forEach(
+        delimited,
+        (s, start, end) -> {
+          T element = convert(elementType, s.subSequence(start, end).toString());
+          found[0] |= predicate.test(element);
+          return false;
+        });
+    return found[0];
+  }
+
+  private static <T> T convert(Attribute<T> elementType, String element) {
+    T converted = elementType.convert(element);
+    if (converted == null) {
+      throw new AttributeConversionException(
+          "Value " + element + " is not valid for attribute " + elementType.getName());
+    }
+    return converted;
+  }
+
+  /**
+   * Calls the consumer with the bounds of each element until it returns true. Empty elements are
+   * held back until a non-empty element follows, so trailing empty elements are never reported.
+   */
+  static void forEach(CharSequence s, ElementConsumer consumer) {
+    int length = s.length();
+    int comma = indexOfComma(s, 0);
+    if (comma < 0) {
+      consumer.accept(s, 0, length);
+      return;
+    }
+
+    int pendingEmpty = 0;
+    int start = 0;
+    while (true) {
+      int end = comma < 0 ? length : comma;
+      if (comma >= 0) {
+        while (end > start && isSplitSpace(s.charAt(end - 1))) {
+          end--;
+        }
+      }
+      if (end == start) {
+        pendingEmpty++;
+      } else {
+        for (; pendingEmpty > 0; pendingEmpty--) {
+          if (consumer.accept(s, start, start)) {
+            return;
+          }
+        }
+        if (consumer.accept(s, start, end)) {
+          return;
+        }
+      }
+      if (comma < 0) {
+        return;
+      }
+      start = comma + 1;
+      while (start < length && isSplitSpace(s.charAt(start))) {
+        start++;
+      }
+      comma = indexOfComma(s, start);
+    }
+  }
+
+  private static int indexOfComma(CharSequence s, int from) {
+    for (int i = from; i < s.length(); i++) {
+      if (s.charAt(i) == ',') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Matches the regular expression class {@code \s}. */
+  private static boolean isSplitSpace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  @FunctionalInterface
+  interface ElementConsumer {
+    /** Receives one element as a range of the input; returns true to stop the scan. */
+    boolean accept(CharSequence s, int start, int end);
+  }
+
+  /**
+   * Set of condition values that can also be queried with a range of characters, so string
+   * elements are looked up without creating a substring.
+   */
+  public static final class ValueLookup {
+    private final Collection<?> values;
+    private final String[] table;
+    private final int mask;
+
+    private ValueLookup(Collection<?> values) {
+      this.values = values;
+      List<String> strings = new ArrayList<>();
+      for (Object value : values) {
+        if (value instanceof String string) {
+          strings.add(string);
+        }
+      }
+      int capacity = Integer.highestOneBit(Math.max(1, strings.size()) * 2 - 1) << 1;
+      this.table = new String[capacity];
+      this.mask = capacity - 1;
+      for (String string : strings) {
+        int i = mix(string.hashCode()) & mask;
+        while (table[i] != null && !table[i].equals(string)) {
+          i = (i + 1) & mask;
+        }
+        table[i] = string;
+      }
+    }
+
+    /**
+     * Creates a lookup over the given values.
+     *
+     * @param values The values
+     * @return The lookup
+     */
+    public static ValueLookup of(Collection<?> values) {
+      return new ValueLookup(values);
+    }
+
+    /**
+     * Checks whether the given value is one of the values.
+     *
+     * @param value The value to look for
+     * @return true if the value is contained
+     */
+    public boolean contains(Object value) {
+      return values.contains(value);
+    }
+
+    /**
+     * Checks whether the characters {@code s[start, end)} equal one of the string values.
+     *
+     * @param s     The character sequence
+     * @param start The start index, inclusive
+     * @param end   The end index, exclusive
+     * @return true if the range matches a value
+     */
+    public boolean contains(CharSequence s, int start, int end) {
+      int hash = 0;
+      for (int i = start; i < end; i++) {
+        hash = 31 * hash + s.charAt(i);
+      }
+      for (int i = mix(hash) & mask; table[i] != null; i = (i + 1) & mask) {
+        if (regionEquals(table[i], s, start, end)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private static boolean regionEquals(String value, CharSequence s, int start, int end) {
+      if (value.length() != end - start) {
+        return false;
+      }
+      for (int i = 0; i < value.length(); i++) {
+        if (value.charAt(i) != s.charAt(start + i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static int mix(int hash) {
+      return hash ^ (hash >>> 16);
+    }
+  }
+}
@@ -6,5 +6,8 @@ public enum Operator {
   IN,
   NOT_IN,
   GREATER_THAN,
-  LESS_THAN
+  LESS_THAN,
+  STARTS_WITH,
+  ENDS_WITH,
+  MATCHES
 }
@@ -17,7 +17,31 @@ public class Policy {
   private String description;
   private List<Condition<?>> conditions;
   private Effect effect;
-  
+
+  /**
+   * Evaluation priority. Policies with a higher priority are evaluated first; policies of equal
+   * priority keep their list order. Defaults to 0.
+   */
+  private int priority;
+
+  /**
+   * Constructor without a priority.
+   *
+   * @param policyId unique identifier for this policy
+   * @param name display name for this policy
+   * @param description description of this policy
+   * @param conditions list of conditions that must be satisfied
+   * @param effect the effect to apply if conditions are met
+   */
+  public Policy(
+      String policyId,
+      String name,
+      String description,
+      List<Condition<?>> conditions,
+      Effect effect) {
+    this(policyId, name, description, conditions, effect, 0);
+  }
+
   /**
    * Constructor with essential fields.
    * 
@@ -33,6 +57,17 @@ public class Policy {
     this.effect = effect;
   }
   
+  /**
+   * Copies this policy with other conditions. Every other field is copied as stored, so an unset
+   * name stays unset rather than taking the policyId shown by {@link #getName()}.
+   *
+   * @param conditions the conditions of the copy
+   * @return a new policy with the given conditions
+   */
+  public Policy withConditions(List<Condition<?>> conditions) {
+    return new Policy(policyId, name, description, conditions, effect, priority);
+  }
+
   /**
    * Returns the name if available, otherwise the policyId.
    * 
@@ -0,0 +1,110 @@
+package org.binaryhive.policyengine.condition;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.binaryhive.policyengine.model.Attribute;
+import org.binaryhive.policyengine.model.Operator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class DenyListConditionTest {
+
+  @Nested
+  @DisplayName("Evaluation Tests")
+  class EvaluationTests {
+
+    @Test
+    @DisplayName("Should not be met for blocked values")
+    void shouldNotBeMetForBlockedValues() {
+      List<String> blocked = List.of("u-1", "u-2", "caf\u00e9", "\uD83D\uDE00");
+      DenyListCondition condition = DenyListCondition.of(Attribute.string("userId"), blocked);
+
+      assertFalse(condition.evaluate("u-1"));
+      assertFalse(condition.evaluate("caf\u00e9"));
+      assertFalse(condition.evaluate("\uD83D\uDE00"));
+      assertTrue(condition.evaluate("u-3"));
+      assertTrue(condition.evaluate(""));
+      assertTrue(condition.evaluate("\uD83D"));
+    }
+
+    @Test
+    @DisplayName("Should be met when context value is null")
+    void shouldBeMetWhenContextValueIsNull() {
+      DenyListCondition condition =
+          DenyListCondition.of(Attribute.string("userId"), List.of("u-1"));
+
+      assertTrue(condition.evaluate(null));
+    }
+
+    @Test
+    @DisplayName("Should handle an empty deny-list")
+    void shouldHandleEmptyDenyList() {
+      DenyListCondition condition = DenyListCondition.of(Attribute.string("userId"), List.of());
+
+      assertEquals(0, condition.size());
+      assertTrue(condition.evaluate("u-1"));
+    }
+
+    @Test
+    @DisplayName("Should agree exactly with a hash set")
+    void shouldAgreeExactlyWithHashSet() {
+      Random random = new Random(3);
+      Set<String> blocked = new HashSet<>();
+      List<String> values = new ArrayList<>();
+      for (int i = 0; i < 20_000; i++) {
+        String id = "id-" + random.nextInt(50_000);
+        values.add(id);
+        blocked.add(id);
+      }
+      DenyListCondition condition = DenyListCondition.of(Attribute.string("userId"), values);
+
+      assertEquals(blocked.size(), condition.size());
+      for (int i = 0; i < 50_000; i++) {
+        String id = "id-" + i;
+        assertEquals(!blocked.contains(id), condition.evaluate(id), id);
+      }
+    }
+
+    @Test
+    @DisplayName("Should use a few bytes per entry")
+    void shouldUseFewBytesPerEntry() {
+      List<String> values = new ArrayList<>();
+      for (int i = 0; i < 100_000; i++) {
+        values.add(String.format("acct-%08d", i));
+      }
+      DenyListCondition condition = DenyListCondition.of(Attribute.string("account"), values);
+
+      // 13 bytes of UTF-8, a 4-byte offset and about 1.25 bytes of filter per entry
+      assertTrue(condition.sizeInBytes() < 100_000L * 19);
+    }
+  }
+
+  @Nested
+  @DisplayName("Getter Tests")
+  class GetterTests {
+
+    @Test
+    @DisplayName("Should report NOT_IN operator and attribute")
+    void shouldReportOperatorAndAttribute() {
+      Attribute<String> attribute = Attribute.string("userId");
+      DenyListCondition condition = DenyListCondition.of(attribute, List.of("u-1"));
+
+      assertEquals(Operator.NOT_IN, condition.getOperator());
+      assertSame(attribute, condition.getAttribute());
+    }
+
+    @Test
+    @DisplayName("Should reject null and malformed entries")
+    void shouldRejectNullAndMalformedEntries() {
+      Attribute<String> attribute = Attribute.string("userId");
+
+      assertThrows(
+          NullPointerException.class,
+          () -> DenyListCondition.of(attribute, Arrays.asList("u-1", null)));
+      assertThrows(
+          IllegalArgumentException.class, () -> DenyListCondition.of(attribute, List.of("\uDC00")));
+    }
+  }
+}
@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import org.binaryhive.policyengine.exception.AttributeConversionException;
 import org.binaryhive.policyengine.model.Attribute;
 import org.binaryhive.policyengine.model.Operator;
 import org.junit.jupiter.api.DisplayName;
@@ -276,4 +277,61 @@ class ListConditionTest {
       assertFalse(condition.evaluate("something else"));
     }
   }
+
+  @Nested
+  @DisplayName("Delimited Value Tests")
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  class DelimitedValueTests {
+
+    private final Attribute<List<String>> groups =
+        Attribute.list("groups", Attribute.string("group"));
+
+    @Test
+    @DisplayName("Should test membership over a comma-separated string")
+    void shouldTestMembershipOverCommaSeparatedString() {
+      ListCondition<List<String>> in =
+          new ListCondition(groups, Operator.IN, Arrays.asList("admins", "ops"));
+      ListCondition<List<String>> notIn =
+          new ListCondition(groups, Operator.NOT_IN, Arrays.asList("admins", "ops"));
+
+      assertTrue(in.evaluateDelimited("users, ops ,dev"));
+      assertFalse(in.evaluateDelimited("users,dev"));
+      assertFalse(notIn.evaluateDelimited("users, ops"));
+      assertTrue(notIn.evaluateDelimited("users,dev"));
+    }
+
+    @Test
+    @DisplayName("Should match evaluating the converted list")
+    void shouldMatchEvaluatingConvertedList() {
+      ListCondition<List<String>> condition =
+          new ListCondition(groups, Operator.IN, Arrays.asList("", "ops", "a b"));
+      String[] inputs = {"ops", " ops", "x,,y", "x,y,,", "", ",", "x, a b ,y", "x,ops "};
+
+      for (String input : inputs) {
+        assertEquals(
+            condition.evaluate(groups.convert(input)), condition.evaluateDelimited(input), input);
+      }
+    }
+
+    @Test
+    @DisplayName("Should convert and validate typed elements")
+    void shouldConvertAndValidateTypedElements() {
+      Attribute<List<Integer>> levels = Attribute.list("levels", Attribute.integer("level"));
+      ListCondition<List<Integer>> condition =
+          new ListCondition(levels, Operator.IN, Arrays.asList(3, 5));
+
+      assertTrue(condition.evaluateDelimited("1, 5"));
+      assertFalse(condition.evaluateDelimited("1,2"));
+      assertThrows(AttributeConversionException.class, () -> condition.evaluateDelimited("5,x"));
+    }
+
+    @Test
+    @DisplayName("Should reject non-list attributes")
+    void shouldRejectNonListAttributes() {
+      ListCondition<String> condition =
+          new ListCondition<>(Attribute.string("group"), Operator.IN, Arrays.asList("ops"));
+
+      assertThrows(IllegalStateException.class, () -> condition.evaluateDelimited("ops"));
+    }
+  }
 }
@@ -249,6 +249,85 @@ class ValueConditionTest {
     }
   }
 
+  @Nested
+  @DisplayName("STARTS_WITH and ENDS_WITH Operator Tests")
+  class AffixOperatorTests {
+
+    @Test
+    @DisplayName("Should match prefixes")
+    void shouldMatchPrefixes() {
+      Attribute<String> attribute = Attribute.string("resource");
+      ValueCondition<String> condition =
+          new ValueCondition<>(attribute, Operator.STARTS_WITH, "acct-eu-");
+
+      assertTrue(condition.evaluate("acct-eu-42"));
+      assertTrue(condition.evaluate("acct-eu-"));
+      assertFalse(condition.evaluate("acct-us-42"));
+      assertFalse(condition.evaluate("acct-eu"));
+    }
+
+    @Test
+    @DisplayName("Should match suffixes")
+    void shouldMatchSuffixes() {
+      Attribute<String> attribute = Attribute.string("file");
+      ValueCondition<String> condition = new ValueCondition<>(attribute, Operator.ENDS_WITH, ".pdf");
+
+      assertTrue(condition.evaluate("report.pdf"));
+      assertFalse(condition.evaluate("report.pdf.txt"));
+    }
+
+    @Test
+    @DisplayName("Should return false when context value is null")
+    void shouldReturnFalseWhenContextValueIsNull() {
+      Attribute<String> attribute = Attribute.string("resource");
+      ValueCondition<String> condition =
+          new ValueCondition<>(attribute, Operator.STARTS_WITH, "acct-");
+
+      assertFalse(condition.evaluate(null));
+    }
+
+    @Test
+    @DisplayName("Should reject non-string condition values")
+    void shouldRejectNonStringConditionValues() {
+      Attribute<Integer> attribute = Attribute.integer("level");
+
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> new ValueCondition<>(attribute, Operator.STARTS_WITH, 1));
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> new ValueCondition<>(Attribute.string("name"), Operator.ENDS_WITH, null));
+    }
+  }
+
+  @Nested
+  @DisplayName("MATCHES Operator Tests")
+  class MatchesOperatorTests {
+
+    @Test
+    @DisplayName("Should match the whole value against the compiled pattern")
+    void shouldMatchWholeValue() {
+      Attribute<String> attribute = Attribute.string("userAgent");
+      ValueCondition<String> condition =
+          new ValueCondition<>(attribute, Operator.MATCHES, "curl/\\d+\\..*");
+
+      assertEquals("curl/\\d+\\..*", condition.getPattern().pattern());
+      assertTrue(condition.evaluate("curl/8.4.0"));
+      assertFalse(condition.evaluate("xcurl/8.4.0"));
+      assertFalse(condition.evaluate(null));
+    }
+
+    @Test
+    @DisplayName("Should reject invalid patterns when the condition is built")
+    void shouldRejectInvalidPatterns() {
+      Attribute<String> attribute = Attribute.string("userAgent");
+
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> new ValueCondition<>(attribute, Operator.MATCHES, "curl/("));
+    }
+  }
+
   @Nested
   @DisplayName("Type-specific Tests")
   class TypeSpecificTests {
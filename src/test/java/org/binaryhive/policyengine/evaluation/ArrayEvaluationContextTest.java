@@ -0,0 +1,128 @@
+package org.binaryhive.policyengine.evaluation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.binaryhive.policyengine.condition.ListCondition;
+import org.binaryhive.policyengine.condition.ValueCondition;
+import org.binaryhive.policyengine.model.Attribute;
+import org.binaryhive.policyengine.model.Effect;
+import org.binaryhive.policyengine.model.Operator;
+import org.binaryhive.policyengine.model.Policy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class ArrayEvaluationContextTest {
+
+  private PolicySet policySet;
+  private ArrayEvaluationContext.Builder builder;
+
+  @BeforeEach
+  void setUp() {
+    Policy allowEditors =
+        new Policy(
+            "allow-editors",
+            "Allow editors",
+            List.of(new ListCondition<>(Attribute.string("role"), Operator.IN, List.of("editor"))),
+            Effect.ALLOW);
+    Policy denyHighLevel =
+        new Policy(
+            "deny-high-level",
+            "Deny high level",
+            List.of(new ValueCondition<>(Attribute.integer("level"), Operator.GREATER_THAN, 3)),
+            Effect.DENY);
+    policySet = PolicySet.of(List.of(allowEditors, denyHighLevel));
+    builder = ArrayEvaluationContext.builder(policySet);
+  }
+
+  @Nested
+  @DisplayName("Builder Tests")
+  class BuilderTests {
+
+    @Test
+    @DisplayName("Should expose attributes through the map view")
+    void shouldExposeAttributesThroughMapView() {
+      ArrayEvaluationContext context =
+          builder.action("read").attribute("role", "editor").attribute("region", "eu").build();
+
+      assertEquals(Optional.of("editor"), context.getAttribute("role"));
+      assertEquals(Optional.of("eu"), context.getAttribute("region"));
+      assertEquals(Optional.empty(), context.getAttribute("level"));
+      assertEquals(Map.of("role", "editor", "region", "eu"), context.getContext());
+      assertSame(policySet, context.policies());
+    }
+
+    @Test
+    @DisplayName("Should keep actions unique")
+    void shouldKeepActionsUnique() {
+      ArrayEvaluationContext context =
+          builder.action("read").action("write").action("read").action("a").action("b").build();
+
+      assertEquals(Set.of("read", "write", "a", "b"), context.getActions());
+      assertTrue(context.hasAction("write"));
+      assertFalse(context.hasAction("delete"));
+      assertEquals("read", context.getAction());
+    }
+
+    @Test
+    @DisplayName("Should clear actions and attributes on reset")
+    void shouldClearOnReset() {
+      ArrayEvaluationContext first =
+          builder.action("read").attribute("role", "editor").attribute("region", "eu").build();
+      ArrayEvaluationContext second = builder.reset().action("write").build();
+
+      assertSame(first, second);
+      assertEquals(Set.of("write"), second.getActions());
+      assertTrue(second.getContext().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should set attributes by slot")
+    void shouldSetAttributesBySlot() {
+      int levelSlot = policySet.attributes().slot("level");
+
+      ArrayEvaluationContext context = builder.attribute(levelSlot, 7).build();
+
+      assertEquals(Optional.of(7), context.getAttribute("level"));
+    }
+  }
+
+  @Nested
+  @DisplayName("Evaluation Tests")
+  class EvaluationTests {
+
+    @Test
+    @DisplayName("Should evaluate like a map-based context")
+    void shouldEvaluateLikeMapBasedContext() {
+      ContextEvaluator evaluator = new ContextEvaluator(new PolicyEvaluator());
+
+      assertEquals(
+          PolicyEvaluationResult.ALLOW,
+          evaluator.evaluate(
+              builder
+                  .reset()
+                  .action("read")
+                  .attribute("role", "editor")
+                  .attribute("level", 1)
+                  .build()));
+      assertEquals(
+          PolicyEvaluationResult.DENY,
+          evaluator.evaluate(
+              builder
+                  .reset()
+                  .action("read")
+                  .attribute("role", "editor")
+                  .attribute("level", "5")
+                  .build()));
+      assertEquals(
+          PolicyEvaluationResult.NOT_APPLICABLE,
+          evaluator.evaluate(builder.reset().action("read").attribute("role", "viewer").build()));
+      assertEquals(
+          PolicyEvaluationResult.ALLOW,
+          evaluator.evaluateForAction(
+              builder.reset().action("read").attribute("role", "editor").build(), "read"));
+    }
+  }
+}
@@ -0,0 +1,313 @@
+package org.binaryhive.policyengine.evaluation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.binaryhive.policyengine.condition.Condition;
+import org.binaryhive.policyengine.condition.ValueCondition;
+import org.binaryhive.policyengine.evaluation.PolicyFixtures.ListContext;
+import org.binaryhive.policyengine.model.Attribute;
+import org.binaryhive.policyengine.model.Effect;
+import org.binaryhive.policyengine.model.Operator;
+import org.binaryhive.policyengine.model.Policy;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class CombiningAlgorithmTest {
+
+  private static final Attribute<String> ROLE = Attribute.string("role");
+
+  private static Policy policy(String id, Effect effect, String role) {
+    return PolicyFixtures.policy(id, effect, new ValueCondition<>(ROLE, Operator.EQUALS, role));
+  }
+
+  private static PolicyEvaluationResult evaluate(
+      CombiningAlgorithm algorithm, List<Policy> policies, String role) {
+    Map<String, Object> context = new HashMap<>();
+    context.put("role", role);
+    return new ContextEvaluator(new PolicyEvaluator(), algorithm)
+        .evaluate(new ListContext(context, policies));
+  }
+
+  @Nested
+  @DisplayName("Combining Tests")
+  class CombiningTests {
+
+    private final List<Policy> policies =
+        List.of(
+            policy("allow-editor", Effect.ALLOW, "editor"),
+            policy("deny-editor", Effect.DENY, "editor"),
+            policy("deny-guest", Effect.DENY, "guest"),
+            policy("allow-guest", Effect.ALLOW, "guest"),
+            policy("allow-admin", Effect.ALLOW, "admin"));
+
+    @Test
+    @DisplayName("Should let DENY win with deny-overrides")
+    void shouldCombineDenyOverrides() {
+      CombiningAlgorithm algorithm = CombiningAlgorithm.DENY_OVERRIDES;
+      assertEquals(PolicyEvaluationResult.DENY, evaluate(algorithm, policies, "editor"));
+      assertEquals(PolicyEvaluationResult.ALLOW, evaluate(algorithm, policies, "admin"));
+      assertEquals(PolicyEvaluationResult.NOT_APPLICABLE, evaluate(algorithm, policies, "x"));
+    }
+
+    @Test
+    @DisplayName("Should let ALLOW win with permit-overrides")
+    void shouldCombinePermitOverrides() {
+      CombiningAlgorithm algorithm = CombiningAlgorithm.PERMIT_OVERRIDES;
+      assertEquals(PolicyEvaluationResult.ALLOW, evaluate(algorithm, policies, "guest"));
+      assertEquals(
+          PolicyEvaluationResult.DENY,
+          evaluate(algorithm, List.of(policies.get(2), policies.get(4)), "guest"));
+      assertEquals(PolicyEvaluationResult.NOT_APPLICABLE, evaluate(algorithm, policies, "x"));
+    }
+
+    @Test
+    @DisplayName("Should return the first applicable result")
+    void shouldCombineFirstApplicable() {
+      CombiningAlgorithm algorithm = CombiningAlgorithm.FIRST_APPLICABLE;
+      assertEquals(PolicyEvaluationResult.ALLOW, evaluate(algorithm, policies, "editor"));
+      assertEquals(PolicyEvaluationResult.DENY, evaluate(algorithm, policies, "guest"));
+      assertEquals(PolicyEvaluationResult.NOT_APPLICABLE, evaluate(algorithm, policies, "x"));
+    }
+
+    @Test
+    @DisplayName("Should deny unless a policy allows")
+    void shouldCombineDenyUnlessPermit() {
+      CombiningAlgorithm algorithm = CombiningAlgorithm.DENY_UNLESS_PERMIT;
+      assertEquals(PolicyEvaluationResult.ALLOW, evaluate(algorithm, policies, "editor"));
+      assertEquals(PolicyEvaluationResult.DENY, evaluate(algorithm, policies, "x"));
+      assertEquals(PolicyEvaluationResult.DENY, evaluate(algorithm, List.of(), "editor"));
+    }
+
+    @Test
+    @DisplayName("Should ignore the decision diagram for other algorithms")
+    void shouldIgnoreDecisionDiagram() {
+      PolicySet compiled = PolicySet.of(policies).withDecisionDiagram();
+      assertTrue(compiled.decisionDiagram().isPresent());
+
+      for (CombiningAlgorithm algorithm : CombiningAlgorithm.values()) {
+        for (String role : Arrays.asList("editor", "guest", "admin", "x", null)) {
+          assertEquals(
+              evaluate(algorithm, policies, role),
+              evaluate(algorithm, compiled, role),
+              algorithm + " " + role);
+        }
+      }
+    }
+  }
+
+  @Nested
+  @DisplayName("Early Termination Tests")
+  class EarlyTerminationTests {
+
+    @Test
+    @DisplayName("Should stop at the first decisive policy")
+    void shouldStopAtDecisivePolicy() {
+      Map<CombiningAlgorithm, Effect> decisiveEffect =
+          Map.of(
+              CombiningAlgorithm.DENY_OVERRIDES, Effect.DENY,
+              CombiningAlgorithm.PERMIT_OVERRIDES, Effect.ALLOW,
+              CombiningAlgorithm.FIRST_APPLICABLE, Effect.DENY,
+              CombiningAlgorithm.DENY_UNLESS_PERMIT, Effect.ALLOW);
+
+      for (Map.Entry<CombiningAlgorithm, Effect> entry : decisiveEffect.entrySet()) {
+        CountingCondition after = new CountingCondition();
+        List<Policy> policies =
+            List.of(
+                policy("first", entry.getValue(), "editor"),
+                PolicyFixtures.policy("after", Effect.DENY, after),
+                PolicyFixtures.policy("after-allow", Effect.ALLOW, after));
+
+        PolicyEvaluationResult result = evaluate(entry.getKey(), policies, "editor");
+
+        assertEquals(entry.getValue() == Effect.ALLOW, result == PolicyEvaluationResult.ALLOW);
+        assertEquals(0, after.evaluations, entry.getKey().name());
+      }
+    }
+
+    @Test
+    @DisplayName("Should evaluate every policy when no result is decisive")
+    void shouldEvaluateAllWithoutDecisiveResult() {
+      CountingCondition last = new CountingCondition();
+      List<Policy> policies =
+          List.of(
+              policy("allow-editor", Effect.ALLOW, "editor"),
+              PolicyFixtures.policy("last", Effect.ALLOW, last));
+
+      assertEquals(
+          PolicyEvaluationResult.ALLOW,
+          evaluate(CombiningAlgorithm.DENY_OVERRIDES, policies, "editor"));
+      assertEquals(1, last.evaluations);
+    }
+  }
+
+  @Nested
+  @DisplayName("Priority Tests")
+  class PriorityTests {
+
+    private Policy policy(String id, Effect effect, int priority, String role) {
+      return PolicyFixtures.policy(
+          id, effect, priority, new ValueCondition<>(ROLE, Operator.EQUALS, role));
+    }
+
+    @Test
+    @DisplayName("Should apply the first applicable policy by priority")
+    void shouldApplyFirstApplicableByPriority() {
+      List<Policy> policies =
+          List.of(
+              policy("deny-editor", Effect.DENY, 0, "editor"),
+              policy("allow-editor", Effect.ALLOW, 5, "editor"));
+
+      assertEquals(
+          PolicyEvaluationResult.ALLOW,
+          evaluate(CombiningAlgorithm.FIRST_APPLICABLE, policies, "editor"));
+    }
+
+    @Test
+    @DisplayName("Should let the highest applicable priority decide")
+    void shouldLetHighestPriorityDecide() {
+      CountingCondition lower = new CountingCondition();
+      List<Policy> policies =
+          List.of(
+              PolicyFixtures.policy("deny-lower", Effect.DENY, 1, lower),
+              policy("deny-editor", Effect.DENY, 1, "editor"),
+              policy("allow-editor", Effect.ALLOW, 10, "editor"),
+              policy("deny-guest", Effect.DENY, 10, "guest"),
+              policy("allow-guest", Effect.ALLOW, 10, "guest"));
+
+      CombiningAlgorithm algorithm = CombiningAlgorithm.HIGHEST_PRIORITY;
+      assertEquals(PolicyEvaluationResult.ALLOW, evaluate(algorithm, policies, "editor"));
+      assertEquals(0, lower.evaluations);
+      assertEquals(PolicyEvaluationResult.DENY, evaluate(algorithm, policies, "guest"));
+      assertEquals(0, lower.evaluations);
+      assertEquals(PolicyEvaluationResult.NOT_APPLICABLE, evaluate(algorithm, policies, "x"));
+      assertEquals(1, lower.evaluations);
+    }
+
+    @Test
+    @DisplayName("Should deny-override within one priority")
+    void shouldDenyOverrideWithinPriority() {
+      List<Policy> policies =
+          List.of(
+              policy("allow-editor", Effect.ALLOW, 0, "editor"),
+              policy("deny-editor", Effect.DENY, 0, "editor"));
+
+      assertEquals(
+          PolicyEvaluationResult.DENY,
+          evaluate(CombiningAlgorithm.HIGHEST_PRIORITY, policies, "editor"));
+    }
+  }
+
+  @Nested
+  @DisplayName("Adaptive Policy Order Tests")
+  class AdaptivePolicyOrderTests {
+
+    @Test
+    @DisplayName("Should move policies that usually decide first")
+    void shouldMoveDecidingPoliciesFirst() {
+      List<CountingCondition> never = new ArrayList<>();
+      List<Policy> policies = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        never.add(new CountingCondition(20_000));
+        policies.add(PolicyFixtures.policy("never-" + i, Effect.ALLOW, never.get(i)));
+      }
+      policies.add(policy("deny-editor", Effect.DENY, "editor"));
+      PolicySet policySet = PolicySet.of(policies).withAdaptivePolicyOrder(1, 50, Runnable::run);
+
+      for (int i = 0; i < 100; i++) {
+        assertEquals(
+            PolicyEvaluationResult.DENY,
+            evaluate(CombiningAlgorithm.DENY_OVERRIDES, policySet, "editor"));
+      }
+
+      assertEquals(5, policySet.evaluationOrder(Effect.DENY)[0]);
+      // Evaluated by the first 49 requests only; later requests stop at the DENY
+      for (CountingCondition condition : never) {
+        assertEquals(49, condition.evaluations);
+      }
+    }
+
+    @Test
+    @DisplayName("Should keep the list order for first-applicable")
+    void shouldKeepListOrderForFirstApplicable() {
+      PolicySet policySet =
+          PolicySet.of(
+                  List.of(
+                      policy("allow-editor", Effect.ALLOW, "editor"),
+                      policy("deny-editor", Effect.DENY, "editor")))
+              .withAdaptivePolicyOrder(1, 5, Runnable::run);
+
+      for (int i = 0; i < 20; i++) {
+        assertEquals(
+            PolicyEvaluationResult.ALLOW,
+            evaluate(CombiningAlgorithm.FIRST_APPLICABLE, policySet, "editor"));
+        evaluate(CombiningAlgorithm.DENY_OVERRIDES, policySet, "editor");
+      }
+    }
+
+    @Test
+    @DisplayName("Should keep decisions of every algorithm")
+    void shouldKeepDecisions() {
+      Random random = new Random(42);
+      String[] roles = {"editor", "guest", "admin", "owner"};
+      List<Policy> policies = new ArrayList<>();
+      for (int i = 0; i < 30; i++) {
+        policies.add(
+            new Policy(
+                "p" + i,
+                "p" + i,
+                null,
+                List.of(new ValueCondition<>(ROLE, Operator.EQUALS, roles[random.nextInt(4)])),
+                random.nextInt(3) == 0 ? Effect.DENY : Effect.ALLOW,
+                random.nextInt(3)));
+      }
+      PolicySet plain = PolicySet.of(policies);
+      PolicySet adaptive = plain.withAdaptivePolicyOrder(1, 7, Runnable::run);
+
+      for (int i = 0; i < 500; i++) {
+        String role = random.nextInt(5) < 4 ? roles[random.nextInt(4)] : "x";
+        for (CombiningAlgorithm algorithm : CombiningAlgorithm.values()) {
+          assertEquals(
+              evaluate(algorithm, plain, role),
+              evaluate(algorithm, adaptive, role),
+              algorithm + " " + role);
+        }
+      }
+    }
+  }
+
+  /** Fails for every value, optionally after some work, and counts how often it is evaluated. */
+  private static class CountingCondition implements Condition<String> {
+    private final int work;
+    private int hash;
+    int evaluations;
+
+    CountingCondition() {
+      this(0);
+    }
+
+    CountingCondition(int work) {
+      this.work = work;
+    }
+
+    @Override
+    public boolean evaluate(String contextValue) {
+      evaluations++;
+      for (int i = 0; i < work; i++) {
+        hash = 31 * hash + (contextValue + i).hashCode();
+      }
+      return false;
+    }
+
+    @Override
+    public Attribute<String> getAttribute() {
+      return ROLE;
+    }
+
+    @Override
+    public Operator getOperator() {
+      return Operator.EQUALS;
+    }
+  }
+}
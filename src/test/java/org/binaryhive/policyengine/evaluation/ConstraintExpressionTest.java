@@ -0,0 +1,193 @@
+package org.binaryhive.policyengine.evaluation;
+
+import static org.binaryhive.policyengine.evaluation.PolicyFixtures.policy;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.binaryhive.policyengine.condition.Condition;
+import org.binaryhive.policyengine.condition.ListCondition;
+import org.binaryhive.policyengine.condition.ValueCondition;
+import org.binaryhive.policyengine.evaluation.PolicyFixtures.ListContext;
+import org.binaryhive.policyengine.model.Attribute;
+import org.binaryhive.policyengine.model.Effect;
+import org.binaryhive.policyengine.model.Operator;
+import org.binaryhive.policyengine.model.Policy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class ConstraintExpressionTest {
+
+  private static final Attribute<String> ROLE = Attribute.string("role");
+  private static final Attribute<String> REGION = Attribute.string("region");
+  private static final Attribute<String> STATUS = Attribute.string("status");
+  private static final Attribute<Integer> LEVEL = Attribute.integer("level");
+
+  private PartialEvaluator partialEvaluator;
+  private ContextEvaluator contextEvaluator;
+
+  @BeforeEach
+  void setUp() {
+    PolicyEvaluator policyEvaluator = new PolicyEvaluator();
+    partialEvaluator = new PartialEvaluator(policyEvaluator);
+    contextEvaluator = new ContextEvaluator(policyEvaluator);
+  }
+
+  @Nested
+  @DisplayName("Normalization Tests")
+  class NormalizationTests {
+
+    @Test
+    @DisplayName("Should intersect equality and membership terms")
+    void shouldIntersectEqualityAndMembershipTerms() {
+      List<Condition<?>> clause =
+          Clauses.normalize(
+              List.of(
+                  new ListCondition<>(REGION, Operator.IN, List.of("eu", "us", "ap")),
+                  new ListCondition<>(REGION, Operator.IN, List.of("us", "eu")),
+                  new ValueCondition<>(STATUS, Operator.NOT_EQUALS, "archived")));
+
+      assertEquals(
+          List.of(
+              new ListCondition<>(REGION, Operator.IN, List.of("eu", "us")),
+              new ValueCondition<>(STATUS, Operator.NOT_EQUALS, "archived")),
+          clause);
+    }
+
+    @Test
+    @DisplayName("Should narrow ranges and apply them to allowed values")
+    void shouldNarrowRanges() {
+      assertEquals(
+          List.of(
+              new ValueCondition<>(LEVEL, Operator.GREATER_THAN, 3),
+              new ValueCondition<>(LEVEL, Operator.LESS_THAN, 8)),
+          Clauses.normalize(
+              List.of(
+                  new ValueCondition<>(LEVEL, Operator.GREATER_THAN, 1),
+                  new ValueCondition<>(LEVEL, Operator.LESS_THAN, 8),
+                  new ValueCondition<>(LEVEL, Operator.GREATER_THAN, 3))));
+      assertEquals(
+          List.of(new ValueCondition<>(LEVEL, Operator.EQUALS, 5)),
+          Clauses.normalize(
+              List.of(
+                  new ListCondition<>(LEVEL, Operator.IN, List.of(1, 5, 9)),
+                  new ValueCondition<>(LEVEL, Operator.GREATER_THAN, 3),
+                  new ValueCondition<>(LEVEL, Operator.LESS_THAN, 8))));
+    }
+
+    @Test
+    @DisplayName("Should detect contradictions")
+    void shouldDetectContradictions() {
+      assertNull(
+          Clauses.normalize(
+              List.of(
+                  new ValueCondition<>(REGION, Operator.EQUALS, "eu"),
+                  new ValueCondition<>(REGION, Operator.EQUALS, "us"))));
+      assertNull(
+          Clauses.normalize(
+              List.of(
+                  new ValueCondition<>(LEVEL, Operator.GREATER_THAN, 5),
+                  new ValueCondition<>(LEVEL, Operator.LESS_THAN, 5))));
+    }
+  }
+
+  @Nested
+  @DisplayName("Export Tests")
+  class ExportTests {
+
+    private final List<Policy> policies =
+        List.of(
+            policy(
+                "allow-editors-eu",
+                Effect.ALLOW,
+                new ListCondition<>(ROLE, Operator.IN, List.of("editor", "admin")),
+                new ValueCondition<>(REGION, Operator.EQUALS, "eu")),
+            policy(
+                "allow-admins-low",
+                Effect.ALLOW,
+                new ValueCondition<>(ROLE, Operator.EQUALS, "admin"),
+                new ValueCondition<>(LEVEL, Operator.LESS_THAN, 3)),
+            policy(
+                "allow-public",
+                Effect.ALLOW,
+                new ListCondition<>(STATUS, Operator.IN, List.of("public", "shared")),
+                new ListCondition<>(STATUS, Operator.IN, List.of("public", "draft"))),
+            policy(
+                "deny-archived",
+                Effect.DENY,
+                new ValueCondition<>(STATUS, Operator.EQUALS, "archived")),
+            policy(
+                "deny-guests",
+                Effect.DENY,
+                new ValueCondition<>(ROLE, Operator.EQUALS, "guest")));
+
+    @Test
+    @DisplayName("Should reduce policies to clauses over resource attributes")
+    void shouldReduceToResourceClauses() {
+      ConstraintExpression expression =
+          partialEvaluator.constraints(policies, Map.of("role", "editor"));
+
+      assertEquals(
+          List.of(
+              List.of(new ValueCondition<>(REGION, Operator.EQUALS, "eu")),
+              List.of(new ValueCondition<>(STATUS, Operator.EQUALS, "public"))),
+          expression.getAllowClauses());
+      assertEquals(
+          List.of(List.of(new ValueCondition<>(STATUS, Operator.EQUALS, "archived"))),
+          expression.getDenyClauses());
+      assertFalse(expression.isUnsatisfiable());
+      assertFalse(expression.isUnrestricted());
+    }
+
+    @Test
+    @DisplayName("Should report when no resource is visible")
+    void shouldReportUnsatisfiable() {
+      assertTrue(
+          partialEvaluator.constraints(policies, Map.of("role", "guest")).isUnsatisfiable());
+      assertTrue(
+          partialEvaluator
+              .constraints(List.of(policies.get(0)), Map.of("role", "viewer"))
+              .isUnsatisfiable());
+    }
+
+    @Test
+    @DisplayName("Should report when every resource is visible")
+    void shouldReportUnrestricted() {
+      ConstraintExpression expression =
+          partialEvaluator.constraints(
+              List.of(policies.get(0)), Map.of("role", "admin", "region", "eu"));
+
+      assertTrue(expression.isUnrestricted());
+    }
+
+    @Test
+    @DisplayName("Should select exactly the resources evaluation allows")
+    void shouldSelectExactlyAllowedResources() {
+      for (Object role : Arrays.asList("editor", "admin", "guest", "viewer", null)) {
+        Map<String, Object> subject = new HashMap<>();
+        subject.put("role", role);
+        ConstraintExpression expression = partialEvaluator.constraints(policies, subject);
+
+        for (Object region : Arrays.asList("eu", "us", null)) {
+          for (Object status : Arrays.asList("public", "draft", "archived", null)) {
+            for (Object level : Arrays.asList(1, "2", 3, "x", null)) {
+              Map<String, Object> resource = new HashMap<>();
+              resource.put("region", region);
+              resource.put("status", status);
+              resource.put("level", level);
+              Map<String, Object> full = new HashMap<>(resource);
+              full.putAll(subject);
+
+              assertEquals(
+                  contextEvaluator.evaluate(new ListContext(full, policies))
+                      == PolicyEvaluationResult.ALLOW,
+                  expression.test(resource),
+                  full.toString());
+            }
+          }
+        }
+      }
+    }
+  }
+}
@@ -11,6 +11,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.*;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class ContextEvaluatorTest {
@@ -327,9 +328,160 @@ class ContextEvaluatorTest {
         assertEquals(PolicyEvaluationResult.NOT_APPLICABLE, partialMatchResult);
     }
 
+    @Test
+    void testEvaluateEachResource() {
+        // An adult may read documents, except the restricted one
+        Condition<Integer> adultCondition = new ValueCondition<>(ageAttr, Operator.GREATER_THAN, 17);
+        Condition<String> restrictedCondition = new ValueCondition<>(resourceAttr, Operator.EQUALS, "restricted");
+        Policy allowAdults = new Policy("allow-adults", "Allow adults", List.of(adultCondition), Effect.ALLOW);
+        Policy denyRestricted = new Policy("deny-restricted", "Deny restricted", List.of(restrictedCondition), Effect.DENY);
+
+        Map<String, Object> subject = new HashMap<>();
+        subject.put("age", 30);
+        subject.put("resource", "restricted");
+        TestEvaluationContext context =
+                new TestEvaluationContext("read", subject, List.of(allowAdults, denyRestricted));
+
+        Map<String, Object> withoutResource = new HashMap<>();
+        withoutResource.put("owner", "alice");
+        PolicyEvaluationResult[] results = contextEvaluator.evaluateEach(
+                context,
+                List.of(
+                        Map.of("resource", "document1"),
+                        Map.of("resource", "restricted"),
+                        Map.of("resource", "document2", "age", 12),
+                        withoutResource));
+
+        // A resource that leaves an attribute out falls back to the shared value
+        assertArrayEquals(
+                new PolicyEvaluationResult[] {
+                        PolicyEvaluationResult.ALLOW,
+                        PolicyEvaluationResult.DENY,
+                        PolicyEvaluationResult.NOT_APPLICABLE,
+                        PolicyEvaluationResult.DENY
+                },
+                results);
+    }
+
+    @Test
+    void testEvaluateEachMatchesSingleEvaluation() {
+        Condition<Integer> adultCondition = new ValueCondition<>(ageAttr, Operator.GREATER_THAN, 17);
+        Condition<String> documentCondition = new ValueCondition<>(resourceAttr, Operator.STARTS_WITH, "doc");
+        Condition<String> draftCondition = new ValueCondition<>(resourceAttr, Operator.ENDS_WITH, "-draft");
+        PolicySet policies = PolicySet.of(List.of(
+                new Policy("allow-docs", "Allow documents", List.of(adultCondition, documentCondition), Effect.ALLOW),
+                new Policy("deny-drafts", "Deny drafts", List.of(draftCondition), Effect.DENY),
+                new Policy("allow-all", "Allow all", List.of(documentCondition), Effect.ALLOW)));
+        ArrayEvaluationContext context = ArrayEvaluationContext.builder(policies)
+                .action("read")
+                .attribute("age", 20)
+                .build();
+
+        List<Map<String, Object>> resources = new ArrayList<>();
+        for (String resource : List.of("doc-1", "doc-1-draft", "img-2", "doc")) {
+            resources.add(Map.of("resource", resource));
+        }
+        PolicyEvaluationResult[] results = contextEvaluator.evaluateEach(context, resources);
+
+        for (int i = 0; i < resources.size(); i++) {
+            Map<String, Object> full = new HashMap<>(resources.get(i));
+            full.put("age", 20);
+            assertEquals(
+                    contextEvaluator.evaluate(new TestEvaluationContext("read", full, policies)),
+                    results[i]);
+        }
+        // The context's own values are left untouched
+        assertEquals(Optional.empty(), context.getAttribute("resource"));
+    }
+
+    @Test
+    void testPlainListDecidesLikePolicySet() {
+        Condition<Integer> adultCondition = new ValueCondition<>(ageAttr, Operator.GREATER_THAN, 17);
+        Condition<String> draftCondition = new ValueCondition<>(resourceAttr, Operator.ENDS_WITH, "-draft");
+        // Plain lists are evaluated policy by policy, in the same priority order as a compiled set
+        List<Policy> policies = new ArrayList<>(List.of(
+                new Policy("allow-adults", "Allow adults", null, List.of(adultCondition), Effect.ALLOW, 0),
+                new Policy("deny-drafts", "Deny drafts", null, List.of(draftCondition), Effect.DENY, 0),
+                new Policy("allow-owner-drafts", "Allow drafts", null, List.of(draftCondition), Effect.ALLOW, 5)));
+        PolicySet policySet = PolicySet.of(policies);
+
+        for (CombiningAlgorithm algorithm : CombiningAlgorithm.values()) {
+            ContextEvaluator evaluator = new ContextEvaluator(policyEvaluator, algorithm);
+            for (String resource : List.of("doc-draft", "doc")) {
+                for (int age : List.of(12, 30)) {
+                    Map<String, Object> contextMap = Map.of("resource", resource, "age", age);
+                    assertEquals(
+                            evaluator.evaluate(new TestEvaluationContext("read", contextMap, policySet)),
+                            evaluator.evaluate(new TestEvaluationContext("read", contextMap, policies)),
+                            algorithm + " " + contextMap);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testMissingActionDecidedByCombiningAlgorithm() {
+        Condition<String> condition = new ValueCondition<>(resourceAttr, Operator.EQUALS, "document1");
+        Policy policy = new Policy("policy1", "Test Policy", List.of(condition), Effect.ALLOW);
+        TestEvaluationContext context =
+                new TestEvaluationContext("read", Map.of("resource", "document1"), List.of(policy));
+        ContextEvaluator evaluator =
+                new ContextEvaluator(policyEvaluator, CombiningAlgorithm.DENY_UNLESS_PERMIT);
+
+        // An action the context does not hold is decided like one without policies
+        assertEquals(PolicyEvaluationResult.DENY, evaluator.evaluateForAction(context, "delete"));
+        assertEquals(PolicyEvaluationResult.ALLOW, evaluator.evaluateForAction(context, "read"));
+    }
+
+    @Test
+    void testCustomCombiningStrategy() {
+        Condition<Integer> adultCondition = new ValueCondition<>(ageAttr, Operator.GREATER_THAN, 17);
+        Condition<String> docCondition = new ValueCondition<>(resourceAttr, Operator.EQUALS, "doc");
+        // Deny-overrides that also denies when no policy applies
+        CombiningStrategy denyByDefault = new CombiningStrategy() {
+            @Override
+            public boolean isDecisive(PolicyEvaluationResult result) {
+                return result == PolicyEvaluationResult.DENY;
+            }
+
+            @Override
+            public PolicyEvaluationResult otherwise(boolean anyAllow, boolean anyDeny) {
+                return anyAllow ? PolicyEvaluationResult.ALLOW : PolicyEvaluationResult.DENY;
+            }
+        };
+        List<Policy> policies = List.of(
+                new Policy("allow-adults", "Allow adults", List.of(adultCondition), Effect.ALLOW),
+                new Policy("allow-doc", "Allow doc", List.of(docCondition), Effect.ALLOW));
+        ContextEvaluator evaluator = new ContextEvaluator(policyEvaluator, denyByDefault);
+
+        for (List<Policy> list : List.of(policies, PolicySet.of(policies))) {
+            assertEquals(PolicyEvaluationResult.ALLOW, evaluator.evaluate(
+                    new TestEvaluationContext("read", Map.of("resource", "doc", "age", 12), list)));
+            assertEquals(PolicyEvaluationResult.DENY, evaluator.evaluate(
+                    new TestEvaluationContext("read", Map.of("resource", "img", "age", 12), list)));
+            assertEquals(PolicyEvaluationResult.DENY, evaluator.evaluateForAction(
+                    new TestEvaluationContext("read", Map.of(), list), "write"));
+        }
+    }
+
     /**
      * Simple implementation of EvaluationContext for testing.
      */
+    @Test
+    void testSubclassWithActionSetCopiesActions() {
+        Set<String> actions = new HashSet<>(Set.of("read"));
+        EvaluationContext context = new EvaluationContext(actions, null) {
+            @Override
+            public List<Policy> policies() {
+                return List.of();
+            }
+        };
+        actions.add("write");
+
+        assertEquals(Set.of("read"), context.getActions());
+        assertEquals(Map.of(), context.getContext());
+    }
+
     private static class TestEvaluationContext extends EvaluationContext {
         private List<Policy> policyList;
 
@@ -0,0 +1,190 @@
+package org.binaryhive.policyengine.evaluation;
+
+import static org.binaryhive.policyengine.evaluation.PolicyFixtures.policy;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.binaryhive.policyengine.condition.Condition;
+import org.binaryhive.policyengine.condition.ListCondition;
+import org.binaryhive.policyengine.condition.ValueCondition;
+import org.binaryhive.policyengine.evaluation.PolicyFixtures.ListContext;
+import org.binaryhive.policyengine.model.Attribute;
+import org.binaryhive.policyengine.model.Effect;
+import org.binaryhive.policyengine.model.Operator;
+import org.binaryhive.policyengine.model.Policy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class DecisionDiagramTest {
+
+  private static final Attribute<String> ROLE = Attribute.string("role");
+  private static final Attribute<String> REGION = Attribute.string("region");
+  private static final Attribute<Integer> LEVEL = Attribute.integer("level");
+
+  private ContextEvaluator contextEvaluator;
+
+  @BeforeEach
+  void setUp() {
+    contextEvaluator = new ContextEvaluator(new PolicyEvaluator());
+  }
+
+  @Nested
+  @DisplayName("Compilation Tests")
+  class CompilationTests {
+
+    @Test
+    @DisplayName("Should share tests between policies")
+    void shouldShareTestsBetweenPolicies() {
+      List<Policy> policies = new ArrayList<>();
+      for (String region : List.of("eu", "us", "ap")) {
+        policies.add(
+            policy(
+                "allow-" + region,
+                Effect.ALLOW,
+                new ValueCondition<>(ROLE, Operator.EQUALS, "editor"),
+                new ValueCondition<>(REGION, Operator.EQUALS, region)));
+      }
+      policies.add(
+          policy("deny-guest", Effect.DENY, new ValueCondition<>(ROLE, Operator.EQUALS, "guest")));
+
+      DecisionDiagram diagram = DecisionDiagram.compile(PolicySet.of(policies)).orElseThrow();
+
+      // Equal sub-diagrams are shared, so the region tests exist once under the "editor" branch
+      assertTrue(diagram.nodeCount() <= 6, "nodes: " + diagram.nodeCount());
+    }
+
+    @Test
+    @DisplayName("Should fall back for unsupported condition types")
+    void shouldFallBackForUnsupportedConditions() {
+      Condition<String> custom =
+          new Condition<>() {
+            @Override
+            public boolean evaluate(String contextValue) {
+              return true;
+            }
+
+            @Override
+            public Attribute<String> getAttribute() {
+              return ROLE;
+            }
+
+            @Override
+            public Operator getOperator() {
+              return Operator.EQUALS;
+            }
+          };
+      PolicySet policySet = PolicySet.of(List.of(policy("custom", Effect.ALLOW, custom)));
+
+      assertTrue(DecisionDiagram.compile(policySet).isEmpty());
+      assertSame(policySet, policySet.withDecisionDiagram());
+    }
+
+    @Test
+    @DisplayName("Should fall back when the node budget is exceeded")
+    void shouldFallBackWhenBudgetIsExceeded() {
+      List<Policy> policies = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        policies.add(
+            policy(
+                "p" + i,
+                i % 2 == 0 ? Effect.ALLOW : Effect.DENY,
+                new ValueCondition<>(LEVEL, Operator.GREATER_THAN, i),
+                new ValueCondition<>(REGION, Operator.EQUALS, "r" + i)));
+      }
+      PolicySet policySet = PolicySet.of(policies);
+
+      assertTrue(DecisionDiagram.compile(policySet, 3).isEmpty());
+      assertTrue(DecisionDiagram.compile(policySet).isPresent());
+    }
+  }
+
+  @Nested
+  @DisplayName("Evaluation Tests")
+  class EvaluationTests {
+
+    @Test
+    @DisplayName("Should decide like policy-by-policy evaluation")
+    void shouldDecideLikePolicyByPolicyEvaluation() {
+      Random random = new Random(5);
+      List<Condition<?>> pool =
+          List.of(
+              new ValueCondition<>(ROLE, Operator.EQUALS, "admin"),
+              new ValueCondition<>(ROLE, Operator.NOT_EQUALS, "guest"),
+              new ListCondition<>(ROLE, Operator.IN, List.of("editor", "admin")),
+              new ValueCondition<>(REGION, Operator.EQUALS, "eu"),
+              new ListCondition<>(REGION, Operator.NOT_IN, List.of("us")),
+              new ValueCondition<>(LEVEL, Operator.GREATER_THAN, 2),
+              new ValueCondition<>(LEVEL, Operator.LESS_THAN, 5),
+              new ValueCondition<>(LEVEL, Operator.GREATER_THAN, 4));
+
+      for (int round = 0; round < 20; round++) {
+        List<Policy> policies = new ArrayList<>();
+        for (int p = 0; p < 1 + random.nextInt(8); p++) {
+          List<Condition<?>> conditions = new ArrayList<>();
+          for (int c = 0; c < random.nextInt(4); c++) {
+            conditions.add(pool.get(random.nextInt(pool.size())));
+          }
+          policies.add(
+              new Policy(
+                  "p" + p,
+                  "p" + p,
+                  conditions,
+                  random.nextInt(3) == 0 ? Effect.DENY : Effect.ALLOW));
+        }
+        PolicySet interpreted = PolicySet.of(policies);
+        PolicySet compiled = interpreted.withDecisionDiagram();
+        assertTrue(compiled.decisionDiagram().isPresent());
+
+        for (Object role : Arrays.asList("admin", "editor", "guest", null)) {
+          for (Object region : Arrays.asList("eu", "us", null)) {
+            for (Object level : Arrays.asList(1, 3, "5", "x", null)) {
+              Map<String, Object> context = new HashMap<>();
+              context.put("role", role);
+              context.put("region", region);
+              context.put("level", level);
+
+              assertEquals(
+                  contextEvaluator.evaluate(new ListContext(context, interpreted)),
+                  contextEvaluator.evaluate(new ListContext(context, compiled)),
+                  context.toString());
+            }
+          }
+        }
+      }
+    }
+
+    @Test
+    @DisplayName("Should read slots of array contexts built for the compiled set")
+    void shouldReadArrayContexts() {
+      PolicySet policySet =
+          PolicySet.of(
+                  List.of(
+                      policy(
+                          "allow-editors",
+                          Effect.ALLOW,
+                          new ValueCondition<>(ROLE, Operator.EQUALS, "editor")),
+                      policy(
+                          "deny-high-level",
+                          Effect.DENY,
+                          new ValueCondition<>(LEVEL, Operator.GREATER_THAN, 3))))
+              .withDecisionDiagram();
+      ArrayEvaluationContext.Builder builder = ArrayEvaluationContext.builder(policySet);
+
+      assertEquals(
+          PolicyEvaluationResult.ALLOW,
+          contextEvaluator.evaluate(
+              builder.reset().action("read").attribute("role", "editor").build()));
+      assertEquals(
+          PolicyEvaluationResult.DENY,
+          contextEvaluator.evaluate(
+              builder
+                  .reset()
+                  .action("read")
+                  .attribute("role", "editor")
+                  .attribute("level", 4)
+                  .build()));
+    }
+  }
+}
@@ -0,0 +1,285 @@
+package org.binaryhive.policyengine.evaluation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.binaryhive.policyengine.condition.Condition;
+import org.binaryhive.policyengine.condition.ValueCondition;
+import org.binaryhive.policyengine.evaluation.PolicyFixtures.ListContext;
+import org.binaryhive.policyengine.model.Attribute;
+import org.binaryhive.policyengine.model.Effect;
+import org.binaryhive.policyengine.model.Operator;
+import org.binaryhive.policyengine.model.Policy;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class DecisionRecorderTest {
+
+  private static final Attribute<String> ROLE = Attribute.string("role");
+  private static final Attribute<Integer> LEVEL = Attribute.integer("level");
+
+  private final SlowCondition slow = new SlowCondition();
+  private final List<Policy> policies =
+      List.of(
+          new Policy(
+              "allow-admin",
+              "allow-admin",
+              List.of(new ValueCondition<>(ROLE, Operator.EQUALS, "admin")),
+              Effect.ALLOW),
+          new Policy(
+              "deny-low-level",
+              "deny-low-level",
+              List.of(new ValueCondition<>(LEVEL, Operator.LESS_THAN, 2), slow),
+              Effect.DENY));
+
+  private PolicyEvaluationResult evaluate(DecisionRecorder recorder, String role, Object level) {
+    Map<String, Object> context = new HashMap<>();
+    context.put("role", role);
+    context.put("level", level);
+    return new ContextEvaluator(new PolicyEvaluator(), CombiningAlgorithm.DENY_OVERRIDES, recorder)
+        .evaluate(new ListContext(context, policies));
+  }
+
+  @Nested
+  @DisplayName("Capture Tests")
+  class CaptureTests {
+
+    @Test
+    @DisplayName("Should capture every decision with a zero threshold")
+    void shouldCaptureEveryDecision() {
+      DecisionRecorder recorder = new DecisionRecorder(Duration.ZERO, 0, 16);
+
+      assertEquals(PolicyEvaluationResult.ALLOW, evaluate(recorder, "admin", "5"));
+      assertEquals(PolicyEvaluationResult.NOT_APPLICABLE, evaluate(recorder, "guest", "5"));
+
+      List<DecisionTrace> traces = recorder.dump();
+      assertEquals(2, traces.size());
+      assertEquals(PolicyEvaluationResult.ALLOW, traces.get(0).getResult());
+      assertEquals(PolicyEvaluationResult.NOT_APPLICABLE, traces.get(1).getResult());
+      assertEquals(Set.of("read"), traces.get(0).getActions());
+      assertEquals(2, traces.get(0).getPolicyCount());
+      assertFalse(traces.get(0).isSampled());
+    }
+
+    @Test
+    @DisplayName("Should not capture fast decisions that are not sampled")
+    void shouldSkipFastDecisions() {
+      DecisionRecorder recorder = new DecisionRecorder(Duration.ofSeconds(10), 0, 16);
+
+      evaluate(recorder, "admin", "5");
+
+      assertTrue(recorder.dump().isEmpty());
+      assertEquals(0, recorder.capturedCount());
+    }
+
+    @Test
+    @DisplayName("Should capture one decision in every sample interval")
+    void shouldSampleDecisions() {
+      DecisionRecorder recorder = new DecisionRecorder(Duration.ofSeconds(10), 4, 16);
+
+      for (int i = 0; i < 10; i++) {
+        evaluate(recorder, "admin", "5");
+      }
+
+      List<DecisionTrace> traces = recorder.dump();
+      assertEquals(3, traces.size());
+      assertTrue(traces.stream().allMatch(DecisionTrace::isSampled));
+    }
+
+    @Test
+    @DisplayName("Should keep only the most recent traces")
+    void shouldKeepMostRecentTraces() {
+      DecisionRecorder recorder = new DecisionRecorder(Duration.ZERO, 0, 3);
+
+      for (int i = 0; i < 5; i++) {
+        evaluate(recorder, i % 2 == 0 ? "admin" : "guest", "5");
+      }
+
+      List<DecisionTrace> traces = recorder.dump();
+      assertEquals(5, recorder.capturedCount());
+      assertEquals(
+          List.of(
+              PolicyEvaluationResult.ALLOW,
+              PolicyEvaluationResult.NOT_APPLICABLE,
+              PolicyEvaluationResult.ALLOW),
+          traces.stream().map(DecisionTrace::getResult).toList());
+    }
+
+    @Test
+    @DisplayName("Should record the evaluated action")
+    void shouldRecordAction() {
+      DecisionRecorder recorder = new DecisionRecorder(Duration.ZERO, 0, 16);
+      ContextEvaluator evaluator =
+          new ContextEvaluator(new PolicyEvaluator(), CombiningAlgorithm.DENY_OVERRIDES, recorder);
+      ListContext context = new ListContext(Map.of("role", "admin", "level", 5), policies);
+
+      evaluator.evaluateForAction(context, "read");
+      evaluator.evaluate(context);
+
+      List<DecisionTrace> traces = recorder.dump();
+      assertEquals("read", traces.get(0).getAction());
+      assertTrue(traces.get(0).toString().startsWith("read ALLOW"));
+      assertNull(traces.get(1).getAction());
+      assertEquals(Set.of("read"), traces.get(1).getActions());
+    }
+
+    @Test
+    @DisplayName("Should dump distinct traces while decisions are captured concurrently")
+    void shouldDumpDuringConcurrentCaptures() throws Exception {
+      DecisionRecorder recorder = new DecisionRecorder(Duration.ZERO, 0, 4);
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+          futures.add(
+              executor.submit(
+                  () -> {
+                    for (int i = 0; i < 2_000; i++) {
+                      evaluate(recorder, "admin", "5");
+                    }
+                  }));
+        }
+        while (!futures.stream().allMatch(Future::isDone)) {
+          List<DecisionTrace> traces = recorder.dump();
+          assertTrue(traces.size() <= 4);
+          // Traces compare by identity, so a slot listed twice would collapse in the set
+          assertEquals(traces.size(), new HashSet<>(traces).size());
+        }
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } finally {
+        executor.shutdown();
+      }
+      assertEquals(8_000, recorder.capturedCount());
+      assertEquals(4, recorder.dump().size());
+    }
+
+    @Test
+    @DisplayName("Should reject an invalid capacity")
+    void shouldRejectInvalidCapacity() {
+      assertThrows(
+          IllegalArgumentException.class, () -> new DecisionRecorder(Duration.ZERO, 0, 0));
+    }
+  }
+
+  @Nested
+  @DisplayName("Breakdown Tests")
+  class BreakdownTests {
+
+    @Test
+    @DisplayName("Should identify the slowest condition and its policy")
+    void shouldIdentifySlowestCondition() {
+      DecisionRecorder recorder = new DecisionRecorder(Duration.ZERO, 0, 16);
+
+      assertEquals(PolicyEvaluationResult.NOT_APPLICABLE, evaluate(recorder, "guest", "1"));
+
+      DecisionTrace trace = recorder.dump().get(0);
+      assertSame(slow, trace.getSlowestCondition());
+      assertEquals("deny-low-level", trace.getSlowestPolicyId());
+      assertEquals(3, trace.getConditionsEvaluated());
+      assertTrue(trace.getSlowestConditionNanos() >= SlowCondition.SLEEP.toNanos());
+      assertTrue(trace.toString().contains("deny-low-level"));
+    }
+
+    @Test
+    @DisplayName("Should identify the slowest condition of a policy set")
+    void shouldIdentifySlowestConditionOfPolicySet() {
+      DecisionRecorder recorder = new DecisionRecorder(Duration.ZERO, 0, 16);
+      Map<String, Object> context = Map.of("role", "guest", "level", "1");
+
+      new ContextEvaluator(new PolicyEvaluator(), CombiningAlgorithm.DENY_OVERRIDES, recorder)
+          .evaluate(new ListContext(context, PolicySet.of(policies)));
+
+      DecisionTrace trace = recorder.dump().get(0);
+      assertSame(slow, trace.getSlowestCondition());
+      assertEquals("deny-low-level", trace.getSlowestPolicyId());
+      assertEquals(2, trace.getPolicyCount());
+    }
+
+    @Test
+    @DisplayName("Should time policy retrieval apart from evaluation")
+    void shouldTimeRetrieval() {
+      DecisionRecorder recorder = new DecisionRecorder(Duration.ZERO, 0, 16);
+      Map<String, Object> context = Map.of("role", "guest", "level", "1");
+      EvaluationContext slowRetrieval =
+          new EvaluationContext("read", context) {
+            @Override
+            public List<Policy> policies() {
+              new SlowCondition().evaluate(null);
+              return policies;
+            }
+          };
+
+      new ContextEvaluator(new PolicyEvaluator(), CombiningAlgorithm.DENY_OVERRIDES, recorder)
+          .evaluate(slowRetrieval);
+
+      DecisionTrace trace = recorder.dump().get(0);
+      assertTrue(trace.getRetrievalNanos() >= SlowCondition.SLEEP.toNanos());
+      assertTrue(trace.getRetrievalNanos() < trace.getTotalNanos() - trace.getConditionNanos());
+    }
+
+    @Test
+    @DisplayName("Should break the total down into stages")
+    void shouldBreakDownStages() {
+      DecisionRecorder recorder = new DecisionRecorder(Duration.ZERO, 0, 16);
+
+      evaluate(recorder, "guest", "1");
+
+      DecisionTrace trace = recorder.dump().get(0);
+      assertTrue(trace.getConversionNanos() > 0);
+      assertTrue(trace.getConditionNanos() >= SlowCondition.SLEEP.toNanos());
+      long stages =
+          trace.getRetrievalNanos()
+              + trace.getConversionNanos()
+              + trace.getConditionNanos()
+              + trace.getCombiningNanos();
+      assertTrue(stages <= trace.getTotalNanos());
+    }
+
+    @Test
+    @DisplayName("Should trace a decision without conditions")
+    void shouldTraceDecisionWithoutConditions() {
+      DecisionRecorder recorder = new DecisionRecorder(Duration.ZERO, 0, 16);
+      Map<String, Object> context = Map.of("role", "admin");
+
+      new ContextEvaluator(new PolicyEvaluator(), CombiningAlgorithm.DENY_OVERRIDES, recorder)
+          .evaluate(new ListContext(context, List.of()));
+
+      DecisionTrace trace = recorder.dump().get(0);
+      assertEquals(0, trace.getPolicyCount());
+      assertNull(trace.getSlowestCondition());
+      assertNull(trace.getSlowestPolicyId());
+    }
+  }
+
+  /** Sleeps before failing, so it is always the slowest condition of a request. */
+  private static class SlowCondition implements Condition<String> {
+    static final Duration SLEEP = Duration.ofMillis(5);
+
+    @Override
+    public boolean evaluate(String contextValue) {
+      try {
+        Thread.sleep(SLEEP.toMillis());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return false;
+    }
+
+    @Override
+    public Attribute<String> getAttribute() {
+      return ROLE;
+    }
+
+    @Override
+    public Operator getOperator() {
+      return Operator.EQUALS;
+    }
+  }
+}
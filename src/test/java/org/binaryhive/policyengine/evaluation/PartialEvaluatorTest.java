@@ -0,0 +1,203 @@
+package org.binaryhive.policyengine.evaluation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.binaryhive.policyengine.condition.Condition;
+import org.binaryhive.policyengine.condition.ListCondition;
+import org.binaryhive.policyengine.condition.ValueCondition;
+import org.binaryhive.policyengine.evaluation.PolicyFixtures.ListContext;
+import org.binaryhive.policyengine.model.Attribute;
+import org.binaryhive.policyengine.model.Effect;
+import org.binaryhive.policyengine.model.Operator;
+import org.binaryhive.policyengine.model.Policy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class PartialEvaluatorTest {
+
+  private static final Attribute<String> ROLE = Attribute.string("role");
+  private static final Attribute<String> DEPARTMENT = Attribute.string("department");
+  private static final Attribute<String> OWNER = Attribute.string("owner");
+  private static final Attribute<Integer> CLASSIFICATION = Attribute.integer("classification");
+
+  private PartialEvaluator partialEvaluator;
+  private ContextEvaluator contextEvaluator;
+  private List<Policy> policies;
+
+  @BeforeEach
+  void setUp() {
+    PolicyEvaluator policyEvaluator = new PolicyEvaluator();
+    partialEvaluator = new PartialEvaluator(policyEvaluator);
+    contextEvaluator = new ContextEvaluator(policyEvaluator);
+    policies =
+        List.of(
+            new Policy(
+                "allow-editors",
+                "Allow editors",
+                List.of(
+                    new ListCondition<>(ROLE, Operator.IN, List.of("editor", "admin")),
+                    new ValueCondition<>(CLASSIFICATION, Operator.LESS_THAN, 3)),
+                Effect.ALLOW),
+            new Policy(
+                "allow-finance-owner",
+                "Allow finance owners",
+                List.of(
+                    new ValueCondition<>(DEPARTMENT, Operator.EQUALS, "finance"),
+                    new ValueCondition<>(OWNER, Operator.EQUALS, "finance-team")),
+                Effect.ALLOW),
+            new Policy(
+                "deny-guests",
+                "Deny guests",
+                List.of(new ValueCondition<>(ROLE, Operator.EQUALS, "guest")),
+                Effect.DENY),
+            new Policy(
+                "deny-secret",
+                "Deny secret",
+                List.of(new ValueCondition<>(CLASSIFICATION, Operator.GREATER_THAN, 4)),
+                Effect.DENY));
+  }
+
+  @Nested
+  @DisplayName("Specialization Tests")
+  class SpecializationTests {
+
+    @Test
+    @DisplayName("Should drop policies that can no longer apply")
+    void shouldDropPoliciesThatCannotApply() {
+      PolicySet residual =
+          partialEvaluator.specialize(policies, Map.of("role", "editor", "department", "sales"));
+
+      assertEquals(
+          List.of("allow-editors", "deny-secret"),
+          residual.stream().map(Policy::getPolicyId).toList());
+    }
+
+    @Test
+    @DisplayName("Should keep only conditions on unknown attributes")
+    void shouldKeepOnlyConditionsOnUnknownAttributes() {
+      PolicySet residual =
+          partialEvaluator.specialize(policies, Map.of("role", "editor", "department", "finance"));
+
+      for (Policy policy : residual) {
+        for (Condition<?> condition : policy.getConditions()) {
+          String name = condition.getAttribute().getName();
+          assertFalse(name.equals("role") || name.equals("department"), name);
+        }
+      }
+      assertSame(policies.get(3), residual.get(residual.size() - 1));
+    }
+
+    @Test
+    @DisplayName("Should treat a known null value as an absent attribute")
+    void shouldTreatKnownNullAsAbsent() {
+      Map<String, Object> known = new HashMap<>();
+      known.put("role", null);
+
+      PolicySet residual = partialEvaluator.specialize(policies, known);
+
+      assertEquals(
+          List.of("allow-finance-owner", "deny-secret"),
+          residual.stream().map(Policy::getPolicyId).toList());
+    }
+
+    @Test
+    @DisplayName("Should keep the priority of reduced policies")
+    void shouldKeepPriority() {
+      Policy prioritized =
+          new Policy(
+              "allow-editors-first",
+              null,
+              null,
+              List.of(
+                  new ValueCondition<>(ROLE, Operator.EQUALS, "editor"),
+                  new ValueCondition<>(OWNER, Operator.EQUALS, "me")),
+              Effect.ALLOW,
+              7);
+
+      PolicySet residual =
+          partialEvaluator.specialize(List.of(prioritized), Map.of("role", "editor"));
+
+      assertEquals(7, residual.get(0).getPriority());
+      assertEquals(1, residual.get(0).getConditions().size());
+    }
+
+    @Test
+    @DisplayName("Should copy the stored fields of reduced policies")
+    void shouldCopyStoredFields() {
+      Policy unnamed =
+          new Policy(
+              "allow-editors",
+              null,
+              "Editors may edit their own documents",
+              List.of(
+                  new ValueCondition<>(ROLE, Operator.EQUALS, "editor"),
+                  new ValueCondition<>(OWNER, Operator.EQUALS, "me")),
+              Effect.ALLOW);
+
+      Policy reduced =
+          partialEvaluator.specialize(List.of(unnamed), Map.of("role", "editor")).get(0);
+
+      assertNotSame(unnamed, reduced);
+      assertEquals("Editors may edit their own documents", reduced.getDescription());
+      // The name is still unset, so it follows the id
+      reduced.setPolicyId("allow-own-documents");
+      assertEquals("allow-own-documents", reduced.getName());
+    }
+
+    @Test
+    @DisplayName("Should keep the decision diagram of a compiled set")
+    void shouldKeepDecisionDiagram() {
+      PolicySet compiled = PolicySet.of(policies).withDecisionDiagram();
+
+      PolicySet residual = partialEvaluator.specialize(compiled, Map.of("role", "admin"));
+
+      assertTrue(residual.decisionDiagram().isPresent());
+    }
+
+    @Test
+    @DisplayName("Should keep the off-heap storage of a compiled set")
+    void shouldKeepOffHeapStorage() {
+      PolicySet compiled = PolicySet.of(policies).withOffHeapStorage();
+
+      PolicySet residual = partialEvaluator.specialize(compiled, Map.of("role", "admin"));
+
+      assertTrue(residual.isOffHeap());
+    }
+  }
+
+  @Nested
+  @DisplayName("Equivalence Tests")
+  class EquivalenceTests {
+
+    @Test
+    @DisplayName("Should decide like the full policy set")
+    void shouldDecideLikeFullPolicySet() {
+      for (Object role : Arrays.asList("editor", "admin", "guest", "viewer", null)) {
+        for (Object department : Arrays.asList("finance", "sales", null)) {
+          Map<String, Object> known = new HashMap<>();
+          known.put("role", role);
+          known.put("department", department);
+          PolicySet residual = partialEvaluator.specialize(policies, known);
+
+          for (Object owner : Arrays.asList("finance-team", "other", null)) {
+            for (Object classification : Arrays.asList(1, "3", 5, "top", null)) {
+              Map<String, Object> resource = new HashMap<>();
+              resource.put("owner", owner);
+              resource.put("classification", classification);
+              Map<String, Object> full = new HashMap<>(resource);
+              full.putAll(known);
+
+              assertEquals(
+                  contextEvaluator.evaluate(new ListContext(full, policies)),
+                  contextEvaluator.evaluate(new ListContext(resource, residual)),
+                  full.toString());
+            }
+          }
+        }
+      }
+    }
+  }
+}
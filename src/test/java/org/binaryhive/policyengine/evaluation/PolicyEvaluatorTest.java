@@ -215,6 +215,35 @@ class PolicyEvaluatorTest {
       result = evaluator.evaluate(policy, context);
       assertEquals(PolicyEvaluationResult.NOT_APPLICABLE, result);
     }
+
+    @Test
+    @DisplayName("Should test list attribute membership over a comma-separated string")
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void shouldTestListMembershipOverCommaSeparatedString() {
+      // Setup
+      Attribute<List<String>> groupsAttr = Attribute.list("groups", Attribute.string("group"));
+      Condition<?> condition =
+          new ListCondition(groupsAttr, Operator.IN, Arrays.asList("admins", "ops"));
+
+      Policy policy = new Policy();
+      policy.setPolicyId("group-check");
+      policy.setEffect(Effect.ALLOW);
+      policy.setConditions(Collections.singletonList(condition));
+
+      // Context with a group header as sent by a proxy
+      Map<String, Object> context = new HashMap<>();
+      context.put("groups", "users, ops, dev");
+
+      // Execute and verify
+      assertEquals(PolicyEvaluationResult.ALLOW, evaluator.evaluate(policy, context));
+
+      context.put("groups", "users,dev");
+      assertEquals(PolicyEvaluationResult.NOT_APPLICABLE, evaluator.evaluate(policy, context));
+
+      // A list value still goes through regular conversion
+      context.put("groups", List.of("admins"));
+      assertEquals(PolicyEvaluationResult.ALLOW, evaluator.evaluate(policy, context));
+    }
   }
 
   @Nested
@@ -0,0 +1,37 @@
+package org.binaryhive.policyengine.evaluation;
+
+import java.util.*;
+import org.binaryhive.policyengine.condition.Condition;
+import org.binaryhive.policyengine.model.Effect;
+import org.binaryhive.policyengine.model.Policy;
+
+/** Policies and contexts shared by the evaluation tests. */
+final class PolicyFixtures {
+
+  private PolicyFixtures() {}
+
+  /** A policy whose id and name are both the given id. */
+  static Policy policy(String id, Effect effect, Condition<?>... conditions) {
+    return new Policy(id, id, List.of(conditions), effect);
+  }
+
+  /** A policy with a priority whose id and name are both the given id. */
+  static Policy policy(String id, Effect effect, int priority, Condition<?>... conditions) {
+    return new Policy(id, id, null, List.of(conditions), effect, priority);
+  }
+
+  /** A context for the {@code read} action that evaluates the given policies. */
+  static final class ListContext extends EvaluationContext {
+    private final List<Policy> policies;
+
+    ListContext(Map<String, Object> context, List<Policy> policies) {
+      super("read", context);
+      this.policies = policies;
+    }
+
+    @Override
+    public List<Policy> policies() {
+      return policies;
+    }
+  }
+}
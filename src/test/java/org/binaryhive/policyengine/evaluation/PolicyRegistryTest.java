@@ -0,0 +1,249 @@
+package org.binaryhive.policyengine.evaluation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.binaryhive.policyengine.condition.ValueCondition;
+import org.binaryhive.policyengine.exception.PolicyEvaluationException;
+import org.binaryhive.policyengine.model.Attribute;
+import org.binaryhive.policyengine.model.Effect;
+import org.binaryhive.policyengine.model.Operator;
+import org.binaryhive.policyengine.model.Policy;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class PolicyRegistryTest {
+
+  private static final Attribute<String> ROLE = Attribute.string("role");
+
+  private final Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+
+  /** Each tenant allows its own role. */
+  private List<Policy> load(String tenant) {
+    loads.computeIfAbsent(tenant, t -> new AtomicInteger()).incrementAndGet();
+    return List.of(
+        new Policy(
+            "allow-" + tenant,
+            "allow-" + tenant,
+            List.of(new ValueCondition<>(ROLE, Operator.EQUALS, tenant + "-admin")),
+            Effect.ALLOW));
+  }
+
+  private int loads(String tenant) {
+    AtomicInteger count = loads.get(tenant);
+    return count != null ? count.get() : 0;
+  }
+
+  /** Waits until reads refresh access times again. */
+  private static void pause() {
+    long until = System.nanoTime() + 2 * PolicyRegistry.ACCESS_GRANULARITY_NANOS;
+    while (System.nanoTime() < until) {
+      Thread.onSpinWait();
+    }
+  }
+
+  private static long setBytes() {
+    return PolicySet.of(
+            List.of(
+                new Policy(
+                    "allow-a",
+                    "allow-a",
+                    List.of(new ValueCondition<>(ROLE, Operator.EQUALS, "a-admin")),
+                    Effect.ALLOW)))
+        .estimatedBytes();
+  }
+
+  @Nested
+  @DisplayName("Loading Tests")
+  class LoadingTests {
+
+    @Test
+    @DisplayName("Should load each tenant once and resolve contexts through it")
+    void shouldLoadOnce() {
+      PolicyRegistry<String> registry =
+          new PolicyRegistry<>(PolicyRegistryTest.this::load, 1L << 20);
+      ContextEvaluator evaluator = new ContextEvaluator(new PolicyEvaluator());
+
+      assertEquals(
+          PolicyEvaluationResult.ALLOW,
+          evaluator.evaluate(new TenantContext(registry, "a", "a-admin")));
+      assertEquals(
+          PolicyEvaluationResult.NOT_APPLICABLE,
+          evaluator.evaluate(new TenantContext(registry, "b", "a-admin")));
+      assertSame(registry.policies("a"), registry.policies("a"));
+
+      assertEquals(1, loads("a"));
+      assertEquals(1, loads("b"));
+      assertEquals(2, registry.size());
+      assertTrue(registry.usedBytes() > 0);
+    }
+
+    @Test
+    @DisplayName("Should share one load between concurrent first requests")
+    void shouldShareConcurrentLoad() throws Exception {
+      CountDownLatch release = new CountDownLatch(1);
+      AtomicInteger started = new AtomicInteger();
+      PolicyRegistry<String> registry =
+          new PolicyRegistry<>(
+              tenant -> {
+                started.incrementAndGet();
+                try {
+                  release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                }
+                return load(tenant);
+              },
+              1L << 20);
+
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+        List<Future<PolicySet>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+          results.add(executor.submit(() -> registry.policies("a")));
+        }
+        while (started.get() == 0) {
+          Thread.onSpinWait();
+        }
+        release.countDown();
+
+        PolicySet first = results.get(0).get(10, TimeUnit.SECONDS);
+        for (Future<PolicySet> result : results) {
+          assertSame(first, result.get(10, TimeUnit.SECONDS));
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+      assertEquals(1, loads("a"));
+    }
+
+    @Test
+    @DisplayName("Should not cache a failed load")
+    void shouldRetryFailedLoad() {
+      AtomicInteger attempts = new AtomicInteger();
+      PolicyRegistry<String> registry =
+          new PolicyRegistry<>(
+              tenant -> {
+                if (attempts.incrementAndGet() == 1) {
+                  throw new IllegalStateException("store unavailable");
+                }
+                return load(tenant);
+              },
+              1L << 20);
+
+      PolicyEvaluationException exception =
+          assertThrows(PolicyEvaluationException.class, () -> registry.policies("a"));
+      assertTrue(exception.getCause() instanceof IllegalStateException);
+      assertEquals(0, registry.size());
+
+      assertEquals(1, registry.policies("a").size());
+      assertEquals(2, attempts.get());
+    }
+
+    @Test
+    @DisplayName("Should load again after invalidation")
+    void shouldReloadAfterInvalidation() {
+      PolicyRegistry<String> registry =
+          new PolicyRegistry<>(PolicyRegistryTest.this::load, 1L << 20);
+
+      registry.policies("a");
+      registry.invalidate("a");
+
+      assertEquals(0, registry.usedBytes());
+      registry.policies("a");
+      assertEquals(2, loads("a"));
+    }
+  }
+
+  @Nested
+  @DisplayName("Eviction Tests")
+  class EvictionTests {
+
+    @Test
+    @DisplayName("Should evict the least recently used tenant over the budget")
+    void shouldEvictLeastRecentlyUsed() {
+      PolicyRegistry<String> registry =
+          new PolicyRegistry<>(PolicyRegistryTest.this::load, 2 * setBytes());
+
+      registry.policies("a");
+      pause();
+      registry.policies("b");
+      pause();
+      registry.policies("a");
+      pause();
+      registry.policies("c");
+
+      assertEquals(2, registry.size());
+      assertTrue(registry.usedBytes() <= 2 * setBytes());
+      registry.policies("a");
+      registry.policies("c");
+      assertEquals(1, loads("a"));
+      assertEquals(1, loads("c"));
+      registry.policies("b");
+      assertEquals(2, loads("b"));
+    }
+
+    @Test
+    @DisplayName("Should keep a hot tenant while many others are loaded")
+    void shouldKeepHotTenant() {
+      PolicyRegistry<String> registry =
+          new PolicyRegistry<>(PolicyRegistryTest.this::load, 4 * setBytes());
+
+      for (int i = 0; i < 3 * PolicyRegistry.EVICTION_SAMPLES; i++) {
+        registry.policies("hot");
+        pause();
+        registry.policies("cold-" + i);
+        pause();
+      }
+
+      assertEquals(1, loads("hot"));
+      assertTrue(registry.usedBytes() <= 4 * setBytes());
+      assertTrue(registry.size() <= 4);
+    }
+
+    @Test
+    @DisplayName("Should keep a tenant that exceeds the budget on its own")
+    void shouldKeepOversizedTenant() {
+      PolicyRegistry<String> registry = new PolicyRegistry<>(PolicyRegistryTest.this::load, 0);
+
+      registry.policies("a");
+      registry.policies("b");
+
+      assertEquals(1, registry.size());
+      registry.policies("b");
+      assertEquals(1, loads("b"));
+    }
+
+    @Test
+    @DisplayName("Should reject a negative budget")
+    void shouldRejectNegativeBudget() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> new PolicyRegistry<>(PolicyRegistryTest.this::load, -1));
+    }
+  }
+
+  private static class TenantContext extends EvaluationContext {
+    private final PolicyRegistry<String> registry;
+    private final String tenant;
+
+    TenantContext(PolicyRegistry<String> registry, String tenant, String role) {
+      super("read", Map.of("role", role));
+      this.registry = registry;
+      this.tenant = tenant;
+    }
+
+    @Override
+    public List<Policy> policies() {
+      return registry.policies(tenant);
+    }
+  }
+}
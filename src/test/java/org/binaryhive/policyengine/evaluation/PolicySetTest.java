@@ -0,0 +1,1044 @@
+package org.binaryhive.policyengine.evaluation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import org.binaryhive.policyengine.condition.Condition;
+import org.binaryhive.policyengine.condition.ListCondition;
+import org.binaryhive.policyengine.condition.ValueCondition;
+import org.binaryhive.policyengine.evaluation.PolicyFixtures.ListContext;
+import org.binaryhive.policyengine.model.Attribute;
+import org.binaryhive.policyengine.model.Effect;
+import org.binaryhive.policyengine.model.Operator;
+import org.binaryhive.policyengine.model.Policy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class PolicySetTest {
+
+  private ContextEvaluator contextEvaluator;
+
+  @BeforeEach
+  void setUp() {
+    contextEvaluator = new ContextEvaluator(new PolicyEvaluator());
+  }
+
+  @Nested
+  @DisplayName("Condition Interning Tests")
+  class ConditionInterningTests {
+
+    @Test
+    @DisplayName("Should share equal conditions built from different attribute instances")
+    void shouldShareEqualConditions() {
+      Policy first =
+          new Policy(
+              "p1",
+              "First",
+              List.of(new ValueCondition<>(Attribute.string("tenant"), Operator.EQUALS, "acme")),
+              Effect.ALLOW);
+      Policy second =
+          new Policy(
+              "p2",
+              "Second",
+              List.of(
+                  new ValueCondition<>(Attribute.string("tenant"), Operator.EQUALS, "acme"),
+                  new ListCondition<>(Attribute.string("role"), Operator.IN, List.of("admin"))),
+              Effect.ALLOW);
+      Policy third =
+          new Policy(
+              "p3",
+              "Third",
+              List.of(new ListCondition<>(Attribute.string("role"), Operator.IN, List.of("admin"))),
+              Effect.DENY);
+
+      PolicySet policySet = PolicySet.of(List.of(first, second, third));
+
+      assertEquals(3, policySet.size());
+      assertEquals(2, policySet.conditionCount());
+      assertSame(second, policySet.get(1));
+    }
+
+    @Test
+    @DisplayName("Should keep conditions with different values apart")
+    void shouldKeepDifferentConditionsApart() {
+      Attribute<String> tenant = Attribute.string("tenant");
+      Policy first =
+          new Policy(
+              "p1",
+              "First",
+              List.of(
+                  new ValueCondition<>(tenant, Operator.EQUALS, "acme"),
+                  new ValueCondition<>(tenant, Operator.NOT_EQUALS, "acme"),
+                  new ValueCondition<>(Attribute.integer("tenant"), Operator.EQUALS, 1),
+                  new ValueCondition<>(tenant, Operator.EQUALS, "other")),
+              Effect.ALLOW);
+
+      assertEquals(4, PolicySet.of(List.of(first)).conditionCount());
+    }
+
+    @Test
+    @DisplayName("Should keep conditions on differently validated attributes apart")
+    void shouldKeepDifferentlyValidatedConditionsApart() {
+      Attribute<String> anyRole = Attribute.string("role");
+      Attribute<String> shortRole = Attribute.string("role", value -> value.length() <= 5);
+      Policy allowAny =
+          new Policy(
+              "allow-any",
+              "allow-any",
+              List.of(new ListCondition<>(anyRole, Operator.NOT_IN, List.of("guest"))),
+              Effect.ALLOW);
+      Policy denyShort =
+          new Policy(
+              "deny-short",
+              "deny-short",
+              List.of(new ListCondition<>(shortRole, Operator.NOT_IN, List.of("guest"))),
+              Effect.DENY);
+      PolicySet policySet = PolicySet.of(List.of(allowAny, denyShort));
+
+      assertEquals(2, policySet.conditionCount());
+      assertNotEquals(
+          new ValueCondition<>(anyRole, Operator.EQUALS, "admin"),
+          new ValueCondition<>(shortRole, Operator.EQUALS, "admin"));
+      // The role fails the second attribute's validator, so only the allow policy applies
+      assertEquals(
+          PolicyEvaluationResult.ALLOW,
+          contextEvaluator.evaluate(
+              new ListContext(Map.of("role", "administrator"), policySet)));
+    }
+
+    @Test
+    @DisplayName("Should return the same instance when already compiled")
+    void shouldReturnSameInstanceWhenAlreadyCompiled() {
+      PolicySet policySet = PolicySet.of(List.of());
+      assertSame(policySet, PolicySet.of(policySet));
+    }
+  }
+
+  @Nested
+  @DisplayName("Shared Evaluation Tests")
+  class SharedEvaluationTests {
+
+    @Test
+    @DisplayName("Should evaluate a shared condition once per request")
+    void shouldEvaluateSharedConditionOncePerRequest() {
+      CountingCondition shared = new CountingCondition(Attribute.string("tenant"), "acme");
+      List<Policy> policies = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        policies.add(new Policy("p" + i, "Policy " + i, List.of(shared), Effect.ALLOW));
+      }
+
+      PolicySet policySet = PolicySet.of(policies);
+      PolicyEvaluationResult result =
+          contextEvaluator.evaluate(new ListContext(Map.of("tenant", "acme"), policySet));
+
+      assertEquals(PolicyEvaluationResult.ALLOW, result);
+      assertEquals(1, shared.evaluations);
+
+      contextEvaluator.evaluate(new ListContext(Map.of("tenant", "other"), policySet));
+      assertEquals(2, shared.evaluations);
+    }
+
+    @Test
+    @DisplayName("Should preserve deny-overrides with shared conditions")
+    void shouldPreserveDenyOverrides() {
+      Attribute<String> role = Attribute.string("role");
+      Policy allow =
+          new Policy(
+              "allow",
+              "Allow",
+              List.of(new ListCondition<>(role, Operator.IN, List.of("admin", "editor"))),
+              Effect.ALLOW);
+      Policy deny =
+          new Policy(
+              "deny",
+              "Deny",
+              List.of(
+                  new ListCondition<>(role, Operator.IN, List.of("admin", "editor")),
+                  new ValueCondition<>(Attribute.integer("level"), Operator.GREATER_THAN, 3)),
+              Effect.DENY);
+      PolicySet policySet = PolicySet.of(List.of(allow, deny));
+
+      assertEquals(
+          PolicyEvaluationResult.ALLOW,
+          contextEvaluator.evaluate(
+              new ListContext(Map.of("role", "admin", "level", 2), policySet)));
+      assertEquals(
+          PolicyEvaluationResult.DENY,
+          contextEvaluator.evaluate(
+              new ListContext(Map.of("role", "admin", "level", 5), policySet)));
+      assertEquals(
+          PolicyEvaluationResult.NOT_APPLICABLE,
+          contextEvaluator.evaluate(
+              new ListContext(Map.of("role", "guest", "level", 5), policySet)));
+    }
+  }
+
+  @Nested
+  @DisplayName("Adaptive Condition Order Tests")
+  class AdaptiveConditionOrderTests {
+
+    @Test
+    @DisplayName("Should move cheap failing conditions first")
+    void shouldMoveCheapFailingConditionsFirst() {
+      Condition<String> slow = new SlowCondition(Attribute.string("role"), "editor");
+      CountingCondition failing = new CountingCondition(Attribute.string("department"), "finance");
+      PolicySet policySet =
+          PolicySet.of(List.of(new Policy("p", "P", List.of(slow, failing), Effect.ALLOW)))
+              .withAdaptiveConditionOrder(1, 100, Runnable::run);
+      int slowId = policySet.conditionIds(0)[0];
+
+      for (int i = 0; i < 150; i++) {
+        contextEvaluator.evaluate(
+            new ListContext(Map.of("role", "editor", "department", "sales"), policySet));
+      }
+
+      assertEquals(2, policySet.conditionIds(0).length);
+      assertEquals(slowId, policySet.conditionIds(0)[1]);
+      assertEquals(150, failing.evaluations);
+    }
+
+    @Test
+    @DisplayName("Should reorder on the executor, not on the request")
+    void shouldReorderOnExecutor() {
+      Condition<String> slow = new SlowCondition(Attribute.string("role"), "editor");
+      CountingCondition failing = new CountingCondition(Attribute.string("department"), "finance");
+      List<Runnable> queued = new ArrayList<>();
+      PolicySet policySet =
+          PolicySet.of(List.of(new Policy("p", "P", List.of(slow, failing), Effect.ALLOW)))
+              .withAdaptiveConditionOrder(1, 10, queued::add);
+      int slowId = policySet.conditionIds(0)[0];
+
+      for (int i = 0; i < 50; i++) {
+        contextEvaluator.evaluate(
+            new ListContext(Map.of("role", "editor", "department", "sales"), policySet));
+      }
+
+      // Requests keep the old order, and queue one reordering while it is pending
+      assertEquals(slowId, policySet.conditionIds(0)[0]);
+      assertEquals(1, queued.size());
+      queued.get(0).run();
+      assertEquals(slowId, policySet.conditionIds(0)[1]);
+    }
+
+    @Test
+    @DisplayName("Should keep results under concurrent reordering")
+    void shouldKeepResultsUnderConcurrentReordering() throws Exception {
+      Attribute<String> role = Attribute.string("role");
+      Attribute<Integer> level = Attribute.integer("level");
+      List<Policy> policies = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        policies.add(
+            new Policy(
+                "p" + i,
+                "Policy " + i,
+                List.of(
+                    new ValueCondition<>(role, Operator.NOT_EQUALS, "role" + i),
+                    new ValueCondition<>(level, Operator.GREATER_THAN, i),
+                    new ValueCondition<>(role, Operator.EQUALS, "role" + (i % 3))),
+                i == 7 ? Effect.DENY : Effect.ALLOW));
+      }
+      PolicySet plain = PolicySet.of(policies);
+      PolicySet adaptive = plain.withAdaptiveConditionOrder(1, 20);
+
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+          int seed = t;
+          futures.add(
+              executor.submit(
+                  () -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 2_000; i++) {
+                      Map<String, Object> context =
+                          Map.of("role", "role" + random.nextInt(4), "level", random.nextInt(12));
+                      if (contextEvaluator.evaluate(new ListContext(context, plain))
+                          != contextEvaluator.evaluate(new ListContext(context, adaptive))) {
+                        return false;
+                      }
+                    }
+                    return true;
+                  }));
+        }
+        for (Future<Boolean> future : futures) {
+          assertTrue(future.get());
+        }
+      } finally {
+        executor.shutdown();
+      }
+    }
+
+    @Test
+    @DisplayName("Should reject intervals below one")
+    void shouldRejectNonPositiveIntervals() {
+      PolicySet policySet = PolicySet.of(List.of());
+
+      assertThrows(
+          IllegalArgumentException.class, () -> policySet.withAdaptiveConditionOrder(0, 1));
+      assertThrows(
+          IllegalArgumentException.class, () -> policySet.withAdaptiveConditionOrder(1, 0));
+    }
+  }
+
+  @Nested
+  @DisplayName("Attribute Slot Tests")
+  class AttributeSlotTests {
+
+    @Test
+    @DisplayName("Should assign one dense slot per attribute name")
+    void shouldAssignDenseSlots() {
+      Policy policy =
+          new Policy(
+              "p1",
+              "Policy",
+              List.of(
+                  new ValueCondition<>(Attribute.string("tenant"), Operator.EQUALS, "acme"),
+                  new ListCondition<>(Attribute.string("role"), Operator.IN, List.of("admin")),
+                  new ValueCondition<>(Attribute.string("tenant"), Operator.NOT_EQUALS, "evil")),
+              Effect.ALLOW);
+
+      AttributeRegistry attributes = PolicySet.of(List.of(policy)).attributes();
+
+      assertEquals(2, attributes.size());
+      assertEquals(0, attributes.slot("tenant"));
+      assertEquals(1, attributes.slot("role"));
+      assertEquals(-1, attributes.slot("unknown"));
+      assertEquals("role", attributes.name(1));
+      assertArrayEquals(
+          new Object[] {"acme", null}, attributes.project(Map.of("tenant", "acme", "other", 1)));
+    }
+
+    @Test
+    @DisplayName("Should look up each attribute at most once per request")
+    void shouldLookUpEachAttributeOnce() {
+      List<Policy> policies = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        policies.add(
+            new Policy(
+                "p" + i,
+                "Policy " + i,
+                List.of(
+                    new ValueCondition<>(Attribute.string("tenant"), Operator.EQUALS, "acme"),
+                    new ValueCondition<>(Attribute.integer("level"), Operator.GREATER_THAN, i)),
+                Effect.ALLOW));
+      }
+      Map<String, Integer> lookups = new HashMap<>();
+      Map<String, Object> context =
+          new HashMap<>(Map.of("tenant", "acme", "level", 5)) {
+            @Override
+            public Object get(Object key) {
+              lookups.merge((String) key, 1, Integer::sum);
+              return super.get(key);
+            }
+          };
+
+      PolicyEvaluationResult result =
+          contextEvaluator.evaluate(new ListContext(context, PolicySet.of(policies)));
+
+      assertEquals(PolicyEvaluationResult.ALLOW, result);
+      assertEquals(Map.of("tenant", 1, "level", 1), lookups);
+    }
+  }
+
+  @Nested
+  @DisplayName("Fingerprint Tests")
+  class FingerprintTests {
+
+    private final PolicySet policySet =
+        PolicySet.of(
+            List.of(
+                new Policy(
+                    "p1",
+                    "Policy",
+                    List.of(
+                        new ValueCondition<>(Attribute.string("tenant"), Operator.EQUALS, "acme"),
+                        new ValueCondition<>(Attribute.integer("level"), Operator.GREATER_THAN, 2)),
+                    Effect.ALLOW)));
+
+    @Test
+    @DisplayName("Should ignore attributes no condition references")
+    void shouldIgnoreUnreferencedAttributes() {
+      long fingerprint = policySet.fingerprint(Map.of("tenant", "acme", "level", 5));
+
+      assertEquals(
+          fingerprint,
+          policySet.fingerprint(Map.of("tenant", "acme", "level", 5, "requestId", "r-17")));
+      assertNotEquals(fingerprint, policySet.fingerprint(Map.of("tenant", "acme", "level", 6)));
+      assertNotEquals(fingerprint, policySet.fingerprint(Map.of("tenant", "other", "level", 5)));
+      assertNotEquals(fingerprint, policySet.fingerprint(Map.of("tenant", "acme")));
+    }
+
+    @Test
+    @DisplayName("Should hash values without converting them")
+    void shouldHashRawValues() {
+      assertEquals(
+          policySet.fingerprint(Map.of("tenant", "acme", "level", 5)),
+          policySet.fingerprint(Map.of("tenant", "acme", "level", 5L)));
+      assertEquals(
+          policySet.fingerprint(Map.of("tenant", "acme", "level", "5")),
+          policySet.fingerprint(new HashMap<>(Map.of("tenant", "acme", "level", "5"))));
+      assertNotEquals(
+          policySet.fingerprint(Map.of("tenant", "acme", "level", 5)),
+          policySet.fingerprint(Map.of("tenant", "acme", "level", "5")));
+      // Invalid values are hashed like any other, rather than failing conversion
+      assertNotEquals(
+          policySet.fingerprint(Map.of("tenant", "acme", "level", "x")),
+          policySet.fingerprint(Map.of("tenant", "acme", "level", "y")));
+      assertNotEquals(
+          policySet.fingerprint(Map.of("tenant", "acme", "level", 5)),
+          policySet.fingerprint(Map.of("tenant", "acme", "level", new BigDecimal("5.5"))));
+    }
+
+    @Test
+    @DisplayName("Should give array-backed and map contexts the same fingerprint")
+    void shouldMatchArrayContext() {
+      EvaluationContext arrayContext =
+          ArrayEvaluationContext.builder(policySet)
+              .reset()
+              .action("read")
+              .attribute("level", 5)
+              .attribute("tenant", "acme")
+              .build();
+
+      assertEquals(
+          policySet.fingerprint(Map.of("tenant", "acme", "level", 5)),
+          policySet.fingerprint(arrayContext));
+      assertEquals(
+          policySet.fingerprint(Map.of("tenant", "acme", "level", 5)),
+          policySet.withDecisionDiagram().fingerprint(arrayContext));
+    }
+
+    @Test
+    @DisplayName("Should hash raw values when conditions convert an attribute differently")
+    void shouldHashRawValuesOfMixedAttributes() {
+      PolicySet mixed =
+          PolicySet.of(
+              List.of(
+                  new Policy(
+                      "p1",
+                      "Policy",
+                      List.of(
+                          new ValueCondition<>(Attribute.string("code"), Operator.EQUALS, "05"),
+                          new ValueCondition<>(Attribute.integer("code"), Operator.EQUALS, 5)),
+                      Effect.ALLOW)));
+
+      assertNotEquals(
+          mixed.fingerprint(Map.of("code", "05")), mixed.fingerprint(Map.of("code", "5")));
+    }
+  }
+
+  @Nested
+  @DisplayName("Off-Heap Storage Tests")
+  class OffHeapStorageTests {
+
+    private final Attribute<String> role = Attribute.string("role");
+    private final Attribute<Integer> level = Attribute.integer("level");
+    private final List<Policy> policies =
+        List.of(
+            new Policy(
+                "allow-senior-editor",
+                "Senior editors",
+                "Editors from level 3",
+                List.of(
+                    new ValueCondition<>(level, Operator.GREATER_THAN, 2),
+                    new ValueCondition<>(role, Operator.EQUALS, "editor")),
+                Effect.ALLOW,
+                0),
+            new Policy(
+                "deny-guest",
+                null,
+                null,
+                List.of(new ValueCondition<>(role, Operator.EQUALS, "guest")),
+                Effect.DENY,
+                5),
+            new Policy(
+                "allow-viewer",
+                "Viewers \u00fcberall",
+                null,
+                List.of(new ListCondition<>(role, Operator.IN, List.of("viewer", "guest"))),
+                Effect.ALLOW,
+                0));
+
+    @Test
+    @DisplayName("Should decide like the on-heap set")
+    void shouldDecideLikeOnHeapSet() {
+      PolicySet onHeap = PolicySet.of(policies);
+      PolicySet offHeap = onHeap.withOffHeapStorage();
+
+      assertTrue(offHeap.isOffHeap());
+      assertFalse(onHeap.isOffHeap());
+      for (String roleValue : List.of("editor", "guest", "viewer", "other")) {
+        for (int levelValue : new int[] {1, 3}) {
+          Map<String, Object> context = Map.of("role", roleValue, "level", levelValue);
+          assertEquals(
+              contextEvaluator.evaluate(new ListContext(context, onHeap)),
+              contextEvaluator.evaluate(new ListContext(context, offHeap)),
+              roleValue + " " + levelValue);
+          assertEquals(
+              contextEvaluator.evaluate(new ListContext(context, onHeap)),
+              contextEvaluator.evaluate(
+                  new ListContext(context, offHeap.withAdaptiveConditionOrder())));
+        }
+      }
+    }
+
+    @Test
+    @DisplayName("Should decode policies in declaration order")
+    void shouldDecodePolicies() {
+      PolicySet offHeap = PolicySet.of(policies).withOffHeapStorage();
+
+      assertEquals(3, offHeap.size());
+      for (int i = 0; i < policies.size(); i++) {
+        Policy expected = policies.get(i);
+        Policy decoded = offHeap.get(i);
+        assertEquals(expected.getPolicyId(), decoded.getPolicyId());
+        assertEquals(expected.getName(), decoded.getName());
+        assertEquals(expected.getDescription(), decoded.getDescription());
+        assertEquals(expected.getConditions(), decoded.getConditions());
+        assertEquals(expected.getEffect(), decoded.getEffect());
+        assertEquals(expected.getPriority(), decoded.getPriority());
+      }
+      assertThrows(IndexOutOfBoundsException.class, () -> offHeap.get(3));
+      assertSame(offHeap, offHeap.withOffHeapStorage());
+    }
+
+    @Test
+    @DisplayName("Should keep the decision diagram and adaptive orders")
+    void shouldKeepCompiledForms() {
+      PolicySet offHeap =
+          PolicySet.of(policies)
+              .withDecisionDiagram()
+              .withAdaptivePolicyOrder()
+              .withOffHeapStorage();
+
+      assertTrue(offHeap.decisionDiagram().isPresent());
+      assertNotNull(offHeap.adaptivePolicyOrder());
+      assertTrue(offHeap.withAdaptiveConditionOrder().isOffHeap());
+      assertEquals(
+          PolicyEvaluationResult.DENY,
+          contextEvaluator.evaluate(
+              new ListContext(Map.of("role", "guest", "level", 1), offHeap)));
+    }
+  }
+
+  @Nested
+  @DisplayName("Generated Code Tests")
+  class GeneratedCodeTests {
+
+    private final Attribute<String> role = Attribute.string("role");
+    private final Attribute<String> path = Attribute.string("path");
+    private final Attribute<Integer> level = Attribute.integer("level");
+    private final Attribute<Integer> clearance =
+        Attribute.integer("clearance", value -> value >= 0);
+    private final List<Policy> policies =
+        List.of(
+            new Policy(
+                "allow-senior-editor",
+                "allow-senior-editor",
+                List.of(
+                    new ValueCondition<>(level, Operator.GREATER_THAN, 2),
+                    new ValueCondition<>(role, Operator.EQUALS, "editor")),
+                Effect.ALLOW),
+            new Policy(
+                "deny-junior-admin-path",
+                "deny-junior-admin-path",
+                List.of(
+                    new ValueCondition<>(path, Operator.STARTS_WITH, "/admin"),
+                    new ValueCondition<>(level, Operator.LESS_THAN, 5)),
+                Effect.DENY),
+            new Policy(
+                "allow-viewer",
+                "allow-viewer",
+                List.of(
+                    new ListCondition<>(role, Operator.IN, List.of("viewer", "guest")),
+                    new ValueCondition<>(path, Operator.ENDS_WITH, ".html"),
+                    new ListCondition<>(level, Operator.NOT_IN, List.of(0, 7))),
+                Effect.ALLOW),
+            new Policy(
+                "allow-cleared",
+                "allow-cleared",
+                List.of(
+                    new ValueCondition<>(clearance, Operator.EQUALS, 3),
+                    new ValueCondition<>(role, Operator.NOT_EQUALS, "guest"),
+                    new ValueCondition<>(path, Operator.MATCHES, "/docs/.*")),
+                Effect.ALLOW));
+
+    @Test
+    @DisplayName("Should decide like the interpreted set")
+    void shouldDecideLikeInterpretedSet() {
+      PolicySet interpreted = PolicySet.of(policies);
+      PolicySet generated = interpreted.withGeneratedCode();
+
+      assertTrue(generated.hasGeneratedCode());
+      assertFalse(interpreted.hasGeneratedCode());
+      assertSame(generated, generated.withGeneratedCode());
+      List<Object> levels = Arrays.asList(0, 3, 7, "4", "x", null);
+      for (String roleValue : Arrays.asList("editor", "viewer", "guest", null)) {
+        for (String pathValue : Arrays.asList("/admin/users", "/docs/a.html", "/b.html", null)) {
+          for (Object levelValue : levels) {
+            Map<String, Object> context = new HashMap<>();
+            context.put("role", roleValue);
+            context.put("path", pathValue);
+            context.put("level", levelValue);
+            context.put("clearance", levelValue);
+            for (CombiningAlgorithm algorithm : CombiningAlgorithm.values()) {
+              ContextEvaluator evaluator =
+                  new ContextEvaluator(new PolicyEvaluator(), algorithm);
+              assertEquals(
+                  evaluator.evaluate(new ListContext(context, interpreted)),
+                  evaluator.evaluate(new ListContext(context, generated)),
+                  algorithm + " " + context);
+            }
+          }
+        }
+      }
+    }
+
+    @Test
+    @DisplayName("Should keep generated code with other compiled forms")
+    void shouldKeepGeneratedCode() {
+      PolicySet generated =
+          PolicySet.of(policies).withGeneratedCode().withOffHeapStorage().withDecisionDiagram();
+
+      assertTrue(generated.hasGeneratedCode());
+      assertTrue(generated.isOffHeap());
+      Map<String, Object> context = Map.of("role", "viewer", "path", "/b.html", "level", 3);
+      assertEquals(
+          PolicyEvaluationResult.ALLOW,
+          contextEvaluator.evaluate(new ListContext(context, generated)));
+      assertEquals(
+          PolicyEvaluationResult.ALLOW,
+          contextEvaluator.evaluate(
+              new ListContext(context, generated.withAdaptiveConditionOrder(1, 1))));
+    }
+
+    @Test
+    @DisplayName("Should generate only policies with inlined conditions")
+    void shouldGenerateInlinedPolicies() {
+      List<Policy> many = new ArrayList<>();
+      for (int i = 0; i < 60; i++) {
+        many.add(
+            new Policy(
+                "p" + i,
+                "p" + i,
+                List.of(
+                    new ValueCondition<>(role, Operator.EQUALS, "role" + i),
+                    new ValueCondition<>(level, Operator.GREATER_THAN, i % 10)),
+                i % 2 == 0 ? Effect.ALLOW : Effect.DENY));
+      }
+      // Only range conditions, which are decided by an index
+      many.add(
+          new Policy(
+              "indexed",
+              "indexed",
+              List.of(new ValueCondition<>(level, Operator.GREATER_THAN, 8)),
+              Effect.DENY));
+      PolicySet generated = PolicySet.of(many).withGeneratedCode();
+
+      assertEquals(60, generated.generatedPolicies().classCount());
+      assertEquals(
+          PolicyEvaluationResult.DENY,
+          contextEvaluator.evaluate(
+              new ListContext(Map.of("role", "role23", "level", 5), generated)));
+      assertEquals(
+          PolicyEvaluationResult.NOT_APPLICABLE,
+          contextEvaluator.evaluate(
+              new ListContext(Map.of("role", "role23", "level", 2), generated)));
+      assertEquals(
+          PolicyEvaluationResult.DENY,
+          contextEvaluator.evaluate(new ListContext(Map.of("role", "x", "level", 9), generated)));
+    }
+
+    @Test
+    @DisplayName("Should keep sets above the size limit interpreted")
+    void shouldNotGenerateLargeSets() {
+      Attribute<String> role = Attribute.string("role");
+      List<Policy> policies = new ArrayList<>();
+      for (int i = 0; i <= PolicySet.MAX_GENERATED_POLICIES; i++) {
+        policies.add(
+            new Policy(
+                "p" + i,
+                "p" + i,
+                List.of(new ValueCondition<>(role, Operator.EQUALS, "role" + i)),
+                Effect.ALLOW));
+      }
+      PolicySet large = PolicySet.of(policies);
+
+      assertSame(large, large.withGeneratedCode());
+      assertTrue(
+          PolicySet.of(policies.subList(0, PolicySet.MAX_GENERATED_POLICIES))
+              .withGeneratedCode()
+              .hasGeneratedCode());
+    }
+  }
+
+  @Nested
+  @DisplayName("Tiered Code Tests")
+  class TieredCodeTests {
+
+    private final Attribute<String> role = Attribute.string("role");
+    private final List<Policy> policies =
+        List.of(
+            new Policy(
+                "deny-guest",
+                "deny-guest",
+                List.of(new ValueCondition<>(role, Operator.EQUALS, "guest")),
+                Effect.DENY),
+            new Policy(
+                "allow-editor",
+                "allow-editor",
+                List.of(new ValueCondition<>(role, Operator.EQUALS, "editor")),
+                Effect.ALLOW));
+
+    private PolicyEvaluationResult evaluate(PolicySet policySet, String roleValue) {
+      return contextEvaluator.evaluate(new ListContext(Map.of("role", roleValue), policySet));
+    }
+
+    @Test
+    @DisplayName("Should compile hot policies and drop them once cold")
+    void shouldCompileHotPolicies() {
+      PolicySet tiered = PolicySet.of(policies).withTieredCode(2, 4, Runnable::run);
+
+      assertTrue(tiered.hasTieredCode());
+      assertEquals(0, tiered.tieredPolicies().compiledCount());
+      for (int i = 0; i < 3; i++) {
+        assertEquals(PolicyEvaluationResult.ALLOW, evaluate(tiered, "editor"));
+      }
+      assertEquals(2, tiered.tieredPolicies().compiledCount());
+
+      // Guests are denied by the first policy, so the second one is not evaluated for a window
+      for (int i = 0; i < 5; i++) {
+        assertEquals(PolicyEvaluationResult.DENY, evaluate(tiered, "guest"));
+      }
+      assertEquals(1, tiered.tieredPolicies().compiledCount());
+
+      for (int i = 0; i < 2; i++) {
+        assertEquals(PolicyEvaluationResult.ALLOW, evaluate(tiered, "editor"));
+      }
+      assertEquals(2, tiered.tieredPolicies().compiledCount());
+      assertEquals(PolicyEvaluationResult.NOT_APPLICABLE, evaluate(tiered, "viewer"));
+    }
+
+    @Test
+    @DisplayName("Should sample evaluations for large thresholds")
+    void shouldSampleLargeThresholds() {
+      PolicySet tiered = PolicySet.of(policies).withTieredCode(1_000, 10_000, Runnable::run);
+      PolicySet exact = PolicySet.of(policies).withTieredCode(2, 4, Runnable::run);
+
+      assertEquals(TieredPolicies.MAX_SAMPLE_INTERVAL, tiered.tieredPolicies().sampleInterval());
+      assertEquals(1, exact.tieredPolicies().sampleInterval());
+      for (int i = 0; i < 3_000; i++) {
+        assertEquals(PolicyEvaluationResult.ALLOW, evaluate(tiered, "editor"));
+      }
+      assertEquals(2, tiered.tieredPolicies().compiledCount());
+    }
+
+    @Test
+    @DisplayName("Should keep interpreting when compilations are rejected")
+    void shouldInterpretWhenRejected() {
+      PolicySet tiered =
+          PolicySet.of(policies)
+              .withTieredCode(
+                  1,
+                  1,
+                  task -> {
+                    throw new RejectedExecutionException("shut down");
+                  });
+
+      for (int i = 0; i < 3; i++) {
+        assertEquals(PolicyEvaluationResult.ALLOW, evaluate(tiered, "editor"));
+        assertEquals(PolicyEvaluationResult.DENY, evaluate(tiered, "guest"));
+      }
+      assertEquals(0, tiered.tieredPolicies().compiledCount());
+    }
+
+    @Test
+    @DisplayName("Should keep tiered code with other compiled forms")
+    void shouldKeepTieredCode() {
+      PolicySet tiered =
+          PolicySet.of(policies).withTieredCode(1, 100, Runnable::run).withOffHeapStorage();
+
+      assertTrue(tiered.hasTieredCode());
+      assertTrue(tiered.withDecisionDiagram().hasTieredCode());
+      assertEquals(PolicyEvaluationResult.ALLOW, evaluate(tiered, "editor"));
+      assertEquals(PolicyEvaluationResult.ALLOW, evaluate(tiered, "editor"));
+      assertEquals(2, tiered.tieredPolicies().compiledCount());
+
+      PolicySet generated = PolicySet.of(policies).withGeneratedCode();
+      assertSame(generated, generated.withTieredCode());
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> PolicySet.of(policies).withTieredCode(0, 100, Runnable::run));
+    }
+  }
+
+  @Nested
+  @DisplayName("Priority Tests")
+  class PriorityTests {
+
+    private Policy policy(String id, int priority) {
+      return new Policy(id, id, null, List.of(), Effect.ALLOW, priority);
+    }
+
+    @Test
+    @DisplayName("Should order policies by descending priority once")
+    void shouldOrderByDescendingPriority() {
+      List<Policy> policies =
+          List.of(
+              policy("a", 0), policy("b", 10), policy("c", -5), policy("d", 10), policy("e", 0));
+
+      PolicySet policySet = PolicySet.of(policies);
+
+      assertArrayEquals(new int[] {1, 3, 0, 4, 2}, policySet.evaluationOrder());
+      assertEquals(policies, policySet);
+    }
+
+    @Test
+    @DisplayName("Should capture priorities when the set is built")
+    void shouldCapturePriorities() {
+      Policy policy = policy("a", 3);
+      PolicySet policySet = PolicySet.of(List.of(policy, policy("b", 5)));
+
+      policy.setPriority(9);
+
+      assertEquals(3, policySet.priority(0));
+      assertArrayEquals(new int[] {1, 0}, policySet.evaluationOrder());
+    }
+  }
+
+  @Nested
+  @DisplayName("Condition Index Tests")
+  class ConditionIndexTests {
+
+    @Test
+    @DisplayName("Should decide tiered policies like the interpreter")
+    void shouldDecideTieredPoliciesLikeInterpreter() {
+      List<Policy> policies = new ArrayList<>();
+      for (int tier = 0; tier < 20; tier++) {
+        policies.add(
+            new Policy(
+                "tier-" + tier,
+                "Tier " + tier,
+                List.of(
+                    new ValueCondition<>(Attribute.integer("level"), Operator.GREATER_THAN, tier),
+                    new ValueCondition<>(
+                        Attribute.integer("amount"), Operator.LESS_THAN, 1000 * tier)),
+                tier == 17 ? Effect.DENY : Effect.ALLOW));
+      }
+      PolicySet policySet = PolicySet.of(policies);
+      PolicyEvaluator policyEvaluator = new PolicyEvaluator();
+
+      Object[] levels = {-1, 0, 5, "12", 17, 18, 40, "high", null};
+      Object[] amounts = {0, 999, 1000, "5000", 17_000, 16_999, null};
+      for (Object level : levels) {
+        for (Object amount : amounts) {
+          Map<String, Object> context = new HashMap<>();
+          context.put("level", level);
+          context.put("amount", amount);
+
+          PolicyEvaluationResult expected = PolicyEvaluationResult.NOT_APPLICABLE;
+          for (Policy policy : policies) {
+            PolicyEvaluationResult result = policyEvaluator.evaluate(policy, context);
+            if (result == PolicyEvaluationResult.DENY) {
+              expected = result;
+              break;
+            } else if (result == PolicyEvaluationResult.ALLOW) {
+              expected = result;
+            }
+          }
+
+          assertEquals(
+              expected,
+              contextEvaluator.evaluate(new ListContext(context, policySet)),
+              level + "/" + amount);
+        }
+      }
+    }
+
+    @Test
+    @DisplayName("Should visit only the candidate policies of the indexes")
+    void shouldVisitOnlyCandidatePolicies() {
+      Attribute<Integer> level = Attribute.integer("level");
+      List<Policy> policies = new ArrayList<>();
+      for (int tier = 0; tier < 20; tier++) {
+        policies.add(
+            new Policy(
+                "tier-" + tier,
+                "Tier " + tier,
+                List.of(new ValueCondition<>(level, Operator.GREATER_THAN, tier)),
+                Effect.ALLOW));
+      }
+      policies.add(
+          new Policy(
+              "deny-guest",
+              "Deny guests",
+              List.of(new ValueCondition<>(Attribute.string("role"), Operator.EQUALS, "guest")),
+              Effect.DENY));
+      int[] visited = new int[1];
+      CombiningStrategy countingVisits =
+          new CombiningStrategy() {
+            @Override
+            public boolean isDecisive(PolicyEvaluationResult result) {
+              visited[0]++;
+              return false;
+            }
+
+            @Override
+            public PolicyEvaluationResult otherwise(boolean anyAllow, boolean anyDeny) {
+              return anyAllow ? PolicyEvaluationResult.ALLOW : PolicyEvaluationResult.DENY;
+            }
+          };
+
+      ListContext context =
+          new ListContext(Map.of("level", 5, "role", "admin"), PolicySet.of(policies));
+      PolicyEvaluationResult result =
+          new ContextEvaluator(new PolicyEvaluator(), countingVisits).evaluate(context);
+
+      assertEquals(PolicyEvaluationResult.ALLOW, result);
+      // Tiers 0 to 4 and the policy without an indexed condition, after the combiner asked once
+      // whether not applicable decides
+      assertEquals(7, visited[0]);
+    }
+
+    @Test
+    @DisplayName("Should decide prefix and suffix policies through the trie")
+    void shouldDecidePrefixAndSuffixPolicies() {
+      Attribute<String> resource = Attribute.string("resource");
+      List<Policy> policies =
+          List.of(
+              new Policy(
+                  "allow-eu",
+                  "Allow EU accounts",
+                  List.of(new ValueCondition<>(resource, Operator.STARTS_WITH, "acct-eu-")),
+                  Effect.ALLOW),
+              new Policy(
+                  "allow-us",
+                  "Allow US accounts",
+                  List.of(new ValueCondition<>(resource, Operator.STARTS_WITH, "acct-us-")),
+                  Effect.ALLOW),
+              new Policy(
+                  "deny-archived",
+                  "Deny archived accounts",
+                  List.of(
+                      new ValueCondition<>(resource, Operator.STARTS_WITH, "acct-"),
+                      new ValueCondition<>(resource, Operator.ENDS_WITH, "-archived")),
+                  Effect.DENY),
+              new Policy(
+                  "deny-temp",
+                  "Deny temporary accounts",
+                  List.of(new ValueCondition<>(resource, Operator.ENDS_WITH, "-tmp")),
+                  Effect.DENY));
+      PolicySet policySet = PolicySet.of(policies);
+
+      assertEquals(
+          PolicyEvaluationResult.ALLOW,
+          contextEvaluator.evaluate(new ListContext(Map.of("resource", "acct-eu-7"), policySet)));
+      assertEquals(
+          PolicyEvaluationResult.DENY,
+          contextEvaluator.evaluate(
+              new ListContext(Map.of("resource", "acct-us-7-archived"), policySet)));
+      assertEquals(
+          PolicyEvaluationResult.NOT_APPLICABLE,
+          contextEvaluator.evaluate(new ListContext(Map.of("resource", "acct-ap-7"), policySet)));
+      assertEquals(
+          PolicyEvaluationResult.NOT_APPLICABLE,
+          contextEvaluator.evaluate(new ListContext(Map.of(), policySet)));
+    }
+
+    @Test
+    @DisplayName("Should keep thresholds of differently validated attributes apart")
+    void shouldKeepDifferentlyValidatedAttributesApart() {
+      Attribute<Integer> positiveLevel = Attribute.integer("level", i -> i > 0);
+      Policy strict =
+          new Policy(
+              "strict",
+              "Strict",
+              List.of(
+                  new ValueCondition<>(positiveLevel, Operator.GREATER_THAN, -5),
+                  new ValueCondition<>(positiveLevel, Operator.GREATER_THAN, -3)),
+              Effect.DENY);
+      Policy lenient =
+          new Policy(
+              "lenient",
+              "Lenient",
+              List.of(
+                  new ValueCondition<>(Attribute.integer("level"), Operator.GREATER_THAN, -5),
+                  new ValueCondition<>(Attribute.integer("level"), Operator.GREATER_THAN, -4)),
+              Effect.ALLOW);
+      PolicySet policySet = PolicySet.of(List.of(strict, lenient));
+
+      assertEquals(
+          PolicyEvaluationResult.ALLOW,
+          contextEvaluator.evaluate(new ListContext(Map.of("level", -1), policySet)));
+      assertEquals(
+          PolicyEvaluationResult.DENY,
+          contextEvaluator.evaluate(new ListContext(Map.of("level", 1), policySet)));
+    }
+  }
+
+  private static class CountingCondition implements Condition<String> {
+    private final Attribute<String> attribute;
+    private final String value;
+    private int evaluations;
+
+    CountingCondition(Attribute<String> attribute, String value) {
+      this.attribute = attribute;
+      this.value = value;
+    }
+
+    @Override
+    public boolean evaluate(String contextValue) {
+      evaluations++;
+      return value.equals(contextValue);
+    }
+
+    @Override
+    public Attribute<String> getAttribute() {
+      return attribute;
+    }
+
+    @Override
+    public Operator getOperator() {
+      return Operator.EQUALS;
+    }
+  }
+
+  /** Holds for one value, after some work that makes it costly to evaluate. */
+  private static class SlowCondition implements Condition<String> {
+    private final Attribute<String> attribute;
+    private final String value;
+    private int work;
+
+    SlowCondition(Attribute<String> attribute, String value) {
+      this.attribute = attribute;
+      this.value = value;
+    }
+
+    @Override
+    public boolean evaluate(String contextValue) {
+      int hash = 0;
+      for (int i = 0; i < 20_000; i++) {
+        hash = 31 * hash + (contextValue + i).hashCode();
+      }
+      work = hash;
+      return value.equals(contextValue);
+    }
+
+    @Override
+    public Attribute<String> getAttribute() {
+      return attribute;
+    }
+
+    @Override
+    public Operator getOperator() {
+      return Operator.EQUALS;
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package org.binaryhive.policyengine.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.binaryhive.policyengine.condition.ValueCondition;
+import org.binaryhive.policyengine.model.Attribute;
+import org.binaryhive.policyengine.model.Operator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class AffixIndexTest {
+
+  private static Map<Integer, Boolean> resolve(AffixIndex index, Object value) {
+    Map<Integer, Boolean> results = new HashMap<>();
+    index.resolve(value, results::put);
+    return results;
+  }
+
+  @Nested
+  @DisplayName("Builder Tests")
+  class BuilderTests {
+
+    @Test
+    @DisplayName("Should reject operators other than STARTS_WITH and ENDS_WITH")
+    void shouldRejectOtherOperators() {
+      assertThrows(IllegalArgumentException.class, () -> AffixIndex.builder(Operator.EQUALS));
+      assertThrows(IllegalArgumentException.class, () -> AffixIndex.builder(Operator.LESS_THAN));
+    }
+  }
+
+  @Nested
+  @DisplayName("Resolution Tests")
+  class ResolutionTests {
+
+    @Test
+    @DisplayName("Should find every matching prefix in one walk")
+    void shouldFindEveryMatchingPrefix() {
+      AffixIndex index =
+          AffixIndex.builder(Operator.STARTS_WITH)
+              .add(0, "acct-")
+              .add(1, "acct-eu-")
+              .add(2, "acct-us-")
+              .add(3, "")
+              .add(4, "acct-eu-1")
+              .add(5, "acct-eu-")
+              .build();
+
+      assertEquals(
+          Map.of(0, true, 1, true, 2, false, 3, true, 4, false, 5, true),
+          resolve(index, "acct-eu-42"));
+      assertEquals(
+          Map.of(0, false, 1, false, 2, false, 3, true, 4, false, 5, false),
+          resolve(index, "acc"));
+    }
+
+    @Test
+    @DisplayName("Should find every matching suffix in one walk")
+    void shouldFindEveryMatchingSuffix() {
+      AffixIndex index =
+          AffixIndex.builder(Operator.ENDS_WITH)
+              .add(0, ".pdf")
+              .add(1, "pdf")
+              .add(2, ".tar.gz")
+              .add(3, ".gz")
+              .build();
+
+      assertEquals(Map.of(0, true, 1, true, 2, false, 3, false), resolve(index, "report.pdf"));
+      assertEquals(Map.of(0, false, 1, false, 2, true, 3, true), resolve(index, "a.tar.gz"));
+      assertEquals(Map.of(0, false, 1, false, 2, false, 3, false), resolve(index, ""));
+    }
+
+    @Test
+    @DisplayName("Should agree with ValueCondition for every value")
+    void shouldAgreeWithValueCondition() {
+      Attribute<String> resource = Attribute.string("resource");
+      Random random = new Random(7);
+      for (Operator operator : List.of(Operator.STARTS_WITH, Operator.ENDS_WITH)) {
+        AffixIndex.Builder builder = AffixIndex.builder(operator);
+        List<ValueCondition<String>> conditions = new ArrayList<>();
+        for (int id = 0; id < 40; id++) {
+          String affix = randomString(random, 4);
+          conditions.add(new ValueCondition<>(resource, operator, affix));
+          builder.add(id, affix);
+        }
+        AffixIndex index = builder.build();
+
+        for (int i = 0; i < 500; i++) {
+          String value = randomString(random, 6);
+          Map<Integer, Boolean> results = resolve(index, value);
+          for (int id = 0; id < conditions.size(); id++) {
+            assertEquals(conditions.get(id).evaluate(value), results.get(id), value);
+          }
+        }
+      }
+    }
+
+    private String randomString(Random random, int maxLength) {
+      char[] chars = new char[random.nextInt(maxLength + 1)];
+      for (int i = 0; i < chars.length; i++) {
+        chars[i] = (char) ('a' + random.nextInt(3));
+      }
+      return new String(chars);
+    }
+  }
+}
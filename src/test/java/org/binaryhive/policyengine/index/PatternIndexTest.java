@@ -0,0 +1,186 @@
+package org.binaryhive.policyengine.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class PatternIndexTest {
+
+  private static Map<Integer, Boolean> resolve(PatternIndex index, Object value) {
+    Map<Integer, Boolean> results = new HashMap<>();
+    index.resolve(value, results::put);
+    return results;
+  }
+
+  private static Set<Integer> trueIds(Map<Integer, Boolean> results) {
+    Set<Integer> ids = new TreeSet<>();
+    for (Map.Entry<Integer, Boolean> result : results.entrySet()) {
+      if (result.getValue()) {
+        ids.add(result.getKey());
+      }
+    }
+    return ids;
+  }
+
+  @Nested
+  @DisplayName("Required Literal Tests")
+  class RequiredLiteralTests {
+
+    @Test
+    @DisplayName("Should pick the longest mandatory run")
+    void shouldPickLongestMandatoryRun() {
+      assertEquals("Mozilla/", RequiredLiterals.of("Mozilla/\\d+\\.\\d+.*"));
+      assertEquals("Chrome/", RequiredLiterals.of(".*Chrome/[0-9.]+ Safari.*"));
+      assertEquals("report.", RequiredLiterals.of("report\\.(pdf|docx?)"));
+      assertEquals("abc", RequiredLiterals.of("abc+d?e"));
+      assertEquals("bo", RequiredLiterals.of("x?bot*s"));
+    }
+
+    @Test
+    @DisplayName("Should not report literals that are optional")
+    void shouldNotReportOptionalLiterals() {
+      assertEquals("", RequiredLiterals.of("a?b*c{0,2}"));
+      assertEquals("/", RequiredLiterals.of("(curl|wget)/.*"));
+      assertEquals("", RequiredLiterals.of("curl|wget"));
+      assertEquals("", RequiredLiterals.of("(?i)curl.*"));
+      assertEquals("", RequiredLiterals.of("\\p{Lu}+curl"));
+      assertEquals("", RequiredLiterals.of("[abc|]*"));
+    }
+
+    @Test
+    @DisplayName("Should read supplementary characters as one unit")
+    void shouldReadSupplementaryCharacters() {
+      String emoji = Character.toString(0x1F600);
+      assertEquals("a", RequiredLiterals.of("a" + emoji + "?"));
+      assertEquals("a" + emoji, RequiredLiterals.of("a" + emoji + "+"));
+      assertEquals("b", RequiredLiterals.of("\\" + emoji + "?b"));
+
+      PatternIndex.Builder builder = PatternIndex.builder();
+      builder.add(0, Pattern.compile("a" + emoji + "?"));
+      PatternIndex index = builder.build();
+      assertEquals(Map.of(0, true), resolve(index, "a"));
+      assertEquals(Map.of(0, true), resolve(index, "a" + emoji));
+      assertEquals(Map.of(0, false), resolve(index, "a" + emoji.charAt(0)));
+    }
+  }
+
+  @Nested
+  @DisplayName("Resolution Tests")
+  class ResolutionTests {
+
+    @Test
+    @DisplayName("Should decide every pattern in one scan")
+    void shouldDecideEveryPattern() {
+      PatternIndex index =
+          PatternIndex.builder()
+              .add(0, Pattern.compile("Mozilla/5\\.0 .*"))
+              .add(1, Pattern.compile(".*(bot|crawler).*"))
+              .add(2, Pattern.compile("curl/[0-9.]+"))
+              .add(3, Pattern.compile(".*Chrome/\\d+.*"))
+              .build();
+
+      assertEquals(
+          Map.of(0, true, 1, false, 2, false, 3, true),
+          resolve(index, "Mozilla/5.0 (X11) Chrome/120 Safari/537"));
+      assertEquals(
+          Map.of(0, false, 1, false, 2, true, 3, false), resolve(index, "curl/8.4.0"));
+      assertEquals(
+          Map.of(0, false, 1, true, 2, false, 3, false), resolve(index, "Googlebot/2.1"));
+    }
+
+    @Test
+    @DisplayName("Should reuse the sink's scratch bits across lookups")
+    void shouldReuseScratchBits() {
+      PatternIndex.Builder builder = PatternIndex.builder();
+      for (int id = 0; id < 100; id++) {
+        builder.add(id, Pattern.compile(".*token" + id + "x.*"));
+      }
+      PatternIndex index = builder.build();
+      long[] scratch = new long[2];
+      Map<Integer, Boolean> results = new HashMap<>();
+      ConditionSink sink =
+          new ConditionSink() {
+            @Override
+            public void accept(int conditionId, boolean met) {
+              results.put(conditionId, met);
+            }
+
+            @Override
+            public long[] scratchBits(int bits) {
+              Arrays.fill(scratch, 0L);
+              return scratch;
+            }
+          };
+
+      index.resolve("a token70x b", sink);
+      assertEquals(Set.of(70), trueIds(results));
+      index.resolve("token3x token99x", sink);
+      assertEquals(Set.of(3, 99), trueIds(results));
+    }
+
+    @Test
+    @DisplayName("Should reject patterns with flags")
+    void shouldRejectPatternsWithFlags() {
+      PatternIndex.Builder builder = PatternIndex.builder();
+      Pattern pattern = Pattern.compile("curl", Pattern.CASE_INSENSITIVE);
+
+      assertThrows(IllegalArgumentException.class, () -> builder.add(0, pattern));
+    }
+
+    @Test
+    @DisplayName("Should agree with Pattern.matches for every value")
+    void shouldAgreeWithPatternMatches() {
+      List<String> regexes =
+          List.of(
+              "ab.*",
+              ".*ba",
+              "a+b+",
+              "(ab)+c?",
+              "[ab]*c[ab]*",
+              "b?a{2}b",
+              "abc|cab",
+              ".*a\\.b.*",
+              "c\\w+",
+              "a*+b");
+      PatternIndex.Builder builder = PatternIndex.builder();
+      for (int id = 0; id < regexes.size(); id++) {
+        builder.add(id, Pattern.compile(regexes.get(id)));
+      }
+      PatternIndex index = builder.build();
+
+      Random random = new Random(11);
+      String alphabet = "abc.";
+      for (int i = 0; i < 2000; i++) {
+        char[] chars = new char[random.nextInt(7)];
+        for (int j = 0; j < chars.length; j++) {
+          chars[j] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        String value = new String(chars);
+        Map<Integer, Boolean> results = resolve(index, value);
+        for (int id = 0; id < regexes.size(); id++) {
+          assertEquals(value.matches(regexes.get(id)), results.get(id), regexes.get(id));
+        }
+      }
+    }
+  }
+
+  @Nested
+  @DisplayName("Literal Automaton Tests")
+  class LiteralAutomatonTests {
+
+    @Test
+    @DisplayName("Should find overlapping literals")
+    void shouldFindOverlappingLiterals() {
+      LiteralAutomaton automaton = LiteralAutomaton.of(List.of("he", "she", "his", "hers"));
+      long[] found = new long[1];
+
+      automaton.scan("ushers", found);
+
+      assertArrayEquals(new long[] {0b1011}, found);
+    }
+  }
+}
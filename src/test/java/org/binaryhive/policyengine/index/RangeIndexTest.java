@@ -0,0 +1,99 @@
+package org.binaryhive.policyengine.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.binaryhive.policyengine.condition.ValueCondition;
+import org.binaryhive.policyengine.model.Attribute;
+import org.binaryhive.policyengine.model.Operator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class RangeIndexTest {
+
+  private static Map<Integer, Boolean> resolve(RangeIndex index, Object value) {
+    Map<Integer, Boolean> results = new HashMap<>();
+    index.resolve(value, results::put);
+    return results;
+  }
+
+  @Nested
+  @DisplayName("Builder Tests")
+  class BuilderTests {
+
+    @Test
+    @DisplayName("Should reject operators other than GREATER_THAN and LESS_THAN")
+    void shouldRejectOtherOperators() {
+      assertThrows(IllegalArgumentException.class, () -> RangeIndex.builder(Operator.EQUALS));
+      assertThrows(IllegalArgumentException.class, () -> RangeIndex.builder(Operator.IN));
+    }
+
+    @Test
+    @DisplayName("Should reject null thresholds")
+    void shouldRejectNullThresholds() {
+      RangeIndex.Builder builder = RangeIndex.builder(Operator.GREATER_THAN);
+      assertThrows(NullPointerException.class, () -> builder.add(0, null));
+    }
+  }
+
+  @Nested
+  @DisplayName("Resolution Tests")
+  class ResolutionTests {
+
+    @Test
+    @DisplayName("Should satisfy GREATER_THAN thresholds below the value")
+    void shouldSatisfyGreaterThanThresholdsBelowValue() {
+      RangeIndex index =
+          RangeIndex.builder(Operator.GREATER_THAN).add(0, 3).add(1, 1).add(2, 5).add(3, 3).build();
+
+      assertEquals(Map.of(0, false, 1, true, 2, false, 3, false), resolve(index, 3));
+      assertEquals(Map.of(0, true, 1, true, 2, false, 3, true), resolve(index, 4));
+      assertEquals(Map.of(0, false, 1, false, 2, false, 3, false), resolve(index, 1));
+    }
+
+    @Test
+    @DisplayName("Should satisfy LESS_THAN thresholds above the value")
+    void shouldSatisfyLessThanThresholdsAboveValue() {
+      RangeIndex index =
+          RangeIndex.builder(Operator.LESS_THAN).add(0, 10_000).add(1, 100).add(2, 100).build();
+
+      assertEquals(Map.of(0, true, 1, true, 2, true), resolve(index, 99));
+      assertEquals(Map.of(0, true, 1, false, 2, false), resolve(index, 100));
+      assertEquals(Map.of(0, false, 1, false, 2, false), resolve(index, 10_000));
+    }
+
+    @Test
+    @DisplayName("Should agree with ValueCondition for every value")
+    void shouldAgreeWithValueCondition() {
+      Attribute<Integer> level = Attribute.integer("level");
+      Random random = new Random(42);
+      for (Operator operator : List.of(Operator.GREATER_THAN, Operator.LESS_THAN)) {
+        RangeIndex.Builder builder = RangeIndex.builder(operator);
+        List<ValueCondition<Integer>> conditions = new ArrayList<>();
+        for (int id = 0; id < 50; id++) {
+          int threshold = random.nextInt(20);
+          conditions.add(new ValueCondition<>(level, operator, threshold));
+          builder.add(id, threshold);
+        }
+        RangeIndex index = builder.build();
+
+        for (int value = -1; value <= 21; value++) {
+          Map<Integer, Boolean> results = resolve(index, value);
+          for (int id = 0; id < conditions.size(); id++) {
+            assertEquals(conditions.get(id).evaluate(value), results.get(id));
+          }
+        }
+      }
+    }
+
+    @Test
+    @DisplayName("Should order strings naturally")
+    void shouldOrderStringsNaturally() {
+      RangeIndex index =
+          RangeIndex.builder(Operator.GREATER_THAN).add(0, "b").add(1, "a").add(2, "c").build();
+
+      assertEquals(Map.of(0, true, 1, true, 2, false), resolve(index, "bb"));
+    }
+  }
+}
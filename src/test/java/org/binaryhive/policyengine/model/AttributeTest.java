@@ -95,6 +95,17 @@ class AttributeTest {
       assertEquals(Integer.valueOf(123), attr.convert("123"));
     }
 
+    @Test
+    @DisplayName("Should convert cached and uncached numeric strings")
+    void shouldConvertCachedAndUncachedNumericStrings() {
+      Attribute<Integer> attr = Attribute.integer("testAttr");
+      assertEquals(Integer.valueOf(-128), attr.convert("-128"));
+      assertEquals(Integer.valueOf(1024), attr.convert("1024"));
+      assertEquals(Integer.valueOf(1025), attr.convert("1025"));
+      assertEquals(Integer.valueOf(-70000), attr.convert("-70000"));
+      assertEquals(Integer.valueOf(7), attr.convert("+7"));
+    }
+
     @Test
     @DisplayName("Should convert other Number types to Integer")
     void shouldConvertOtherNumberTypesToInteger() {
@@ -148,6 +159,11 @@ class AttributeTest {
       THIRD
     }
 
+    enum MixedCaseEnum {
+      VALUE,
+      value
+    }
+
     @Test
     @DisplayName("Should create enum attribute")
     void shouldCreateEnumAttribute() {
@@ -178,6 +194,15 @@ class AttributeTest {
       assertEquals(TestEnum.THIRD, attr.convert("Third"));
     }
 
+    @Test
+    @DisplayName("Should prefer exact enum names over case-insensitive matches")
+    void shouldPreferExactEnumNames() {
+      Attribute<MixedCaseEnum> attr = Attribute.enumType("testAttr", MixedCaseEnum.class);
+      assertEquals(MixedCaseEnum.value, attr.convert("value"));
+      assertEquals(MixedCaseEnum.VALUE, attr.convert("VALUE"));
+      assertEquals(MixedCaseEnum.VALUE, attr.convert("Value"));
+    }
+
     @Test
     @DisplayName("Should throw exception for invalid enum value")
     void shouldThrowExceptionForInvalidEnumValue() {
@@ -312,6 +337,30 @@ class AttributeTest {
       assertTrue(exception.getMessage().contains("Cannot convert"));
     }
 
+    @Test
+    @DisplayName("Should split comma-separated Strings like the whitespace-trimming regex")
+    void shouldSplitLikeRegex() {
+      Attribute<List<String>> listAttr = Attribute.list("testAttr", Attribute.string("element"));
+      String[] inputs = {
+        "a,b", " a , b ", "a,,b", "a, ,b", "a,b,", "a,b, ,", ",a", " ,a", ",", ",,", "a\t,\nb",
+        "a ,b  c, d"
+      };
+
+      for (String input : inputs) {
+        assertEquals(Arrays.asList(input.split("\\s*,\\s*")), listAttr.convert(input), input);
+      }
+    }
+
+    @Test
+    @DisplayName("Should reject lists with null elements")
+    void shouldRejectListsWithNullElements() {
+      Attribute<List<String>> listAttr = Attribute.list("testAttr", Attribute.string("element"));
+
+      assertFalse(listAttr.isValid(Arrays.asList("one", null)));
+      assertThrows(
+          AttributeConversionException.class, () -> listAttr.convert(Arrays.asList("one", null)));
+    }
+
     @Test
     @DisplayName("Should validate list with element validation")
     void shouldValidateListWithElementValidation() {